@@ -0,0 +1,104 @@
+package com.pablo9298.kmdb.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pablo9298.kmdb.KmdbApplication;
+import com.pablo9298.kmdb.model.Actor;
+import com.pablo9298.kmdb.model.Genre;
+import com.pablo9298.kmdb.repository.ActorRepository;
+import com.pablo9298.kmdb.repository.GenreRepository;
+import com.pablo9298.kmdb.service.CatalogGenerator;
+import com.pablo9298.kmdb.service.MovieService;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.LongStream;
+
+// The application, without its web server, on a generated catalog of the requested size.
+// Each scale has its own database file under target/, which is generated on first use with a fixed seed
+// and reused afterwards; movies created by the benchmarks are removed again when the trial ends.
+@State(Scope.Benchmark)
+public class CatalogState {
+
+    private static final int REFERENCE_ACTORS = 1_000;
+    private static final long SEED = 42L;
+
+    // Number of movies in the catalog; pick one with -p movies=10000
+    @Param({"10000", "100000", "1000000"})
+    public int movies;
+
+    MovieService movieService;
+
+    ObjectMapper objectMapper;
+
+    private ConfigurableApplicationContext context;
+
+    private List<Genre> genres;
+
+    private List<Actor> actors;
+
+    private List<Integer> years;
+
+    private List<String> words;
+
+    @Setup(Level.Trial)
+    public void start() {
+        Path database = Path.of("target", "kmdb-benchmark-" + movies + ".db");
+        context = new SpringApplicationBuilder(KmdbApplication.class)
+                .web(WebApplicationType.NONE)
+                .logStartupInfo(false)
+                .properties("spring.datasource.url=jdbc:sqlite:" + database,
+                        "logging.level.root=WARN")
+                .run();
+
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        CatalogGenerator.Settings settings = new CatalogGenerator.Settings(movies, 0, SEED);
+        if (jdbcTemplate.queryForObject("SELECT count(*) FROM movie", Long.class) != movies) {
+            context.getBean(CatalogGenerator.class).generate(settings, true);
+        }
+
+        movieService = context.getBean(MovieService.class);
+        objectMapper = context.getBean(ObjectMapper.class);
+        genres = context.getBean(GenreRepository.class).findAll();
+        int referenceActors = Math.min(REFERENCE_ACTORS, settings.actorCount());
+        actors = context.getBean(ActorRepository.class)
+                .findAllById(LongStream.rangeClosed(1, referenceActors).boxed().toList());
+        years = jdbcTemplate.queryForList("SELECT DISTINCT release_year FROM movie", Integer.class);
+        words = CatalogGenerator.titleKeywords();
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        JdbcTemplate jdbcTemplate = context.getBean(JdbcTemplate.class);
+        jdbcTemplate.update("DELETE FROM movie_actor WHERE movie_id > ?", movies);
+        jdbcTemplate.update("DELETE FROM movie_genre WHERE movie_id > ?", movies);
+        jdbcTemplate.update("DELETE FROM movie WHERE id > ?", movies);
+        context.close();
+    }
+
+    Genre randomGenre(ThreadLocalRandom random) {
+        return genres.get(random.nextInt(genres.size()));
+    }
+
+    Actor randomActor(ThreadLocalRandom random) {
+        return actors.get(random.nextInt(actors.size()));
+    }
+
+    int randomYear(ThreadLocalRandom random) {
+        return years.get(random.nextInt(years.size()));
+    }
+
+    String randomWord(ThreadLocalRandom random) {
+        return words.get(random.nextInt(words.size()));
+    }
+}
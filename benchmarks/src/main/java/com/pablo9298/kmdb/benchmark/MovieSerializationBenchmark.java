@@ -0,0 +1,49 @@
+package com.pablo9298.kmdb.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.pablo9298.kmdb.dto.CursorPage;
+import com.pablo9298.kmdb.model.Movie;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+// Jackson serialization of movies with their genres and actors, as the movie endpoints render them.
+// The graphs are loaded once per trial, so only the JSON writing is measured.
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class MovieSerializationBenchmark {
+
+    private CursorPage<Movie> page;
+
+    private Movie movie;
+
+    @Setup(Level.Trial)
+    public void loadGraphs(CatalogState catalog) {
+        page = catalog.movieService.searchMoviesByTitle("river", null, CursorPage.MAX_LIMIT);
+        movie = page.items().get(0);
+    }
+
+    @Benchmark
+    public byte[] serializeMovie(CatalogState catalog) throws JsonProcessingException {
+        return catalog.objectMapper.writeValueAsBytes(movie);
+    }
+
+    @Benchmark
+    public byte[] serializeMoviePage(CatalogState catalog) throws JsonProcessingException {
+        return catalog.objectMapper.writeValueAsBytes(page);
+    }
+}
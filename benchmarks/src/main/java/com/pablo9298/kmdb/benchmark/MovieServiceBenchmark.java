@@ -0,0 +1,79 @@
+package com.pablo9298.kmdb.benchmark;
+
+import com.pablo9298.kmdb.dto.CursorPage;
+import com.pablo9298.kmdb.model.Actor;
+import com.pablo9298.kmdb.model.Genre;
+import com.pablo9298.kmdb.model.Movie;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Service calls behind the busiest movie endpoints, including their repository queries and transactions.
+// Inputs (years, genres, title words, pages) are drawn at random from the seeded catalog, so caches see a realistic spread.
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class MovieServiceBenchmark {
+
+    private static final AtomicLong CREATED = new AtomicLong();
+
+    @Benchmark
+    public Movie createMovie(CatalogState catalog) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Genre genre = catalog.randomGenre(random);
+        Actor lead = catalog.randomActor(random);
+        Actor support = catalog.randomActor(random);
+
+        Movie movie = new Movie("Benchmark Premiere " + CREATED.incrementAndGet(), catalog.randomYear(random),
+                80 + random.nextInt(100));
+        movie.setGenres(new HashSet<>(Set.of(genre)));
+        movie.setActors(new HashSet<>(List.of(lead, support)));
+        return catalog.movieService.createMovie(movie);
+    }
+
+    @Benchmark
+    public CursorPage<Movie> getMoviesByReleaseYear(CatalogState catalog) {
+        return catalog.movieService.getMoviesByReleaseYear(catalog.randomYear(ThreadLocalRandom.current()), null,
+                CursorPage.DEFAULT_LIMIT);
+    }
+
+    @Benchmark
+    public CursorPage<Movie> getMoviesByReleaseYearRange(CatalogState catalog) {
+        int yearFrom = catalog.randomYear(ThreadLocalRandom.current());
+        return catalog.movieService.getMoviesByReleaseYearRange(yearFrom, yearFrom + 9, null, CursorPage.DEFAULT_LIMIT);
+    }
+
+    @Benchmark
+    public CursorPage<Movie> searchMoviesByTitle(CatalogState catalog) {
+        String word = catalog.randomWord(ThreadLocalRandom.current());
+        return catalog.movieService.searchMoviesByTitle(word, null, CursorPage.DEFAULT_LIMIT);
+    }
+
+    @Benchmark
+    public CursorPage<Movie> getMoviesByGenreId(CatalogState catalog) {
+        return catalog.movieService.getMoviesByGenreId(catalog.randomGenre(ThreadLocalRandom.current()).getId(), null,
+                CursorPage.DEFAULT_LIMIT);
+    }
+
+    @Benchmark
+    public Page<Movie> getAllMoviesPaged(CatalogState catalog) {
+        int pages = Math.max(1, catalog.movies / CursorPage.DEFAULT_LIMIT);
+        PageRequest page = PageRequest.of(ThreadLocalRandom.current().nextInt(pages), CursorPage.DEFAULT_LIMIT);
+        return catalog.movieService.getAllMovies(page);
+    }
+}
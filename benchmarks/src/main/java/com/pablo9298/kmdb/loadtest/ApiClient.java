@@ -0,0 +1,123 @@
+package com.pablo9298.kmdb.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Builds and sends the HTTP requests of each operation against a generated catalog.
+// Reads and patches pick random IDs and title words of the generated data; creates use titles unique to this run,
+// and deletes remove movies this run created, so the generated catalog itself is never deleted from.
+final class ApiClient {
+
+    private static final int PAGE_SIZE = 20;
+
+    // Release years queried by the year filters; the generated catalog has movies in every one of them
+    private static final int FIRST_YEAR = 1950;
+    private static final int LAST_YEAR = 2020;
+
+    // A request ready to send, and the operation it is reported under
+    record Call(Operation operation, HttpRequest request) {
+    }
+
+    private final HttpClient http = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Queue<Long> createdMovies = new ConcurrentLinkedQueue<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final String runId = Long.toString(System.currentTimeMillis(), 36);
+    private final String baseUrl;
+    private final int movies;
+    private final int actors;
+    private final int genres;
+    private final List<String> words;
+
+    ApiClient(String baseUrl, int movies, int actors, int genres, List<String> words) {
+        this.baseUrl = baseUrl;
+        this.movies = movies;
+        this.actors = actors;
+        this.genres = genres;
+        this.words = words;
+    }
+
+    // Builds the request for an operation; a delete becomes a create while there is nothing to delete
+    Call prepare(Operation operation, ThreadLocalRandom random) {
+        return switch (operation) {
+            case SEARCH -> get(operation, "/api/movies/search?limit=" + PAGE_SIZE + "&title="
+                    + URLEncoder.encode(words.get(random.nextInt(words.size())), StandardCharsets.UTF_8));
+            case LIST -> get(operation, "/api/movies?size=" + PAGE_SIZE + "&page="
+                    + random.nextInt(Math.max(1, Math.min(500, movies / PAGE_SIZE))));
+            case BY_GENRE -> get(operation, "/api/movies?limit=" + PAGE_SIZE + "&genre=" + (1 + random.nextInt(genres)));
+            case BY_ACTOR -> get(operation, "/api/movies?limit=" + PAGE_SIZE + "&actor=" + (1 + random.nextInt(actors)));
+            case BY_YEAR -> get(operation, "/api/movies?limit=" + PAGE_SIZE + "&year=" + randomYear(random));
+            case BY_YEAR_RANGE -> {
+                int yearFrom = randomYear(random);
+                yield get(operation, "/api/movies?limit=" + PAGE_SIZE + "&yearFrom=" + yearFrom + "&yearTo=" + (yearFrom + 9));
+            }
+            case CREATE -> create(random);
+            case PATCH -> new Call(operation, json("/api/movies/" + (1 + random.nextInt(movies)))
+                    .method("PATCH", HttpRequest.BodyPublishers.ofString("{\"duration\":" + (70 + random.nextInt(110)) + "}"))
+                    .build());
+            case DELETE -> {
+                Long id = createdMovies.poll();
+                yield id == null ? create(random) : new Call(operation,
+                        HttpRequest.newBuilder(URI.create(baseUrl + "/api/movies/" + id + "?force=true")).DELETE().build());
+            }
+        };
+    }
+
+    // Sends a request and reports whether it succeeded; IDs of created movies are kept for later deletes
+    boolean execute(Call call) {
+        try {
+            if (call.operation() == Operation.CREATE) {
+                HttpResponse<byte[]> response = http.send(call.request(), HttpResponse.BodyHandlers.ofByteArray());
+                if (response.statusCode() != 201) {
+                    return false;
+                }
+                createdMovies.add(objectMapper.readTree(response.body()).get("id").asLong());
+                return true;
+            }
+            HttpResponse<Void> response = http.send(call.request(), HttpResponse.BodyHandlers.discarding());
+            return response.statusCode() < 400;
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static int randomYear(ThreadLocalRandom random) {
+        return FIRST_YEAR + random.nextInt(LAST_YEAR - FIRST_YEAR + 1);
+    }
+
+    private Call create(ThreadLocalRandom random) {
+        String body = "{\"title\":\"Load Test " + runId + " " + sequence.incrementAndGet() + "\""
+                + ",\"releaseYear\":" + (1950 + random.nextInt(75))
+                + ",\"duration\":" + (70 + random.nextInt(110))
+                + ",\"genres\":[{\"id\":" + (1 + random.nextInt(genres)) + "}]"
+                + ",\"actors\":[{\"id\":" + (1 + random.nextInt(actors)) + "},{\"id\":" + (1 + random.nextInt(actors)) + "}]}";
+        return new Call(Operation.CREATE, json("/api/movies").POST(HttpRequest.BodyPublishers.ofString(body)).build());
+    }
+
+    private Call get(Operation operation, String path) {
+        return new Call(operation, HttpRequest.newBuilder(URI.create(baseUrl + path)).GET().build());
+    }
+
+    private HttpRequest.Builder json(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path)).header("Content-Type", "application/json");
+    }
+}
@@ -0,0 +1,60 @@
+package com.pablo9298.kmdb.loadtest;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Stored load test results that later runs are compared against.
+// A run regresses when an operation's throughput drops, or its p99 latency rises, by more than the threshold.
+final class Baseline {
+
+    private static final ObjectMapper JSON = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+    private Baseline() {
+    }
+
+    static void save(Path file, List<EndpointResult> results) throws IOException {
+        if (file.getParent() != null) {
+            Files.createDirectories(file.getParent());
+        }
+        JSON.writeValue(file.toFile(), results);
+    }
+
+    static List<EndpointResult> load(Path file) throws IOException {
+        return JSON.readValue(file.toFile(), new TypeReference<>() {
+        });
+    }
+
+    // Describes every regression of the results against the baseline; empty when there is none
+    static List<String> regressions(List<EndpointResult> baseline, List<EndpointResult> results, double thresholdPercent) {
+        Map<String, EndpointResult> expected = baseline.stream()
+                .collect(Collectors.toMap(EndpointResult::endpoint, Function.identity()));
+        double tolerance = thresholdPercent / 100;
+
+        List<String> regressions = new ArrayList<>();
+        for (EndpointResult actual : results) {
+            EndpointResult before = expected.get(actual.endpoint());
+            if (before == null) {
+                continue;
+            }
+            if (actual.throughput() < before.throughput() * (1 - tolerance)) {
+                regressions.add(String.format("%s: throughput %.1f req/s, baseline %.1f req/s",
+                        actual.endpoint(), actual.throughput(), before.throughput()));
+            }
+            if (actual.p99() > before.p99() * (1 + tolerance)) {
+                regressions.add(String.format("%s: p99 %.2f ms, baseline %.2f ms",
+                        actual.endpoint(), actual.p99(), before.p99()));
+            }
+        }
+        return regressions;
+    }
+}
@@ -0,0 +1,6 @@
+package com.pablo9298.kmdb.loadtest;
+
+// Measurements of one operation over a load test run; latencies are in milliseconds
+record EndpointResult(String endpoint, long requests, long errors, double throughput,
+                      double p50, double p90, double p99, double p999, double max) {
+}
@@ -0,0 +1,114 @@
+package com.pablo9298.kmdb.loadtest;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+// Sends a traffic mix to the API for a fixed time and records latency per operation in HDR histograms.
+// Closed loop: a fixed number of clients each send their next request as soon as the previous one completes.
+// Open loop: requests start on a fixed schedule whatever the response times, and latency is measured from the
+// scheduled start, so queueing behind a slow server is counted rather than hidden (no coordinated omission).
+final class LoadDriver {
+
+    enum Mode {CLOSED, OPEN}
+
+    private final ApiClient client;
+    private final TrafficMix mix;
+    private final Mode mode;
+    private final int clients;
+    private final int rate;
+    private final Map<Operation, Histogram> latencies = new EnumMap<>(Operation.class);
+    private final Map<Operation, LongAdder> errors = new EnumMap<>(Operation.class);
+
+    LoadDriver(ApiClient client, TrafficMix mix, Mode mode, int clients, int rate) {
+        this.client = client;
+        this.mix = mix;
+        this.mode = mode;
+        this.clients = clients;
+        this.rate = rate;
+        for (Operation operation : Operation.values()) {
+            latencies.put(operation, new ConcurrentHistogram(3)); // Microseconds, 3 significant digits
+            errors.put(operation, new LongAdder());
+        }
+    }
+
+    // Runs the mix for the given time and returns the results of every operation that was sent
+    List<EndpointResult> run(Duration duration) throws InterruptedException {
+        latencies.values().forEach(Histogram::reset);
+        errors.values().forEach(LongAdder::reset);
+
+        long started = System.nanoTime();
+        long deadline = started + duration.toNanos();
+        if (mode == Mode.CLOSED) {
+            runClosed(deadline);
+        } else {
+            runOpen(started, deadline);
+        }
+        double seconds = (Math.max(System.nanoTime(), deadline) - started) / 1e9;
+
+        List<EndpointResult> results = new ArrayList<>();
+        for (Operation operation : Operation.values()) {
+            Histogram histogram = latencies.get(operation);
+            if (histogram.getTotalCount() > 0) {
+                results.add(new EndpointResult(operation.key(), histogram.getTotalCount(), errors.get(operation).sum(),
+                        histogram.getTotalCount() / seconds,
+                        millis(histogram.getValueAtPercentile(50)), millis(histogram.getValueAtPercentile(90)),
+                        millis(histogram.getValueAtPercentile(99)), millis(histogram.getValueAtPercentile(99.9)),
+                        millis(histogram.getMaxValue())));
+            }
+        }
+        return results;
+    }
+
+    private void runClosed(long deadline) throws InterruptedException {
+        List<Thread> threads = new ArrayList<>(clients);
+        for (int i = 0; i < clients; i++) {
+            threads.add(Thread.ofVirtual().start(() -> {
+                while (System.nanoTime() < deadline) {
+                    send(System.nanoTime());
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+
+    private void runOpen(long started, long deadline) {
+        long interval = 1_000_000_000L / rate;
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (long scheduled = started; scheduled < deadline; scheduled += interval) {
+                long wait = scheduled - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                long start = scheduled;
+                executor.execute(() -> send(start));
+            }
+        } // Waits for the requests still in flight
+    }
+
+    // Sends one request and records its latency from the given start time
+    private void send(long start) {
+        ApiClient.Call call = client.prepare(mix.pick(ThreadLocalRandom.current()), ThreadLocalRandom.current());
+        boolean succeeded = client.execute(call);
+        latencies.get(call.operation()).recordValue((System.nanoTime() - start) / 1_000);
+        if (!succeeded) {
+            errors.get(call.operation()).increment();
+        }
+    }
+
+    private static double millis(long micros) {
+        return micros / 1_000.0;
+    }
+}
@@ -0,0 +1,171 @@
+package com.pablo9298.kmdb.loadtest;
+
+import com.pablo9298.kmdb.KmdbApplication;
+import com.pablo9298.kmdb.service.CatalogGenerator;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// End-to-end load test of the REST API.
+// Boots the application on an ephemeral port against a generated catalog, sends a weighted mix of endpoint
+// calls in closed-loop or open-loop mode, and prints throughput and latency percentiles per endpoint.
+// With --baseline it fails (exit status 1) when an endpoint regressed beyond the threshold.
+// Run from the benchmarks module with exec:java (see README); options are given as --name=value:
+//   --movies=10000          catalog size, generated with --seed=42 on first use
+//   --database=target/...   SQLite file, one per catalog size by default
+//   --mix=search=25,...     operation weights (see TrafficMix.DEFAULT)
+//   --mode=closed|open      closed: --clients concurrent clients; open: --rate requests per second
+//   --duration=30           measured seconds, after --warmup=10 seconds that are not reported
+//   --profiles=prod         Spring profiles of the application; --app.<property>=<value> sets any other property
+//   --save-baseline=<file>  stores the results; --baseline=<file> with --threshold=20 (percent) compares against them
+//   --compare-threads=true  runs the mix on Tomcat's platform threads and then on virtual threads, and prints both
+public class LoadTest {
+
+    private static final Map<String, String> DEFAULTS = Map.ofEntries(
+            Map.entry("movies", "10000"),
+            Map.entry("seed", "42"),
+            Map.entry("mix", TrafficMix.DEFAULT),
+            Map.entry("mode", "closed"),
+            Map.entry("clients", "64"),
+            Map.entry("rate", "500"),
+            Map.entry("duration", "30"),
+            Map.entry("warmup", "10"),
+            Map.entry("profiles", ""),
+            Map.entry("threshold", "20"),
+            Map.entry("compare-threads", "false"));
+
+    // Options without a default
+    private static final Set<String> OPTIONAL = Set.of("database", "baseline", "save-baseline");
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>(DEFAULTS);
+        List<String> appProperties = new ArrayList<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Options must look like --name=value, got '" + arg + "'");
+            }
+            String name = arg.substring(2, arg.indexOf('='));
+            String value = arg.substring(arg.indexOf('=') + 1);
+            if (name.startsWith("app.")) {
+                appProperties.add(name.substring(4) + "=" + value);
+            } else if (DEFAULTS.containsKey(name) || OPTIONAL.contains(name)) {
+                options.put(name, value);
+            } else {
+                throw new IllegalArgumentException("Unknown option --" + name);
+            }
+        }
+
+        if (Boolean.parseBoolean(options.get("compare-threads"))) {
+            compareThreads(options, appProperties);
+            return;
+        }
+
+        List<EndpointResult> results = run(options, appProperties);
+        print(results);
+
+        if (options.containsKey("save-baseline")) {
+            Baseline.save(Path.of(options.get("save-baseline")), results);
+            System.out.println("Baseline saved to " + options.get("save-baseline"));
+        }
+        if (options.containsKey("baseline")) {
+            List<String> regressions = Baseline.regressions(Baseline.load(Path.of(options.get("baseline"))), results,
+                    Double.parseDouble(options.get("threshold")));
+            if (!regressions.isEmpty()) {
+                System.out.println("Regressions beyond " + options.get("threshold") + "% of the baseline:");
+                regressions.forEach(regression -> System.out.println("  " + regression));
+                System.exit(1);
+            }
+            System.out.println("No regressions beyond " + options.get("threshold") + "% of the baseline");
+        }
+    }
+
+    // Runs the same mix against the same catalog once per thread model, booting the application for each
+    private static void compareThreads(Map<String, String> options, List<String> appProperties) throws Exception {
+        if (options.containsKey("baseline") || options.containsKey("save-baseline")) {
+            throw new IllegalArgumentException("--compare-threads cannot be combined with --baseline or --save-baseline");
+        }
+        Map<String, List<EndpointResult>> results = new LinkedHashMap<>();
+        for (boolean virtual : new boolean[]{false, true}) {
+            List<String> properties = new ArrayList<>(appProperties);
+            properties.add("spring.threads.virtual.enabled=" + virtual);
+            results.put(virtual ? "virtual threads" : "platform threads", run(options, properties));
+        }
+        results.forEach((model, endpoints) -> {
+            System.out.printf("%n%s:", model);
+            print(endpoints);
+        });
+    }
+
+    // Boots the application, generating the catalog if needed, and returns the measured results per endpoint
+    private static List<EndpointResult> run(Map<String, String> options, List<String> appProperties) throws Exception {
+        int movies = Integer.parseInt(options.get("movies"));
+        TrafficMix mix = TrafficMix.parse(options.get("mix"));
+        LoadDriver.Mode mode = LoadDriver.Mode.valueOf(options.get("mode").toUpperCase());
+        Path database = Path.of(options.getOrDefault("database", "target/loadtest-" + movies + ".db"));
+        CatalogGenerator.Settings settings = new CatalogGenerator.Settings(movies, 0, Long.parseLong(options.get("seed")));
+
+        List<EndpointResult> results;
+        try (ConfigurableApplicationContext app = start(database, options.get("profiles"), appProperties)) {
+            JdbcTemplate jdbcTemplate = app.getBean(JdbcTemplate.class);
+            if (jdbcTemplate.queryForObject("SELECT count(*) FROM movie", Long.class) != movies) {
+                System.out.printf("Generating a catalog of %d movies into %s%n", movies, database);
+                app.getBean(CatalogGenerator.class).generate(settings, true);
+            }
+            int genres = jdbcTemplate.queryForObject("SELECT count(*) FROM genre", Integer.class);
+
+            String baseUrl = "http://localhost:" + app.getEnvironment().getProperty("local.server.port");
+            ApiClient client = new ApiClient(baseUrl, movies, settings.actorCount(), genres, CatalogGenerator.titleKeywords());
+            LoadDriver driver = new LoadDriver(client, mix, mode,
+                    Integer.parseInt(options.get("clients")), Integer.parseInt(options.get("rate")));
+
+            System.out.printf("Warming up for %s s, then measuring for %s s (%s loop, mix %s)%n",
+                    options.get("warmup"), options.get("duration"), options.get("mode"), mix);
+            driver.run(Duration.ofSeconds(Long.parseLong(options.get("warmup"))));
+            results = driver.run(Duration.ofSeconds(Long.parseLong(options.get("duration"))));
+
+            // Leaves the generated catalog as it was, apart from patched durations
+            jdbcTemplate.update("DELETE FROM movie_actor WHERE movie_id > ?", movies);
+            jdbcTemplate.update("DELETE FROM movie_genre WHERE movie_id > ?", movies);
+            jdbcTemplate.update("DELETE FROM movie WHERE id > ?", movies);
+        }
+        return results;
+    }
+
+    // Boots the application on an ephemeral port
+    private static ConfigurableApplicationContext start(Path database, String profiles, List<String> appProperties) {
+        List<String> properties = new ArrayList<>(List.of(
+                "server.port=0",
+                "spring.datasource.url=jdbc:sqlite:" + database,
+                "spring.main.banner-mode=off",
+                "logging.level.root=WARN"));
+        properties.addAll(appProperties); // Added last, so they override the defaults above
+        return new SpringApplicationBuilder(KmdbApplication.class)
+                .profiles(profiles.isBlank() ? new String[0] : profiles.split(","))
+                .properties(properties.toArray(String[]::new))
+                .run();
+    }
+
+    private static void print(List<EndpointResult> results) {
+        System.out.printf("%n%-10s %9s %7s %9s %9s %9s %9s %9s %9s%n",
+                "endpoint", "requests", "errors", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        long requests = 0;
+        double throughput = 0;
+        for (EndpointResult result : results) {
+            System.out.printf("%-10s %9d %7d %9.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n", result.endpoint(),
+                    result.requests(), result.errors(), result.throughput(), result.p50(), result.p90(),
+                    result.p99(), result.p999(), result.max());
+            requests += result.requests();
+            throughput += result.throughput();
+        }
+        System.out.printf("%-10s %9d %7s %9.1f%n", "total", requests, "", throughput);
+    }
+}
@@ -0,0 +1,35 @@
+package com.pablo9298.kmdb.loadtest;
+
+import java.util.Arrays;
+
+// Endpoints the load test can call, with the names used in traffic mixes, reports and baselines
+enum Operation {
+
+    SEARCH("search"),       // GET /api/movies/search?title=...
+    LIST("list"),           // GET /api/movies?page=...&size=20
+    BY_GENRE("by-genre"),   // GET /api/movies?genre=...
+    BY_ACTOR("by-actor"),   // GET /api/movies?actor=...
+    BY_YEAR("by-year"),     // GET /api/movies?year=...
+    BY_YEAR_RANGE("by-year-range"), // GET /api/movies?yearFrom=...&yearTo=..., a decade
+    CREATE("create"),       // POST /api/movies
+    PATCH("patch"),         // PATCH /api/movies/{id}
+    DELETE("delete");       // DELETE /api/movies/{id}?force=true, for movies created by the load test
+
+    private final String key;
+
+    Operation(String key) {
+        this.key = key;
+    }
+
+    String key() {
+        return key;
+    }
+
+    static Operation of(String key) {
+        return Arrays.stream(values())
+                .filter(operation -> operation.key.equals(key))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown operation '" + key + "', expected one of "
+                        + Arrays.stream(values()).map(Operation::key).toList()));
+    }
+}
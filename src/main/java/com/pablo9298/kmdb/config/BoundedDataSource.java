@@ -0,0 +1,143 @@
+package com.pablo9298.kmdb.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Fair admission control in front of a data source: at most `permits` callers hold a connection,
+// at most `maxWaiting` more wait for one, and they are admitted in arrival order. A caller that
+// finds the queue full, or cannot get in within maxWait, is rejected with a transient connection
+// error. Excess load then fails fast instead of piling onto SQLite's lock.
+// Once bound to a registry it publishes its admission wait times and queue length.
+public class BoundedDataSource extends DelegatingDataSource implements MeterBinder {
+
+    // SQL state for "connection rejected"; class 08 makes Hibernate and Spring treat it as a resource failure
+    private static final String REJECTED = "08004";
+
+    private final String name;
+    private final Semaphore permits;
+    private final int maxWaiting;
+    private final long maxWaitNanos;
+    private volatile Timer waitTimer;
+
+    public BoundedDataSource(DataSource target, String name, int permits, int maxWaiting, Duration maxWait) {
+        super(target);
+        this.name = name;
+        this.permits = new Semaphore(permits, true);
+        this.maxWaiting = maxWaiting;
+        this.maxWaitNanos = maxWait.toNanos();
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        acquire();
+        try {
+            return releasingOnClose(super.getConnection());
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        acquire();
+        try {
+            return releasingOnClose(super.getConnection(username, password));
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("kmdb.datasource.admission.waiting", permits, Semaphore::getQueueLength)
+                .description("Callers waiting to be admitted to the connection pool")
+                .tag("queue", name)
+                .register(registry);
+        Gauge.builder("kmdb.datasource.admission.available", permits, Semaphore::availablePermits)
+                .description("Callers that can be admitted without waiting")
+                .tag("queue", name)
+                .register(registry);
+        waitTimer = Timer.builder("kmdb.datasource.admission.wait")
+                .description("Time spent waiting to be admitted to the connection pool")
+                .tag("queue", name)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    // Number of callers that can still be admitted right now
+    public int availablePermits() {
+        return permits.availablePermits();
+    }
+
+    // Number of callers currently waiting for a permit
+    public int waitingCallers() {
+        return permits.getQueueLength();
+    }
+
+    // Joins the queue for a permit unless it is full, and waits at most maxWait
+    private void acquire() throws SQLException {
+        long started = System.nanoTime();
+        try {
+            if (permits.tryAcquire(0, TimeUnit.NANOSECONDS)) { // Unlike tryAcquire(), honours fairness
+                recordWait(started);
+                return;
+            }
+            if (permits.getQueueLength() >= maxWaiting) {
+                throw new SQLTransientConnectionException(name + " is full, try again later", REJECTED);
+            }
+            boolean admitted = permits.tryAcquire(maxWaitNanos, TimeUnit.NANOSECONDS);
+            recordWait(started);
+            if (!admitted) {
+                throw new SQLTransientConnectionException(name + " is saturated, try again later", REJECTED);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Interrupted while waiting for " + name, REJECTED, e);
+        }
+    }
+
+    private void recordWait(long started) {
+        Timer timer = waitTimer;
+        if (timer != null) {
+            timer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    // Wraps the connection so that closing it, once, hands the permit back
+    private Connection releasingOnClose(Connection connection) {
+        AtomicBoolean released = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("close") && released.compareAndSet(false, true)) {
+                        try {
+                            return method.invoke(connection, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getTargetException();
+                        } finally {
+                            permits.release();
+                        }
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getTargetException();
+                    }
+                });
+    }
+}
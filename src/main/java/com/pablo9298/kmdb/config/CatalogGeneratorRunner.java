@@ -0,0 +1,42 @@
+package com.pablo9298.kmdb.config;
+
+import com.pablo9298.kmdb.service.CatalogGenerator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+
+// Command-line catalog generator, enabled with --spring.profiles.active=generate (see application-generate.properties).
+// Generates the catalog described by the kmdb.generator.* settings into the configured database, then exits.
+@Component
+@Profile("generate")
+public class CatalogGeneratorRunner implements ApplicationRunner {
+
+    @Value("${kmdb.generator.movies:10000}")
+    private int movies;
+
+    @Value("${kmdb.generator.actors:0}")
+    private int actors;
+
+    @Value("${kmdb.generator.seed:42}")
+    private long seed;
+
+    @Value("${kmdb.generator.replace:false}")
+    private boolean replace;
+
+    @Autowired
+    private CatalogGenerator catalogGenerator;
+
+    @Autowired
+    private ConfigurableApplicationContext context;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        catalogGenerator.generate(new CatalogGenerator.Settings(movies, actors, seed), replace);
+        System.exit(SpringApplication.exit(context));
+    }
+}
@@ -0,0 +1,83 @@
+package com.pablo9298.kmdb.config;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Lets the write queue run many transactions inside one physical transaction.
+// While a thread works inside a group, every connection it takes from this data source is the group's
+// connection behind a fresh savepoint: committing it keeps the work for the group commit, rolling it back
+// undoes only that work, and closing it releases the savepoint. Outside a group connections pass straight through.
+public class GroupCommitDataSource extends DelegatingDataSource {
+
+    private final ThreadLocal<Connection> group = new ThreadLocal<>();
+
+    public GroupCommitDataSource(DataSource target) {
+        super(target);
+    }
+
+    // Runs the work with the given connection, already inside a transaction, as the group connection of the current thread
+    public void runInGroup(Connection connection, Runnable work) {
+        group.set(connection);
+        try {
+            work.run();
+        } finally {
+            group.remove();
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        Connection connection = group.get();
+        return connection != null ? savepointConnection(connection) : super.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        Connection connection = group.get();
+        return connection != null ? savepointConnection(connection) : super.getConnection(username, password);
+    }
+
+    // Wraps the group connection so that the transaction of one caller maps onto a savepoint. Auto-commit
+    // reads as off so that Hibernate and Spring leave it alone, and read-only flags are ignored as the
+    // group is always read-write.
+    private Connection savepointConnection(Connection connection) throws SQLException {
+        Savepoint savepoint = connection.setSavepoint();
+        AtomicBoolean closed = new AtomicBoolean();
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "getAutoCommit":
+                            return false;
+                        case "setAutoCommit", "setReadOnly", "commit":
+                            return null;
+                        case "rollback":
+                            if (args == null) {
+                                connection.rollback(savepoint);
+                                return null;
+                            }
+                            break;
+                        case "close":
+                            if (closed.compareAndSet(false, true)) {
+                                connection.releaseSavepoint(savepoint);
+                            }
+                            return null;
+                        case "isClosed":
+                            return closed.get();
+                        default:
+                            break;
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getTargetException();
+                    }
+                });
+    }
+}
@@ -0,0 +1,55 @@
+package com.pablo9298.kmdb.config;
+
+import jakarta.persistence.CacheStoreMode;
+import jakarta.persistence.EntityManager;
+import org.springframework.orm.jpa.JpaTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+// JPA transaction manager of the write queue (see WriteQueueService).
+// A transaction that commits inside a group has only released its savepoint, so nothing may act on its changes yet:
+// - its after-commit callbacks, transactional event listeners included, are handed to the caller instead of run
+// - its entity manager does not store entities in the second-level cache; the queue evicts them after the group commits
+// Outside a group it behaves as a plain JpaTransactionManager.
+public class GroupCommitTransactionManager extends JpaTransactionManager {
+
+    private static final String CACHE_STORE_MODE = "jakarta.persistence.cache.storeMode";
+
+    private final ThreadLocal<List<TransactionSynchronization>> held = new ThreadLocal<>();
+
+    // Runs the work, adding the synchronizations of every transaction it commits to the given list
+    public <T> T holdingCallbacks(List<TransactionSynchronization> callbacks, Supplier<T> work) {
+        held.set(callbacks);
+        try {
+            return work.get();
+        } finally {
+            held.remove();
+        }
+    }
+
+    @Override
+    protected EntityManager createEntityManagerForTransaction() {
+        EntityManager entityManager = super.createEntityManagerForTransaction();
+        if (held.get() != null) {
+            entityManager.setProperty(CACHE_STORE_MODE, CacheStoreMode.BYPASS);
+        }
+        return entityManager;
+    }
+
+    // Once the transaction has committed, its synchronizations are swapped for an empty set so that the
+    // after-commit and after-completion phases that follow find nothing to run
+    @Override
+    protected void doCommit(DefaultTransactionStatus status) {
+        super.doCommit(status);
+        List<TransactionSynchronization> callbacks = held.get();
+        if (callbacks != null && status.isNewSynchronization()) {
+            callbacks.addAll(TransactionSynchronizationManager.getSynchronizations());
+            TransactionSynchronizationManager.clearSynchronization();
+            TransactionSynchronizationManager.initSynchronization();
+        }
+    }
+}
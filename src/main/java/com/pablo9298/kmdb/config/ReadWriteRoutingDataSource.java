@@ -0,0 +1,60 @@
+package com.pablo9298.kmdb.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+// Sends read-only transactions to the read-only pool and everything else to the writer.
+// Work outside a transaction goes to the writer too, as it may write in auto-commit mode
+// (cleanup statements, change log inserts) and a reader connection would refuse that.
+// Until reads are enabled all connections go to the writer, so that startup work sees the schema it creates.
+// Wrapped in a LazyConnectionDataSourceProxy, the choice is made at the first statement of each transaction,
+// after the transaction manager has published whether the transaction is read-only. This relies on open-in-view
+// being off: a request-scoped persistence context would keep the connection of the request's first transaction
+// for every later one, and hold it while the response is written.
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource implements MeterBinder {
+
+    private static final String WRITER = "writer";
+    private static final String READER = "reader";
+
+    private final DataSource writer;
+    private final DataSource reader;
+    private volatile boolean readsEnabled;
+
+    public ReadWriteRoutingDataSource(DataSource writer, DataSource reader) {
+        this.writer = writer;
+        this.reader = reader;
+        setTargetDataSources(Map.of(WRITER, writer, READER, reader));
+        setDefaultTargetDataSource(writer);
+        afterPropertiesSet();
+    }
+
+    // Starts serving reads from the read-only pool once startup work is done
+    @EventListener(ApplicationReadyEvent.class)
+    public void enableReads() {
+        readsEnabled = true;
+    }
+
+    // Publishes the metrics of targets that have their own, such as admission queues
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (DataSource target : new DataSource[]{writer, reader}) {
+            if (target instanceof MeterBinder binder) {
+                binder.bindTo(registry);
+            }
+        }
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        boolean readOnlyTransaction = TransactionSynchronizationManager.isActualTransactionActive()
+                && TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+        return readsEnabled && readOnlyTransaction ? READER : WRITER;
+    }
+}
@@ -0,0 +1,130 @@
+package com.pablo9298.kmdb.config;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.sqlite.SQLiteConfig;
+import org.sqlite.SQLiteDataSource;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+// Production storage for SQLite, enabled with the "prod" profile.
+// SQLite allows one writer at a time, so all read-write transactions share a single pooled
+// connection. Callers queue for it in a bounded, fair queue instead of failing with SQLITE_BUSY.
+// WAL journaling lets readers run next to that writer, so reads use a separate pool of
+// read-only connections sized to the machine, behind a fair admission limiter of the same size.
+// Thousands of concurrent requests, for example on virtual threads, then wait their turn in
+// order and only as many reach SQLite as there are connections.
+@Configuration
+@Profile("prod")
+public class SqliteDataSourceConfig {
+
+    @Value("${spring.datasource.url}")
+    private String url;
+
+    // Page cache per connection, in KiB
+    @Value("${kmdb.sqlite.cache-size-kib:65536}")
+    private int cacheSizeKib;
+
+    // Bytes of the database file to memory-map per connection
+    @Value("${kmdb.sqlite.mmap-size:268435456}")
+    private long mmapSize;
+
+    // How long a connection retries when the database is locked by another process
+    @Value("${kmdb.sqlite.busy-timeout-ms:5000}")
+    private int busyTimeoutMs;
+
+    // Read-only connections; 0 means one per available processor
+    @Value("${kmdb.datasource.reader-pool-size:0}")
+    private int readerPoolSize;
+
+    // Callers allowed to wait for the writer connection before new writes are rejected
+    @Value("${kmdb.datasource.writer-queue-capacity:64}")
+    private int writerQueueCapacity;
+
+    // How long a write may wait for the writer connection
+    @Value("${kmdb.datasource.writer-wait-ms:5000}")
+    private long writerWaitMs;
+
+    // Callers allowed to wait for a read-only connection before new reads are rejected
+    @Value("${kmdb.datasource.reader-queue-capacity:10000}")
+    private int readerQueueCapacity;
+
+    // How long a read may wait for a read-only connection
+    @Value("${kmdb.datasource.reader-wait-ms:10000}")
+    private long readerWaitMs;
+
+    // The single connection used by read-write transactions
+    @Bean(destroyMethod = "close")
+    public HikariDataSource writerDataSource() {
+        SQLiteConfig sqlite = tunedConfig();
+        sqlite.setJournalMode(SQLiteConfig.JournalMode.WAL);
+        sqlite.setSynchronous(SQLiteConfig.SynchronousMode.NORMAL); // Durable across crashes of the process in WAL mode
+
+        HikariConfig pool = poolConfig("kmdb-writer", sqlite, 1);
+        return new HikariDataSource(pool);
+    }
+
+    // Read-only connections for everything outside read-write transactions.
+    // Takes the writer so the database file exists and is in WAL mode before readers open it.
+    @Bean(destroyMethod = "close")
+    public HikariDataSource readerDataSource(@Qualifier("writerDataSource") HikariDataSource writerDataSource) {
+        SQLiteConfig sqlite = tunedConfig();
+        sqlite.setReadOnly(true); // Opened read-only; Spring's attempts to flip the flag per transaction are ignored
+
+        HikariConfig pool = poolConfig("kmdb-reader", sqlite, readerPoolSize());
+        pool.setReadOnly(true);
+        return new HikariDataSource(pool);
+    }
+
+    // Chooses between the writer and the reader pool, each behind its own admission queue
+    @Bean
+    public ReadWriteRoutingDataSource routingDataSource(@Qualifier("writerDataSource") HikariDataSource writerDataSource,
+                                                        @Qualifier("readerDataSource") HikariDataSource readerDataSource) {
+        BoundedDataSource writer = new BoundedDataSource(writerDataSource, "Writer connection queue",
+                1, writerQueueCapacity, Duration.ofMillis(writerWaitMs));
+        BoundedDataSource reader = new BoundedDataSource(readerDataSource, "Reader connection queue",
+                readerPoolSize(), readerQueueCapacity, Duration.ofMillis(readerWaitMs));
+        return new ReadWriteRoutingDataSource(writer, reader);
+    }
+
+    // The data source used by JPA and JdbcTemplate
+    @Bean
+    @Primary
+    public DataSource dataSource(ReadWriteRoutingDataSource routingDataSource) {
+        return new LazyConnectionDataSourceProxy(routingDataSource);
+    }
+
+    private int readerPoolSize() {
+        return readerPoolSize > 0 ? readerPoolSize : Runtime.getRuntime().availableProcessors();
+    }
+
+    // Pragmas shared by both pools
+    private SQLiteConfig tunedConfig() {
+        SQLiteConfig sqlite = new SQLiteConfig();
+        sqlite.setCacheSize(-cacheSizeKib); // Negative values are sizes in KiB rather than pages
+        sqlite.setPragma(SQLiteConfig.Pragma.MMAP_SIZE, Long.toString(mmapSize));
+        sqlite.setBusyTimeout(busyTimeoutMs);
+        sqlite.setTempStore(SQLiteConfig.TempStore.MEMORY);
+        return sqlite;
+    }
+
+    private HikariConfig poolConfig(String name, SQLiteConfig sqlite, int size) {
+        SQLiteDataSource sqliteDataSource = new SQLiteDataSource(sqlite);
+        sqliteDataSource.setUrl(url);
+
+        HikariConfig pool = new HikariConfig();
+        pool.setPoolName(name);
+        pool.setDataSource(sqliteDataSource);
+        pool.setMaximumPoolSize(size);
+        pool.setMinimumIdle(size);
+        return pool;
+    }
+}
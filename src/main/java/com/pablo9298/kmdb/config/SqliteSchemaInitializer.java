@@ -0,0 +1,155 @@
+package com.pablo9298.kmdb.config;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+
+// Creates the SQLite-specific schema objects that JPA cannot describe.
+// Runs after Hibernate has created or updated the tables, and every statement is idempotent.
+@Component
+@DependsOn("entityManagerFactory")
+public class SqliteSchemaInitializer {
+
+    private static final Logger log = LoggerFactory.getLogger(SqliteSchemaInitializer.class);
+
+    // FTS5 indexes over movie titles and actor names. They are external-content tables that
+    // store only the index, and triggers keep them in sync with every insert, update and delete.
+    private static final List<String> FULL_TEXT_SCHEMA = List.of(
+            """
+            CREATE VIRTUAL TABLE IF NOT EXISTS movie_fts USING fts5(
+                title, content='movie', content_rowid='id', tokenize='unicode61 remove_diacritics 2')""",
+            """
+            CREATE TRIGGER IF NOT EXISTS movie_fts_insert AFTER INSERT ON movie BEGIN
+                INSERT INTO movie_fts(rowid, title) VALUES (new.id, new.title);
+            END""",
+            """
+            CREATE TRIGGER IF NOT EXISTS movie_fts_delete AFTER DELETE ON movie BEGIN
+                INSERT INTO movie_fts(movie_fts, rowid, title) VALUES ('delete', old.id, old.title);
+            END""",
+            """
+            CREATE TRIGGER IF NOT EXISTS movie_fts_update AFTER UPDATE OF title ON movie BEGIN
+                INSERT INTO movie_fts(movie_fts, rowid, title) VALUES ('delete', old.id, old.title);
+                INSERT INTO movie_fts(rowid, title) VALUES (new.id, new.title);
+            END""",
+            """
+            CREATE VIRTUAL TABLE IF NOT EXISTS actor_fts USING fts5(
+                name, content='actor', content_rowid='id', tokenize='unicode61 remove_diacritics 2')""",
+            """
+            CREATE TRIGGER IF NOT EXISTS actor_fts_insert AFTER INSERT ON actor BEGIN
+                INSERT INTO actor_fts(rowid, name) VALUES (new.id, new.name);
+            END""",
+            """
+            CREATE TRIGGER IF NOT EXISTS actor_fts_delete AFTER DELETE ON actor BEGIN
+                INSERT INTO actor_fts(actor_fts, rowid, name) VALUES ('delete', old.id, old.name);
+            END""",
+            """
+            CREATE TRIGGER IF NOT EXISTS actor_fts_update AFTER UPDATE OF name ON actor BEGIN
+                INSERT INTO actor_fts(actor_fts, rowid, name) VALUES ('delete', old.id, old.name);
+                INSERT INTO actor_fts(rowid, name) VALUES (new.id, new.name);
+            END"""
+    );
+
+    // Case-insensitive unique keys of the catalog. NOCASE folds ASCII letters only, as did the lower()
+    // comparisons that used to check these keys before each insert. references are the join table columns
+    // that point at the keyed table.
+    private static final List<UniqueKey> UNIQUE_KEYS = List.of(
+            new UniqueKey("ux_movie_title", "movie", "title COLLATE NOCASE",
+                    List.of(new JoinColumn("movie_genre", "movie_id"), new JoinColumn("movie_actor", "movie_id"))),
+            new UniqueKey("ux_genre_name", "genre", "name COLLATE NOCASE", List.of(new JoinColumn("movie_genre", "genre_id"))),
+            new UniqueKey("ux_actor_name_birth_date", "actor", "name COLLATE NOCASE, birth_date",
+                    List.of(new JoinColumn("movie_actor", "actor_id")))
+    );
+
+    private record UniqueKey(String index, String table, String columns, List<JoinColumn> references) {
+    }
+
+    private record JoinColumn(String table, String column) {
+    }
+
+    // Ordered log of catalog changes (see ChangeLogService). AUTOINCREMENT keeps a committed sequence number
+    // from ever being handed out again, even after the entries holding it were pruned.
+    private static final String CHANGE_LOG_SCHEMA = """
+            CREATE TABLE IF NOT EXISTS change_log (
+                seq INTEGER PRIMARY KEY AUTOINCREMENT,
+                entity TEXT NOT NULL,
+                entity_id INTEGER NOT NULL,
+                type TEXT NOT NULL,
+                changed_at INTEGER NOT NULL)""";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @PostConstruct
+    public void initialize() {
+        FULL_TEXT_SCHEMA.forEach(jdbcTemplate::execute);
+        rebuildIfOutOfSync("movie_fts", "movie");
+        rebuildIfOutOfSync("actor_fts", "actor");
+        UNIQUE_KEYS.forEach(this::createUniqueIndex);
+        jdbcTemplate.execute(CHANGE_LOG_SCHEMA);
+    }
+
+    // Creates a unique index, first merging any rows that already share its key, as databases written before the key was
+    // enforced can hold them. Startup fails if the index still cannot be built, since creates and upserts rely on it.
+    private void createUniqueIndex(UniqueKey key) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> mergeDuplicates(key));
+        try {
+            jdbcTemplate.execute("CREATE UNIQUE INDEX IF NOT EXISTS " + key.index() + " ON " + key.table() + " (" + key.columns() + ")");
+        } catch (DataAccessException e) {
+            throw new IllegalStateException("Cannot create unique index " + key.index() + " on " + key.table()
+                    + " (" + key.columns() + "): " + e.getMessage(), e);
+        }
+    }
+
+    // Keeps the lowest ID of each group of rows sharing the key and deletes the others, after moving their movie links
+    // over to it. Movies whose genres or cast change this way get a new version, so their ETags move on.
+    private void mergeDuplicates(UniqueKey key) {
+        List<Map<String, Object>> groups = jdbcTemplate.queryForList("SELECT min(id) AS keeper, group_concat(id) AS ids FROM "
+                + key.table() + " GROUP BY " + key.columns() + " HAVING count(*) > 1");
+        for (Map<String, Object> group : groups) {
+            long keeper = ((Number) group.get("keeper")).longValue();
+            for (String id : group.get("ids").toString().split(",")) {
+                long duplicate = Long.parseLong(id);
+                if (duplicate == keeper) {
+                    continue;
+                }
+                for (JoinColumn reference : key.references()) {
+                    jdbcTemplate.update("UPDATE movie SET version = version + 1 WHERE id IN (SELECT movie_id FROM "
+                            + reference.table() + " WHERE " + reference.column() + " = ?)", duplicate);
+                    // Links the keeper already has stay behind and are deleted with the duplicate
+                    jdbcTemplate.update("UPDATE OR IGNORE " + reference.table() + " SET " + reference.column() + " = ? WHERE "
+                            + reference.column() + " = ?", keeper, duplicate);
+                    jdbcTemplate.update("DELETE FROM " + reference.table() + " WHERE " + reference.column() + " = ?", duplicate);
+                }
+                if ("movie".equals(key.table())) {
+                    jdbcTemplate.update("UPDATE movie SET version = version + 1 WHERE id = ?", keeper);
+                }
+                jdbcTemplate.update("DELETE FROM " + key.table() + " WHERE id = ?", duplicate);
+            }
+            log.warn("Merged duplicate rows of {} ({}) into ID {}: deleted IDs {}", key.table(), key.columns(), keeper, group.get("ids"));
+        }
+    }
+
+    // Re-indexes a full-text table whose row count differs from its content table, which happens
+    // when it was just created for an existing database or rows were written while the triggers were missing
+    private void rebuildIfOutOfSync(String ftsTable, String contentTable) {
+        Long indexed = jdbcTemplate.queryForObject("SELECT count(*) FROM " + ftsTable + "_docsize", Long.class);
+        Long stored = jdbcTemplate.queryForObject("SELECT count(*) FROM " + contentTable, Long.class);
+        if (!stored.equals(indexed)) {
+            log.info("Rebuilding full-text index {} ({} of {} rows indexed)", ftsTable, indexed, stored);
+            jdbcTemplate.execute("INSERT INTO " + ftsTable + "(" + ftsTable + ") VALUES ('rebuild')");
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.pablo9298.kmdb.config;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.transaction.TransactionManagerCustomizers;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.TransactionManager;
+
+import javax.sql.DataSource;
+
+// Optional write-behind path (see WriteQueueService), enabled with kmdb.write-queue.enabled=true
+@Configuration
+@ConditionalOnProperty(name = "kmdb.write-queue.enabled", havingValue = "true")
+public class WriteQueueConfig {
+
+    // Wraps the application data source so that queued writes can share one group transaction.
+    // Static, as post-processors are created before the rest of the configuration.
+    @Bean
+    public static BeanPostProcessor groupCommitDataSourcePostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if ("dataSource".equals(beanName) && bean instanceof DataSource dataSource) {
+                    return new GroupCommitDataSource(dataSource);
+                }
+                return bean;
+            }
+        };
+    }
+
+    // Replaces the JPA transaction manager Spring Boot would create, so that transactions committed inside a
+    // group hold their after-commit work until the group commits
+    @Bean
+    public GroupCommitTransactionManager transactionManager(ObjectProvider<TransactionManagerCustomizers> customizers) {
+        GroupCommitTransactionManager transactionManager = new GroupCommitTransactionManager();
+        customizers.ifAvailable(c -> c.customize((TransactionManager) transactionManager));
+        return transactionManager;
+    }
+}
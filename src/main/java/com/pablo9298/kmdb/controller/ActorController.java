@@ -1,19 +1,36 @@
 package com.pablo9298.kmdb.controller;
 
+import com.pablo9298.kmdb.dto.ActorConnection;
+import com.pablo9298.kmdb.dto.BulkImportResult;
+import com.pablo9298.kmdb.dto.BulkMutationResult;
+import com.pablo9298.kmdb.dto.CoStar;
+import com.pablo9298.kmdb.dto.CursorPage;
+import com.pablo9298.kmdb.dto.Versioned;
+import com.pablo9298.kmdb.dto.UpsertResult;
 import com.pablo9298.kmdb.exception.ResourceNotFoundException;
+import com.pablo9298.kmdb.index.CoStarGraph;
+import com.pablo9298.kmdb.index.PrefixIndex;
 import com.pablo9298.kmdb.model.Actor;
 import com.pablo9298.kmdb.model.Movie;
 import com.pablo9298.kmdb.service.ActorService;
+import com.pablo9298.kmdb.service.BulkImportService;
+import com.pablo9298.kmdb.service.BulkUpdateService;
+import com.pablo9298.kmdb.service.CatalogExportService;
+import com.pablo9298.kmdb.service.CoStarService;
+import com.pablo9298.kmdb.service.SuggestService;
+import com.pablo9298.kmdb.service.UpsertService;
+import com.pablo9298.kmdb.service.WriteQueueService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.time.LocalDate;
-import java.time.format.DateTimeParseException;
 import java.util.List;
-import java.util.Set;
 
 @RestController
 @RequestMapping("api/actors")
@@ -22,32 +39,97 @@ public class ActorController {
     @Autowired
     private ActorService actorService;
 
+    @Autowired
+    private CatalogExportService catalogExportService;
+
+    @Autowired
+    private BulkImportService bulkImportService;
+
+    @Autowired
+    private BulkUpdateService bulkUpdateService;
+
+    @Autowired
+    private UpsertService upsertService;
+
+    @Autowired
+    private WriteQueueService writeQueueService;
+
+    @Autowired
+    private SuggestService suggestService;
+
+    @Autowired
+    private CoStarService coStarService;
+
     // Creates a new actor
     @PostMapping
     public ResponseEntity<?> createActor(@RequestBody @Valid Actor actor) {
-        if (!isValidDate(actor.getBirthDate())) {
+        if (!ActorService.isValidDate(actor.getBirthDate())) {
             return new ResponseEntity<>("Birth date must be in the format YYYY-MM-DD", HttpStatus.BAD_REQUEST);
         }
-        Actor createdActor = actorService.createActor(actor);
+        Actor createdActor = writeQueueService.submit(() -> actorService.createActor(actor));
         return new ResponseEntity<>(createdActor, HttpStatus.CREATED);
     }
 
-    // Retrieves all actors
+    // Creates an actor unless one with the same name (compared without regard to case) and birth date exists;
+    // answers 201 Created for a new actor and 200 OK with the existing one otherwise
+    @PutMapping("/upsert")
+    public ResponseEntity<?> upsertActor(@RequestBody @Valid Actor actor) {
+        if (!ActorService.isValidDate(actor.getBirthDate())) {
+            return new ResponseEntity<>("Birth date must be in the format YYYY-MM-DD", HttpStatus.BAD_REQUEST);
+        }
+        return upserted(writeQueueService.submit(() -> upsertService.upsertActor(actor)));
+    }
+
+    // Creates many actors in one transaction and reports rejected rows individually
+    @PostMapping("/bulk")
+    public ResponseEntity<BulkImportResult> bulkCreateActors(@RequestBody List<Actor> actors) {
+        BulkImportResult result = bulkImportService.importActors(actors);
+        HttpStatus status = result.created() > 0 ? HttpStatus.CREATED : HttpStatus.BAD_REQUEST;
+        return ResponseEntity.status(status).body(result);
+    }
+
+    // Updates many actors in one transaction; each item carries the ID of the actor it changes
+    @PatchMapping("/bulk")
+    public ResponseEntity<BulkMutationResult> bulkUpdateActors(@RequestBody List<Actor> actors) {
+        return bulkResult(bulkUpdateService.updateActors(actors));
+    }
+
+    // Deletes many actors by ID in one transaction and reports rejected IDs individually
+    @DeleteMapping("/bulk")
+    public ResponseEntity<BulkMutationResult> bulkDeleteActors(@RequestBody List<Long> ids,
+                                                               @RequestParam(defaultValue = "false") boolean force) {
+        return bulkResult(bulkUpdateService.deleteActors(ids, force));
+    }
+
+    // Streams all actors as newline-delimited JSON without loading them into memory
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportActors() {
+        StreamingResponseBody body = catalogExportService::exportActors;
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    // Retrieves actors page by page using an opaque continuation token (at most CursorPage.MAX_LIMIT per page)
     @GetMapping
-    public List<Actor> getAllActors() {
-        return actorService.getAllActors();
+    public CursorPage<Actor> getAllActors(@RequestParam(required = false) String cursor,
+                                          @RequestParam(required = false) Integer limit,
+                                          @RequestParam(defaultValue = "id") String sort) {
+        return actorService.getActorsPage(cursor, CursorPage.checkLimit(limit), sort);
     }
 
-    // Retrieves an actor by ID
+    // Retrieves an actor by ID; answers 304 Not Modified, without loading the actor, when the client's copy is current
     @GetMapping("/{id}")
-    public Actor getActorById(@PathVariable Long id) {
-        return actorService.getActorById(id);
+    public Actor getActorById(@PathVariable Long id, WebRequest request) {
+        return actorService.getActorUnlessCurrent(id, version -> request.checkNotModified(version.etag(), version.lastModified()));
     }
 
-    // Updates an existing actor (PATCH)
+    // Updates an existing actor (PATCH); with If-Match, only while the client's copy is still current
     @PatchMapping("/{id}")
-    public Actor updateActor(@PathVariable Long id, @RequestBody Actor updateActor) {
-        return actorService.updateActor(id, updateActor);
+    public ResponseEntity<Actor> updateActor(@PathVariable Long id, @RequestBody Actor updateActor,
+                                             @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        Versioned<Actor> updatedActor = writeQueueService.submit(() -> actorService.updateActor(id, updateActor, ifMatch));
+        return ResponseEntity.ok().eTag(updatedActor.version().etag()).body(updatedActor.body());
     }
 
     // Deletes an actor, with an optional force parameter
@@ -55,7 +137,7 @@ public class ActorController {
     public ResponseEntity<?> deleteActor(@PathVariable Long id,
                                          @RequestParam(defaultValue = "false") boolean force) {
         try {
-            actorService.deleteActor(id, force);
+            writeQueueService.execute(() -> actorService.deleteActor(id, force));
             return ResponseEntity.noContent().build();
         } catch (IllegalStateException e) {
             return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
@@ -70,19 +152,62 @@ public class ActorController {
         return actorService.getActorsByName(name);
     }
 
-    // Retrieves all movies an actor has appeared in
+    // Searches for actors by name, best match first, a page at a time
+    @GetMapping("/search")
+    public CursorPage<Actor> searchActors(@RequestParam String name,
+                                          @RequestParam(required = false) String cursor,
+                                          @RequestParam(required = false) Integer limit) {
+        return actorService.searchActorsByName(name, cursor, CursorPage.checkLimit(limit));
+    }
+
+    // Suggests actors as the user types, matching the start of any word in the name
+    @GetMapping("/suggest")
+    public List<PrefixIndex.Suggestion> suggestActors(@RequestParam String prefix,
+                                                      @RequestParam(required = false) Integer limit) {
+        return suggestService.suggestActors(prefix, limit);
+    }
+
+    // Reports the size and estimated memory footprint of the name suggestion index
+    @GetMapping("/suggest/stats")
+    public PrefixIndex.Stats getSuggestIndexStats() {
+        return suggestService.actorIndexStats();
+    }
+
+    // Finds the shortest chain of co-stars linking two actors, with the movie behind each link
+    @GetMapping("/{id}/connection")
+    public ActorConnection getConnection(@PathVariable Long id, @RequestParam Long to,
+                                         @RequestParam(required = false) Integer maxDegrees) {
+        return coStarService.getConnection(id, to, maxDegrees);
+    }
+
+    // Ranks an actor's co-stars by the movies they made together
+    @GetMapping("/{id}/costars")
+    public List<CoStar> getCoStars(@PathVariable Long id, @RequestParam(required = false) Integer limit) {
+        return coStarService.getCoStars(id, limit);
+    }
+
+    // Reports the size and estimated memory footprint of the collaboration graph
+    @GetMapping("/graph/stats")
+    public CoStarGraph.Stats getGraphStats() {
+        return coStarService.graphStats();
+    }
+
+    // Retrieves a page of the movies an actor has appeared in, after the given continuation token
     @GetMapping("/{actorId}/movies")
-    public Set<Movie> getMoviesByActor(@PathVariable Long actorId) {
-        return actorService.getMoviesByActor(actorId);
+    public CursorPage<Movie> getMoviesByActor(@PathVariable Long actorId,
+                                              @RequestParam(required = false) String cursor,
+                                              @RequestParam(required = false) Integer limit) {
+        return actorService.getMoviesByActor(actorId, cursor, CursorPage.checkLimit(limit));
     }
 
-    // Checks if a date string matches the format YYYY-MM-DD
-    private boolean isValidDate(String dateStr) {
-        try {
-            LocalDate.parse(dateStr);  // Checks if date is in the correct format
-            return true;
-        } catch (DateTimeParseException e) {
-            return false;
-        }
+    // Answers 200 when any item was applied, otherwise 400 with the per-item reasons
+    private ResponseEntity<BulkMutationResult> bulkResult(BulkMutationResult result) {
+        HttpStatus status = result.applied() > 0 ? HttpStatus.OK : HttpStatus.BAD_REQUEST;
+        return ResponseEntity.status(status).body(result);
+    }
+
+    // Answers 201 Created when the upsert inserted the row, otherwise 200 OK
+    private <T> ResponseEntity<T> upserted(UpsertResult<T> result) {
+        return ResponseEntity.status(result.created() ? HttpStatus.CREATED : HttpStatus.OK).body(result.value());
     }
 }
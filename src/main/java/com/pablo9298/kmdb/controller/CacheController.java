@@ -0,0 +1,23 @@
+package com.pablo9298.kmdb.controller;
+
+import com.pablo9298.kmdb.service.CatalogCacheService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/cache")
+public class CacheController {
+
+    @Autowired
+    private CatalogCacheService catalogCacheService;
+
+    // Reports hit/miss ratios and evictions for each second-level cache region
+    @GetMapping("/stats")
+    public Map<String, Map<String, Object>> getCacheStatistics() {
+        return catalogCacheService.getStatistics();
+    }
+}
@@ -0,0 +1,37 @@
+package com.pablo9298.kmdb.controller;
+
+import com.pablo9298.kmdb.dto.ChangeLogHead;
+import com.pablo9298.kmdb.dto.ChangePage;
+import com.pablo9298.kmdb.service.ChangeLogService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+@RequestMapping("/api/changes")
+public class ChangeController {
+
+    @Autowired
+    private ChangeLogService changeLogService;
+
+    // Lists catalog changes committed after the given sequence number, oldest first (at most ChangeLogService.MAX_LIMIT)
+    @GetMapping
+    public ChangePage getChanges(@RequestParam(defaultValue = "0") long since,
+                                 @RequestParam(required = false) Integer limit) {
+        return changeLogService.getChangesSince(since, limit);
+    }
+
+    // Returns the oldest retained and latest sequence numbers
+    @GetMapping("/head")
+    public ChangeLogHead getHead() {
+        return changeLogService.getHead();
+    }
+
+    // Streams catalog changes as Server-Sent Events: those after Last-Event-ID or since when given, otherwise new ones only
+    @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamChanges(@RequestParam(required = false) Long since,
+                                    @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        return changeLogService.subscribe(lastEventId != null ? lastEventId : since);
+    }
+}
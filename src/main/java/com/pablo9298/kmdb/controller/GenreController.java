@@ -1,12 +1,27 @@
 package com.pablo9298.kmdb.controller;
 
+import com.pablo9298.kmdb.dto.BulkImportResult;
+import com.pablo9298.kmdb.dto.BulkMutationResult;
+import com.pablo9298.kmdb.dto.CursorPage;
+import com.pablo9298.kmdb.dto.Versioned;
+import com.pablo9298.kmdb.dto.UpsertResult;
 import com.pablo9298.kmdb.exception.ResourceNotFoundException;
 import com.pablo9298.kmdb.model.Genre;
+import com.pablo9298.kmdb.service.BulkImportService;
+import com.pablo9298.kmdb.service.BulkUpdateService;
+import com.pablo9298.kmdb.service.CatalogExportService;
 import com.pablo9298.kmdb.service.GenreService;
+import com.pablo9298.kmdb.service.UpsertService;
+import com.pablo9298.kmdb.service.WriteQueueService;
+import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.util.List;
 
@@ -17,28 +32,87 @@ public class GenreController {
     @Autowired
     private GenreService genreService;
 
+    @Autowired
+    private CatalogExportService catalogExportService;
+
+    @Autowired
+    private BulkImportService bulkImportService;
+
+    @Autowired
+    private BulkUpdateService bulkUpdateService;
+
+    @Autowired
+    private UpsertService upsertService;
+
+    @Autowired
+    private WriteQueueService writeQueueService;
+
     // Creates a new genre
     @PostMapping
     public Genre createGenre(@RequestBody Genre genre) {
-        return genreService.createGenre(genre);
+        return writeQueueService.submit(() -> genreService.createGenre(genre));
+    }
+
+    // Creates a genre unless one with the same name (compared without regard to case) exists;
+    // answers 201 Created for a new genre and 200 OK with the existing one otherwise
+    @PutMapping("/upsert")
+    public ResponseEntity<Genre> upsertGenre(@RequestBody @Valid Genre genre) {
+        return upserted(writeQueueService.submit(() -> upsertService.upsertGenre(genre)));
     }
 
-    // Retrieves all genres
+    // Retrieves genres page by page using an opaque continuation token (at most CursorPage.MAX_LIMIT per page);
+    // answers 304 Not Modified while no genre has been added, renamed or removed since the client's copy
     @GetMapping
-    public List<Genre> getAllGenres() {
-        return genreService.getAllGenres();
+    public CursorPage<Genre> getAllGenres(@RequestParam(required = false) String cursor,
+                                          @RequestParam(required = false) Integer limit,
+                                          @RequestParam(defaultValue = "id") String sort,
+                                          WebRequest request) {
+        return genreService.getGenresPageUnlessCurrent(cursor, CursorPage.checkLimit(limit), sort,
+                version -> request.checkNotModified(version.etag(), version.lastModified()));
     }
 
-    // Retrieves a genre by ID
+    // Creates many genres in one transaction and reports rejected rows individually
+    @PostMapping("/bulk")
+    public ResponseEntity<BulkImportResult> bulkCreateGenres(@RequestBody List<Genre> genres) {
+        BulkImportResult result = bulkImportService.importGenres(genres);
+        HttpStatus status = result.created() > 0 ? HttpStatus.CREATED : HttpStatus.BAD_REQUEST;
+        return ResponseEntity.status(status).body(result);
+    }
+
+    // Updates many genres in one transaction; each item carries the ID of the genre it changes
+    @PatchMapping("/bulk")
+    public ResponseEntity<BulkMutationResult> bulkUpdateGenres(@RequestBody List<Genre> genres) {
+        return bulkResult(bulkUpdateService.updateGenres(genres));
+    }
+
+    // Deletes many genres by ID in one transaction and reports rejected IDs individually
+    @DeleteMapping("/bulk")
+    public ResponseEntity<BulkMutationResult> bulkDeleteGenres(@RequestBody List<Long> ids,
+                                                               @RequestParam(defaultValue = "false") boolean force) {
+        return bulkResult(bulkUpdateService.deleteGenres(ids, force));
+    }
+
+    // Streams all genres as newline-delimited JSON without loading them into memory
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportGenres() {
+        StreamingResponseBody body = catalogExportService::exportGenres;
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    // Retrieves a genre by ID; answers 304 Not Modified, without loading the genre, when the client's copy is current
     @GetMapping("/{id}")
-    public Genre getGenreById(@PathVariable Long id) {
-        return genreService.getGenreById(id);
+    public Genre getGenreById(@PathVariable Long id, WebRequest request) {
+        return genreService.getGenreUnlessCurrent(id, version -> request.checkNotModified(version.etag(), version.lastModified()));
     }
 
-    // Updates an existing genre (PATCH)
+    // Updates an existing genre (PATCH); with If-Match, only while the client's copy is still current
     @PatchMapping("/{id}")
-    public Genre updateGenre(@PathVariable Long id, @RequestBody Genre updateGenre) {
-        return genreService.updateGenre(id, updateGenre);
+    public ResponseEntity<Genre> updateGenre(@PathVariable Long id, @RequestBody Genre updateGenre,
+                                             @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        Versioned<Genre> updatedGenre = writeQueueService.submit(() -> genreService.updateGenre(id, updateGenre, ifMatch));
+        return ResponseEntity.ok().eTag(updatedGenre.version().etag()).body(updatedGenre.body());
     }
 
     // Deletes a genre, with an optional force parameter to override restrictions
@@ -46,7 +120,7 @@ public class GenreController {
     public ResponseEntity<?> deleteGenre(@PathVariable Long id,
                                          @RequestParam(defaultValue = "false") boolean force) {
         try {
-            genreService.deleteGenre(id, force);
+            writeQueueService.execute(() -> genreService.deleteGenre(id, force));
             return ResponseEntity.noContent().build();  // Returns 204 No Content on successful deletion
         } catch (IllegalStateException e) {
             return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
@@ -54,4 +128,15 @@ public class GenreController {
             return ResponseEntity.status(HttpStatus.NOT_FOUND).body(e.getMessage());
         }
     }
+
+    // Answers 200 when any item was applied, otherwise 400 with the per-item reasons
+    private ResponseEntity<BulkMutationResult> bulkResult(BulkMutationResult result) {
+        HttpStatus status = result.applied() > 0 ? HttpStatus.OK : HttpStatus.BAD_REQUEST;
+        return ResponseEntity.status(status).body(result);
+    }
+
+    // Answers 201 Created when the upsert inserted the row, otherwise 200 OK
+    private <T> ResponseEntity<T> upserted(UpsertResult<T> result) {
+        return ResponseEntity.status(result.created() ? HttpStatus.CREATED : HttpStatus.OK).body(result.value());
+    }
 }
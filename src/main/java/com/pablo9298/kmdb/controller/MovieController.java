@@ -1,13 +1,25 @@
 package com.pablo9298.kmdb.controller;
 
+import com.pablo9298.kmdb.dto.BulkImportResult;
+import com.pablo9298.kmdb.dto.BulkMutationResult;
+import com.pablo9298.kmdb.dto.CursorPage;
+import com.pablo9298.kmdb.dto.MovieFacets;
+import com.pablo9298.kmdb.dto.Versioned;
+import com.pablo9298.kmdb.dto.UpsertResult;
 import com.pablo9298.kmdb.exception.ResourceNotFoundException;
+import com.pablo9298.kmdb.index.MovieFacetIndex;
+import com.pablo9298.kmdb.index.PrefixIndex;
 import com.pablo9298.kmdb.model.*;
 import com.pablo9298.kmdb.service.*;
 import org.springframework.data.domain.*;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 
 import java.util.*;
@@ -22,18 +34,50 @@ public class MovieController {
     @Autowired
     private ActorService actorService;
 
+    @Autowired
+    private CatalogExportService catalogExportService;
+
+    @Autowired
+    private BulkImportService bulkImportService;
+
+    @Autowired
+    private BulkUpdateService bulkUpdateService;
+
+    @Autowired
+    private UpsertService upsertService;
+
+    @Autowired
+    private WriteQueueService writeQueueService;
+
+    @Autowired
+    private SuggestService suggestService;
+
+    @Autowired
+    private FacetService facetService;
+
     // Creates a new movie
     @PostMapping
     public ResponseEntity<Movie> createMovie(@RequestBody @Valid Movie movie) {
-        Movie createdMovie = movieService.createMovie(movie);
+        Movie createdMovie = writeQueueService.submit(() -> movieService.createMovie(movie));
         return ResponseEntity.status(HttpStatus.CREATED).body(createdMovie);
     }
 
-    // Retrieves all movies with optional pagination
+    // Creates a movie, or merges the given fields into the movie with the same title (compared without regard to case);
+    // answers 201 Created for a new movie and 200 OK otherwise, so ingest jobs can retry freely
+    @PutMapping("/upsert")
+    public ResponseEntity<Movie> upsertMovie(@RequestBody @Valid Movie movie) {
+        return upserted(writeQueueService.submit(() -> upsertService.upsertMovie(movie)));
+    }
+
+    // Retrieves movies page by page: offset pagination when page and size are given,
+    // otherwise keyset pagination with an opaque continuation token (capped at CursorPage.MAX_LIMIT rows)
     @GetMapping
     public ResponseEntity<?> getAllMovies(
             @RequestParam(required = false) Integer page,
-            @RequestParam(required = false) Integer size) {
+            @RequestParam(required = false) Integer size,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(defaultValue = "id") String sort) {
 
         // Validate page and size parameters
         if (page != null && page < 0) {
@@ -53,30 +97,57 @@ public class MovieController {
             List<Movie> movies = moviesPage.getContent();
             return ResponseEntity.ok(movies);
         } else {
-            List<Movie> movies = movieService.getAllMovies();
+            CursorPage<Movie> movies = movieService.getMoviesPage(cursor, CursorPage.checkLimit(limit), sort);
             return ResponseEntity.ok(movies);
         }
     }
 
-    // Retrieves a movie by ID
+    // Creates many movies in one transaction and reports rejected rows individually
+    @PostMapping("/bulk")
+    public ResponseEntity<BulkImportResult> bulkCreateMovies(@RequestBody List<Movie> movies) {
+        BulkImportResult result = bulkImportService.importMovies(movies);
+        HttpStatus status = result.created() > 0 ? HttpStatus.CREATED : HttpStatus.BAD_REQUEST;
+        return ResponseEntity.status(status).body(result);
+    }
+
+    // Updates many movies in one transaction; each item carries the ID of the movie it changes
+    @PatchMapping("/bulk")
+    public ResponseEntity<BulkMutationResult> bulkUpdateMovies(@RequestBody List<Movie> movies) {
+        return bulkResult(bulkUpdateService.updateMovies(movies));
+    }
+
+    // Deletes many movies by ID in one transaction and reports rejected IDs individually
+    @DeleteMapping("/bulk")
+    public ResponseEntity<BulkMutationResult> bulkDeleteMovies(@RequestBody List<Long> ids,
+                                                               @RequestParam(defaultValue = "false") boolean force) {
+        return bulkResult(bulkUpdateService.deleteMovies(ids, force));
+    }
+
+    // Streams all movies as newline-delimited JSON without loading them into memory
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportMovies() {
+        StreamingResponseBody body = catalogExportService::exportMovies;
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
+
+    // Retrieves a movie by ID; answers 304 Not Modified, without loading the movie, when the client's copy is current
     @GetMapping(path = "/{id}")
     public Movie getMovieById(
-            @PathVariable Long id)
+            @PathVariable Long id,
+            WebRequest request)
             throws ResourceNotFoundException {
 
-        Optional<Movie> movie = movieService.getMovieById(id);
-
-        if (movie.isPresent()) {
-            return movie.get();
-        } else {
-            throw new ResourceNotFoundException("Movie not found with ID: " + id);
-        }
+        return movieService.getMovieUnlessCurrent(id, version -> request.checkNotModified(version.etag(), version.lastModified()));
     }
 
-    // Updates an existing movie (PATCH)
+    // Updates an existing movie (PATCH); with If-Match, only while the client's copy is still current
     @PatchMapping("/{id}")
-    public Movie updateMovie(@PathVariable Long id, @RequestBody Movie updateMovie) {
-        return movieService.updateMovie(id, updateMovie);
+    public ResponseEntity<Movie> updateMovie(@PathVariable Long id, @RequestBody Movie updateMovie,
+                                             @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        Versioned<Movie> updatedMovie = writeQueueService.submit(() -> movieService.updateMovie(id, updateMovie, ifMatch));
+        return ResponseEntity.ok().eTag(updatedMovie.version().etag()).body(updatedMovie.body());
     }
 
     // Deletes a movie, with an optional force parameter to override restrictions
@@ -84,7 +155,7 @@ public class MovieController {
     public ResponseEntity<?> deleteMovie(@PathVariable Long id,
                                          @RequestParam(defaultValue = "false") boolean force) {
         try {
-            movieService.deleteMovie(id, force);
+            writeQueueService.execute(() -> movieService.deleteMovie(id, force));
             return ResponseEntity.noContent().build();  // Returns 204 No Content on successful deletion
         } catch (IllegalStateException e) {
             return ResponseEntity.status(HttpStatus.CONFLICT).body(e.getMessage());
@@ -93,34 +164,104 @@ public class MovieController {
         }
     }
 
-    // Filters movies by genre
+    // Filters movies by genre, a page at a time in ID order
     @GetMapping(params = "genre")
-    public List<Movie> getMoviesByGenre(@RequestParam("genre") Long genreId) {
-        return movieService.getMoviesByGenreId(genreId);
+    public CursorPage<Movie> getMoviesByGenre(@RequestParam("genre") Long genreId,
+                                              @RequestParam(required = false) String cursor,
+                                              @RequestParam(required = false) Integer limit) {
+        return movieService.getMoviesByGenreId(genreId, cursor, CursorPage.checkLimit(limit));
     }
 
-    // Filters movies by release year
+    // Filters movies by release year, a page at a time in ID order
     @GetMapping(params = "year")
-    public List<Movie> getMoviesByReleaseYear(@RequestParam Integer year) {
-        return movieService.getMoviesByReleaseYear(year);
+    public CursorPage<Movie> getMoviesByReleaseYear(@RequestParam Integer year,
+                                                    @RequestParam(required = false) String cursor,
+                                                    @RequestParam(required = false) Integer limit) {
+        return movieService.getMoviesByReleaseYear(year, cursor, CursorPage.checkLimit(limit));
     }
 
-    // Retrieves all actors associated with a specific movie
+    // Filters movies by a release year range, with an optional upper bound, a page at a time in release year order
+    @GetMapping(params = "yearFrom")
+    public CursorPage<Movie> getMoviesByReleaseYearRange(@RequestParam Integer yearFrom,
+                                                         @RequestParam(required = false) Integer yearTo,
+                                                         @RequestParam(required = false) String cursor,
+                                                         @RequestParam(required = false) Integer limit) {
+        return movieService.getMoviesByReleaseYearRange(yearFrom, yearTo, cursor, CursorPage.checkLimit(limit));
+    }
+
+    // Filters movies released up to a given year, a page at a time in release year order
+    @GetMapping(params = {"yearTo", "!yearFrom"})
+    public CursorPage<Movie> getMoviesReleasedUntil(@RequestParam Integer yearTo,
+                                                    @RequestParam(required = false) String cursor,
+                                                    @RequestParam(required = false) Integer limit) {
+        return movieService.getMoviesByReleaseYearRange(null, yearTo, cursor, CursorPage.checkLimit(limit));
+    }
+
+    // Retrieves all actors associated with a specific movie; answers 304 Not Modified when the client's copy is current
     @GetMapping("/{movieId}/actors")
-    public Set<Actor> getActorsByMovie(@PathVariable Long movieId) {
-        return movieService.getActorsByMovie(movieId);
+    public Set<Actor> getActorsByMovie(@PathVariable Long movieId, WebRequest request) {
+        return movieService.getActorsByMovieUnlessCurrent(movieId,
+                version -> request.checkNotModified(version.etag(), version.lastModified()));
     }
 
-    // Retrieves all movies in which a specified actor has appeared
+    // Retrieves the movies in which a specified actor has appeared, a page at a time in ID order
     @GetMapping(params = "actor")
-    public Set<Movie> getMoviesByActor(@RequestParam("actor") Long actorId) {
-        return actorService.getMoviesByActorId(actorId);
+    public CursorPage<Movie> getMoviesByActor(@RequestParam("actor") Long actorId,
+                                              @RequestParam(required = false) String cursor,
+                                              @RequestParam(required = false) Integer limit) {
+        return actorService.getMoviesByActorId(actorId, cursor, CursorPage.checkLimit(limit));
     }
 
-    // Searches for movies by title
+    // Searches for movies by title, best match first, a page at a time
     @GetMapping("/search")
-    public ResponseEntity<List<Movie>> searchMovies(@RequestParam("title") String title) {
-        List<Movie> movies = movieService.searchMoviesByTitle(title);
+    public ResponseEntity<CursorPage<Movie>> searchMovies(@RequestParam("title") String title,
+                                                          @RequestParam(required = false) String cursor,
+                                                          @RequestParam(required = false) Integer limit) {
+        CursorPage<Movie> movies = movieService.searchMoviesByTitle(title, cursor, CursorPage.checkLimit(limit));
         return ResponseEntity.ok(movies);
     }
+
+    // Suggests movies as the user types, matching the start of any word in the title
+    @GetMapping("/suggest")
+    public List<PrefixIndex.Suggestion> suggestMovies(@RequestParam String prefix,
+                                                      @RequestParam(required = false) Integer limit) {
+        return suggestService.suggestMovies(prefix, limit);
+    }
+
+    // Reports the size and estimated memory footprint of the title suggestion index
+    @GetMapping("/suggest/stats")
+    public PrefixIndex.Stats getSuggestIndexStats() {
+        return suggestService.movieIndexStats();
+    }
+
+    // Filters movies by any combination of genres, actors, release years and durations, with facet counts
+    @GetMapping("/facets")
+    public MovieFacets getMovieFacets(@RequestParam(name = "genre", defaultValue = "") Set<Long> genreIds,
+                                      @RequestParam(name = "actor", defaultValue = "") Set<Long> actorIds,
+                                      @RequestParam(required = false) Integer yearFrom,
+                                      @RequestParam(required = false) Integer yearTo,
+                                      @RequestParam(required = false) Integer durationMin,
+                                      @RequestParam(required = false) Integer durationMax,
+                                      @RequestParam(required = false) String cursor,
+                                      @RequestParam(required = false) Integer limit) {
+        return facetService.getFacets(genreIds, actorIds, yearFrom, yearTo, durationMin, durationMax,
+                cursor, CursorPage.checkLimit(limit));
+    }
+
+    // Reports the size and estimated memory footprint of the facet indexes
+    @GetMapping("/facets/stats")
+    public MovieFacetIndex.Stats getFacetIndexStats() {
+        return facetService.indexStats();
+    }
+
+    // Answers 200 when any item was applied, otherwise 400 with the per-item reasons
+    private ResponseEntity<BulkMutationResult> bulkResult(BulkMutationResult result) {
+        HttpStatus status = result.applied() > 0 ? HttpStatus.OK : HttpStatus.BAD_REQUEST;
+        return ResponseEntity.status(status).body(result);
+    }
+
+    // Answers 201 Created when the upsert inserted the row, otherwise 200 OK
+    private <T> ResponseEntity<T> upserted(UpsertResult<T> result) {
+        return ResponseEntity.status(result.created() ? HttpStatus.CREATED : HttpStatus.OK).body(result.value());
+    }
 }
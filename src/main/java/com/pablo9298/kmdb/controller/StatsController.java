@@ -0,0 +1,51 @@
+package com.pablo9298.kmdb.controller;
+
+import com.pablo9298.kmdb.service.StatsService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/stats")
+public class StatsController {
+
+    @Autowired
+    private StatsService statsService;
+
+    // Reports catalog totals, the average movie duration and the average filmography size
+    @GetMapping
+    public StatsService.Overview getOverview() {
+        return statsService.getOverview();
+    }
+
+    // Reports the number of movies per genre
+    @GetMapping("/genres")
+    public List<StatsService.GenreCount> getMoviesPerGenre() {
+        return statsService.getMoviesPerGenre();
+    }
+
+    // Reports the number of movies per release year
+    @GetMapping("/years")
+    public List<StatsService.YearCount> getMoviesPerYear() {
+        return statsService.getMoviesPerYear();
+    }
+
+    // Reports how many actors have appeared in how many movies
+    @GetMapping("/actors")
+    public StatsService.Filmographies getFilmographies() {
+        return statsService.getFilmographies();
+    }
+
+    // Reports the number of movies an actor has appeared in
+    @GetMapping("/actors/{id}")
+    public StatsService.Filmography getFilmography(@PathVariable Long id) {
+        return statsService.getFilmography(id);
+    }
+
+    // Recounts the statistics from the tables, reconciling any drift in the incremental counters
+    @PostMapping("/rebuild")
+    public StatsService.Rebuild rebuild() {
+        return statsService.rebuild();
+    }
+}
@@ -0,0 +1,12 @@
+package com.pablo9298.kmdb.dto;
+
+import java.util.List;
+
+// Shortest chain of co-stars between two actors. degrees is the number of movies in the chain;
+// when the actors are not connected within the requested number of degrees, connected is false and path is empty.
+public record ActorConnection(long fromActorId, long toActorId, boolean connected, int degrees, List<Step> path) {
+
+    // An actor in the chain and the movie shared with the previous actor (null for the first actor)
+    public record Step(long actorId, String actorName, Long movieId, String movieTitle) {
+    }
+}
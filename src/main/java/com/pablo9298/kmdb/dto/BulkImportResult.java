@@ -0,0 +1,12 @@
+package com.pablo9298.kmdb.dto;
+
+import java.util.List;
+
+// Outcome of a bulk create request. ids is aligned with the submitted rows:
+// it holds the generated ID of each accepted row and null for each rejected one.
+public record BulkImportResult(int created, int rejected, List<Long> ids, List<RowError> errors) {
+
+    // Reason a single submitted row was rejected, identified by its position in the request
+    public record RowError(int index, String message) {
+    }
+}
@@ -0,0 +1,12 @@
+package com.pablo9298.kmdb.dto;
+
+import java.util.List;
+
+// Outcome of a batch update or delete request. results is aligned with the submitted items: each holds the
+// item's ID and the HTTP status the same change would have got on its own, with a message when it was rejected.
+public record BulkMutationResult(int applied, int rejected, List<ItemResult> results) {
+
+    // Result of one submitted item, identified by its position in the request
+    public record ItemResult(int index, Long id, int status, String message) {
+    }
+}
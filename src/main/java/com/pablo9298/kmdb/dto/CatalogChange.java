@@ -0,0 +1,8 @@
+package com.pablo9298.kmdb.dto;
+
+import com.pablo9298.kmdb.event.ChangeType;
+
+// One entry of the change log: a movie, actor or genre was created, updated or deleted.
+// seq increases with every committed change; changedAt is in epoch milliseconds.
+public record CatalogChange(long seq, String entity, long id, ChangeType type, long changedAt) {
+}
@@ -0,0 +1,5 @@
+package com.pablo9298.kmdb.dto;
+
+// Oldest retained and latest sequence numbers of the change log; both are 0 while it is empty
+public record ChangeLogHead(long oldestSeq, long latestSeq) {
+}
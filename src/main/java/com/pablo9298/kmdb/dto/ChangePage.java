@@ -0,0 +1,8 @@
+package com.pablo9298.kmdb.dto;
+
+import java.util.List;
+
+// A page of the change log. lastSeq is the sequence number to ask for changes since next time:
+// that of the last change returned, or the requested one when nothing has changed since.
+public record ChangePage(List<CatalogChange> changes, long lastSeq, boolean hasMore) {
+}
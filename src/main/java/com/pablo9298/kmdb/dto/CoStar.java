@@ -0,0 +1,6 @@
+package com.pablo9298.kmdb.dto;
+
+// An actor who appeared alongside another. weight adds 1 / (cast size - 1) per shared movie,
+// so a co-star from a small cast ranks above one from an ensemble film with the same number of shared movies.
+public record CoStar(long actorId, String name, int sharedMovies, double weight) {
+}
@@ -0,0 +1,38 @@
+package com.pablo9298.kmdb.dto;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+// Position of the last row returned by a keyset page: the sort key it was ordered by,
+// the value of that key (null when the column is empty) and the row ID as a tie-breaker
+public record Cursor(String sort, String value, long id) {
+
+    private static final String SEPARATOR = "|";
+
+    // Encodes the cursor into an opaque, URL-safe continuation token
+    public String encode() {
+        String raw = sort + SEPARATOR + id + SEPARATOR + (value == null ? "-" : "=" + value);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Decodes a continuation token, checking that it was issued for the requested sort order
+    public static Cursor decode(String token, String expectedSort) {
+        String[] parts;
+        long id;
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            parts = raw.split("\\" + SEPARATOR, 3);
+            id = Long.parseLong(parts[1]);
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        if (parts.length != 3 || parts[2].isEmpty()) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        if (!parts[0].equals(expectedSort)) {
+            throw new IllegalArgumentException("Cursor was issued for sort '" + parts[0] + "', not '" + expectedSort + "'");
+        }
+        String value = parts[2].charAt(0) == '=' ? parts[2].substring(1) : null;
+        return new Cursor(parts[0], value, id);
+    }
+}
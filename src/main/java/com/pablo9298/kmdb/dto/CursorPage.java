@@ -0,0 +1,34 @@
+package com.pablo9298.kmdb.dto;
+
+import java.util.List;
+import java.util.function.Function;
+
+// A page of results from keyset pagination, with an opaque token for fetching the next page
+public record CursorPage<T>(List<T> items, String nextCursor) {
+
+    // Number of items returned when the client does not ask for a specific limit
+    public static final int DEFAULT_LIMIT = 20;
+
+    // Upper bound on the number of items a single list request can return
+    public static final int MAX_LIMIT = 100;
+
+    // Validates a requested page size
+    public static int checkLimit(Integer limit) {
+        if (limit == null) {
+            return DEFAULT_LIMIT;
+        }
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new IllegalArgumentException("Limit parameter must be between 1 and " + MAX_LIMIT);
+        }
+        return limit;
+    }
+
+    // Builds a page from rows fetched with limit + 1; the extra row only signals that another page exists
+    public static <T> CursorPage<T> of(List<T> rows, int limit, Function<T, Cursor> cursorOf) {
+        if (rows.size() <= limit) {
+            return new CursorPage<>(rows, null);
+        }
+        List<T> items = rows.subList(0, limit);
+        return new CursorPage<>(List.copyOf(items), cursorOf.apply(items.get(limit - 1)).encode());
+    }
+}
@@ -0,0 +1,18 @@
+package com.pablo9298.kmdb.dto;
+
+import com.pablo9298.kmdb.model.Movie;
+
+import java.util.List;
+
+// A page of movies matching a faceted filter, the total number of matches and the counts that refine it.
+// Genre counts are within the matches; decade and duration counts ignore the request's own year or
+// duration range. Ranges are inclusive of from and exclusive of to.
+public record MovieFacets(int total, List<Movie> items, String nextCursor, List<GenreFacet> genres,
+                          List<RangeFacet> decades, List<RangeFacet> durations) {
+
+    public record GenreFacet(long genreId, String name, int movies) {
+    }
+
+    public record RangeFacet(int from, int to, int movies) {
+    }
+}
@@ -0,0 +1,21 @@
+package com.pablo9298.kmdb.dto;
+
+// Validators of the current representation of a resource, for conditional requests: a strong ETag built from
+// entity version columns, and the last-modified time in epoch milliseconds (-1 when it is not known)
+public record ResourceVersion(String etag, long lastModified) {
+
+    public static ResourceVersion of(String tag, long lastModified) {
+        return new ResourceVersion("\"" + tag + "\"", lastModified > 0 ? lastModified : -1);
+    }
+
+    // Whether an If-Match header value names this version; "*" matches any version, weak ETags never match
+    public boolean matches(String ifMatch) {
+        for (String candidate : ifMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*") || tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,5 @@
+package com.pablo9298.kmdb.dto;
+
+// Row returned by an upsert, and whether the upsert created it rather than finding it by its key
+public record UpsertResult<T>(T value, boolean created) {
+}
@@ -0,0 +1,6 @@
+package com.pablo9298.kmdb.dto;
+
+// A resource together with the version it had when it was read or written, both taken from the same transaction
+// so that the ETag sent with a response always describes its body
+public record Versioned<T>(T body, ResourceVersion version) {
+}
@@ -0,0 +1,23 @@
+package com.pablo9298.kmdb.event;
+
+// Published when an actor is created, updated or deleted.
+// before is null for CREATED and after is null for DELETED.
+public record ActorChangedEvent(ChangeType type, ActorSnapshot before, ActorSnapshot after) {
+
+    public static ActorChangedEvent created(ActorSnapshot after) {
+        return new ActorChangedEvent(ChangeType.CREATED, null, after);
+    }
+
+    public static ActorChangedEvent updated(ActorSnapshot before, ActorSnapshot after) {
+        return new ActorChangedEvent(ChangeType.UPDATED, before, after);
+    }
+
+    public static ActorChangedEvent deleted(ActorSnapshot before) {
+        return new ActorChangedEvent(ChangeType.DELETED, before, null);
+    }
+
+    // ID of the changed actor
+    public Long actorId() {
+        return after != null ? after.id() : before.id();
+    }
+}
@@ -0,0 +1,11 @@
+package com.pablo9298.kmdb.event;
+
+import com.pablo9298.kmdb.model.Actor;
+
+// Detached copy of an actor's own columns
+public record ActorSnapshot(Long id, String name, String birthDate) {
+
+    public static ActorSnapshot of(Actor actor) {
+        return new ActorSnapshot(actor.getId(), actor.getName(), actor.getBirthDate());
+    }
+}
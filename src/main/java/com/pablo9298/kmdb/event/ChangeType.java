@@ -0,0 +1,8 @@
+package com.pablo9298.kmdb.event;
+
+// Kind of change made to a catalog entity
+public enum ChangeType {
+    CREATED,
+    UPDATED,
+    DELETED
+}
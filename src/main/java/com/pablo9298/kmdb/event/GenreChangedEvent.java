@@ -0,0 +1,23 @@
+package com.pablo9298.kmdb.event;
+
+// Published when a genre is created, updated or deleted.
+// before is null for CREATED and after is null for DELETED.
+public record GenreChangedEvent(ChangeType type, GenreSnapshot before, GenreSnapshot after) {
+
+    public static GenreChangedEvent created(GenreSnapshot after) {
+        return new GenreChangedEvent(ChangeType.CREATED, null, after);
+    }
+
+    public static GenreChangedEvent updated(GenreSnapshot before, GenreSnapshot after) {
+        return new GenreChangedEvent(ChangeType.UPDATED, before, after);
+    }
+
+    public static GenreChangedEvent deleted(GenreSnapshot before) {
+        return new GenreChangedEvent(ChangeType.DELETED, before, null);
+    }
+
+    // ID of the changed genre
+    public Long genreId() {
+        return after != null ? after.id() : before.id();
+    }
+}
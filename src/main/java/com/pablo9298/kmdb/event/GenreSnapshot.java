@@ -0,0 +1,11 @@
+package com.pablo9298.kmdb.event;
+
+import com.pablo9298.kmdb.model.Genre;
+
+// Detached copy of a genre's own columns
+public record GenreSnapshot(Long id, String name) {
+
+    public static GenreSnapshot of(Genre genre) {
+        return new GenreSnapshot(genre.getId(), genre.getName());
+    }
+}
@@ -0,0 +1,23 @@
+package com.pablo9298.kmdb.event;
+
+// Published when a movie is created, updated or deleted.
+// before is null for CREATED and after is null for DELETED.
+public record MovieChangedEvent(ChangeType type, MovieSnapshot before, MovieSnapshot after) {
+
+    public static MovieChangedEvent created(MovieSnapshot after) {
+        return new MovieChangedEvent(ChangeType.CREATED, null, after);
+    }
+
+    public static MovieChangedEvent updated(MovieSnapshot before, MovieSnapshot after) {
+        return new MovieChangedEvent(ChangeType.UPDATED, before, after);
+    }
+
+    public static MovieChangedEvent deleted(MovieSnapshot before) {
+        return new MovieChangedEvent(ChangeType.DELETED, before, null);
+    }
+
+    // ID of the changed movie
+    public Long movieId() {
+        return after != null ? after.id() : before.id();
+    }
+}
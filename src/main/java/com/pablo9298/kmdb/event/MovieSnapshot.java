@@ -0,0 +1,24 @@
+package com.pablo9298.kmdb.event;
+
+import com.pablo9298.kmdb.model.*;
+
+import java.util.Set;
+import java.util.stream.Collectors;
+
+// Detached copy of a movie's state, safe to hand to listeners after the transaction has ended
+public record MovieSnapshot(Long id, String title, Integer releaseYear, Integer duration,
+                            Set<Long> genreIds, Set<Long> actorIds) {
+
+    // Copies the state of a managed movie, including the IDs of its genres and actors
+    public static MovieSnapshot of(Movie movie) {
+        return new MovieSnapshot(movie.getId(), movie.getTitle(), movie.getReleaseYear(), movie.getDuration(),
+                movie.getGenres().stream().map(Genre::getId).collect(Collectors.toUnmodifiableSet()),
+                movie.getActors().stream().map(Actor::getId).collect(Collectors.toUnmodifiableSet()));
+    }
+
+    // Copies the state of a movie with association IDs read separately, leaving its collections uninitialized
+    public static MovieSnapshot of(Movie movie, Set<Long> genreIds, Set<Long> actorIds) {
+        return new MovieSnapshot(movie.getId(), movie.getTitle(), movie.getReleaseYear(), movie.getDuration(),
+                Set.copyOf(genreIds), Set.copyOf(actorIds));
+    }
+}
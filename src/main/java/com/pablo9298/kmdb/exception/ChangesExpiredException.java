@@ -0,0 +1,18 @@
+package com.pablo9298.kmdb.exception;
+
+// Exception for change log reads that start before the oldest retained entry, so some changes can no longer be listed.
+// Carries the latest sequence number, from which a consumer continues after reloading the catalog.
+public class ChangesExpiredException extends RuntimeException {
+
+    private final long latestSeq;
+
+    // Constructor that accepts a custom error message and the latest sequence number
+    public ChangesExpiredException(String message, long latestSeq) {
+        super(message);
+        this.latestSeq = latestSeq;
+    }
+
+    public long getLatestSeq() {
+        return latestSeq;
+    }
+}
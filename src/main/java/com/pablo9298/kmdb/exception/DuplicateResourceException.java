@@ -0,0 +1,39 @@
+package com.pablo9298.kmdb.exception;
+
+import org.sqlite.SQLiteErrorCode;
+import org.sqlite.SQLiteException;
+
+import java.util.function.Supplier;
+
+// Exception for writes rejected by a unique index, such as a second movie with the same title.
+// It is an IllegalStateException like the other conflicts the controllers answer with 409 Conflict.
+public class DuplicateResourceException extends IllegalStateException {
+
+    // Constructor that accepts a custom error message
+    public DuplicateResourceException(String message) {
+        super(message);
+    }
+
+    // Runs a write that flushes to the database and reports a unique index violation with the given message
+    public static <T> T guard(Supplier<T> write, String message) {
+        try {
+            return write.get();
+        } catch (RuntimeException e) {
+            if (isCause(e)) {
+                throw new DuplicateResourceException(message);
+            }
+            throw e;
+        }
+    }
+
+    // Whether a failed write, whatever Hibernate or Spring wrapped it in, was rejected by a unique index.
+    // The SQLite driver reports no SQL state, so Spring cannot translate these into DataIntegrityViolationException.
+    public static boolean isCause(Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLiteException sqliteException) {
+                return sqliteException.getResultCode() == SQLiteErrorCode.SQLITE_CONSTRAINT_UNIQUE;
+            }
+        }
+        return false;
+    }
+}
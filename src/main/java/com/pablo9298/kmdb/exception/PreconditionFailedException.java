@@ -0,0 +1,10 @@
+package com.pablo9298.kmdb.exception;
+
+// Exception for conditional updates whose If-Match header no longer names the current version of the resource
+public class PreconditionFailedException extends RuntimeException {
+
+    // Constructor that accepts a custom error message
+    public PreconditionFailedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,607 @@
+package com.pablo9298.kmdb.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntConsumer;
+
+// In-memory actor collaboration graph for degrees-of-separation and co-star queries.
+//
+// The graph is stored bipartite, as actor -> movies and movie -> actors adjacency in compressed sparse row
+// form: one int[] of offsets and one int[] of neighbour indexes per direction, with actors and movies numbered
+// by their position in sorted long[] ID arrays. Two actors are co-stars when they share a movie, so the
+// co-appearance edges are walked through the movies instead of being materialized; a movie with a cast of k
+// costs k entries per direction rather than k * (k - 1) co-star edges.
+//
+// As in PrefixIndex, the base arrays are immutable. Writes go to a small delta of changed casts (deleting an
+// actor rewrites the casts it was in) and are folded into a new base once the delta grows past MERGE_THRESHOLD.
+// Readers work on a volatile snapshot and never block. Writers are serialized.
+public final class CoStarGraph {
+
+    // Number of changed casts that triggers folding the delta into the base
+    private static final int MERGE_THRESHOLD = 4096;
+
+    // Rough JVM sizes used for the memory estimate: an array header and a reference
+    private static final int ARRAY_HEADER = 16;
+    private static final int REFERENCE = 4;
+
+    private static final long[] NO_IDS = new long[0];
+
+    // Marks in the parent arrays of the search
+    private static final int UNSEEN = -2;
+    private static final int ROOT = -1;
+
+    // Actors connecting two actors, with the movie shared by each consecutive pair (one fewer than actors)
+    public record Path(long[] actorIds, long[] movieIds) {
+
+        public int degrees() {
+            return movieIds.length;
+        }
+    }
+
+    // A co-star of some actor: the movies they share, and the same count weighted by 1 / (cast size - 1)
+    // so that sharing a two-hander counts for more than sharing an ensemble film
+    public record CoStar(long actorId, int sharedMovies, double weight) {
+    }
+
+    // Size of the graph: actors and movies known to it, cast entries (including those of changed movies that
+    // replace base entries), pending delta writes and estimated heap use
+    public record Stats(int actors, int movies, long castEntries, int pendingWrites, long estimatedBytes) {
+    }
+
+    private volatile Snapshot snapshot = Snapshot.of(Base.EMPTY);
+
+    // Replaces the whole graph with the cast entries collected by the builder
+    public synchronized void replace(Builder builder) {
+        snapshot = Snapshot.of(builder.build());
+    }
+
+    // Sets the cast of a movie, adding the movie if it is new; an empty cast removes it from the graph
+    public synchronized void putMovie(long movieId, long[] actorIds) {
+        publish(withCast(snapshot, movieId, Builder.distinct(actorIds.clone())));
+    }
+
+    // Removes a movie from the graph
+    public void removeMovie(long movieId) {
+        putMovie(movieId, NO_IDS);
+    }
+
+    // Removes an actor from every cast it appears in
+    public synchronized void removeActor(long actorId) {
+        Snapshot current = snapshot;
+        int actor = current.actorIndex(actorId);
+        if (actor < 0) {
+            return;
+        }
+        List<Long> movies = new ArrayList<>();
+        current.forEachMovie(actor, movie -> movies.add(current.movieId(movie)));
+        Snapshot next = current;
+        for (long movieId : movies) {
+            Snapshot before = next;
+            int movie = before.movieIndex(movieId);
+            IntList members = new IntList();
+            before.forEachCastMember(movie, member -> {
+                if (member != actor) {
+                    members.add(member);
+                }
+            });
+            long[] cast = new long[members.size];
+            for (int i = 0; i < members.size; i++) {
+                cast[i] = before.actorId(members.values[i]);
+            }
+            next = withCast(before, movieId, Builder.distinct(cast));
+        }
+        publish(next);
+    }
+
+    // Returns the snapshot with the movie's cast replaced; the cast is sorted and free of duplicates
+    private static Snapshot withCast(Snapshot current, long movieId, long[] cast) {
+
+        int position = Arrays.binarySearch(current.changedMovies, movieId);
+        long[] movies = current.changedMovies;
+        long[][] casts = current.changedCasts.clone();
+        if (position >= 0) {
+            casts[position] = cast;
+        } else {
+            int insertAt = -position - 1;
+            movies = insert(movies, insertAt, movieId);
+            casts = new long[current.changedCasts.length + 1][];
+            System.arraycopy(current.changedCasts, 0, casts, 0, insertAt);
+            casts[insertAt] = cast;
+            System.arraycopy(current.changedCasts, insertAt, casts, insertAt + 1, current.changedCasts.length - insertAt);
+        }
+
+        long[] extra = current.extraActors;
+        for (long actorId : cast) {
+            if (Arrays.binarySearch(current.base.actorIds, actorId) < 0) {
+                int at = Arrays.binarySearch(extra, actorId);
+                extra = at >= 0 ? extra : insert(extra, -at - 1, actorId);
+            }
+        }
+
+        // Replace the movie's entries in the (actor, movie) ordered entry arrays with one merge pass
+        int oldEntries = position >= 0 ? current.changedCasts[position].length : 0;
+        int size = current.entryActors.length - oldEntries + cast.length;
+        long[] entryActors = new long[size];
+        long[] entryMovies = new long[size];
+        int n = 0;
+        int c = 0;
+        for (int i = 0; i <= current.entryActors.length; i++) {
+            boolean more = i < current.entryActors.length;
+            while (c < cast.length && (!more || compareEntries(cast[c], movieId,
+                    current.entryActors[i], current.entryMovies[i]) < 0)) {
+                entryActors[n] = cast[c++];
+                entryMovies[n++] = movieId;
+            }
+            if (more && current.entryMovies[i] != movieId) {
+                entryActors[n] = current.entryActors[i];
+                entryMovies[n++] = current.entryMovies[i];
+            }
+        }
+
+        return new Snapshot(current.base, movies, casts, extra, entryActors, entryMovies);
+    }
+
+    // Tells whether the actor appears in at least one movie
+    public boolean contains(long actorId) {
+        Snapshot current = snapshot;
+        int actor = current.actorIndex(actorId);
+        if (actor < 0) {
+            return false;
+        }
+        boolean[] found = {false};
+        current.forEachMovie(actor, movie -> found[0] = true);
+        return found[0];
+    }
+
+    // Finds a shortest chain of co-stars between two actors with a bidirectional breadth-first search.
+    // Returns null when they are not connected within maxDegrees movies.
+    public Path shortestPath(long fromActorId, long toActorId, int maxDegrees) {
+        Snapshot current = snapshot;
+        int from = current.actorIndex(fromActorId);
+        int to = current.actorIndex(toActorId);
+        if (from < 0 || to < 0) {
+            return null;
+        }
+        if (from == to) {
+            return new Path(new long[]{fromActorId}, NO_IDS);
+        }
+
+        // parent[actor] is the actor it was reached from, ROOT for the start and UNSEEN until reached
+        int size = current.actorCount();
+        int[] forwardParent = new int[size];
+        int[] backwardParent = new int[size];
+        Arrays.fill(forwardParent, UNSEEN);
+        Arrays.fill(backwardParent, UNSEEN);
+        forwardParent[from] = ROOT;
+        backwardParent[to] = ROOT;
+        Frontier forward = new Frontier(from);
+        Frontier backward = new Frontier(to);
+
+        // Each round expands one whole level of the smaller frontier. The first actor reached by both searches
+        // lies on a shortest path: any actor seen earlier by the other side would have been met a level sooner.
+        int meet = -1;
+        for (int degrees = 0; degrees < maxDegrees && meet < 0 && forward.size() > 0 && backward.size() > 0; degrees++) {
+            boolean forwardTurn = forward.size() <= backward.size();
+            Frontier frontier = forwardTurn ? forward : backward;
+            int[] parent = forwardTurn ? forwardParent : backwardParent;
+            int[] other = forwardTurn ? backwardParent : forwardParent;
+            meet = frontier.expand(current, parent, other);
+        }
+        if (meet < 0) {
+            return null;
+        }
+
+        // Actors from the start to the meeting point, then on to the target
+        List<Integer> chain = new ArrayList<>();
+        for (int actor = meet; actor != ROOT; actor = forwardParent[actor]) {
+            chain.add(0, actor);
+        }
+        for (int actor = backwardParent[meet]; actor != ROOT; actor = backwardParent[actor]) {
+            chain.add(actor);
+        }
+        long[] actorIds = new long[chain.size()];
+        long[] movieIds = new long[chain.size() - 1];
+        for (int i = 0; i < chain.size(); i++) {
+            actorIds[i] = current.actorId(chain.get(i));
+            if (i > 0) {
+                movieIds[i - 1] = current.movieId(current.sharedMovie(chain.get(i - 1), chain.get(i)));
+            }
+        }
+        return new Path(actorIds, movieIds);
+    }
+
+    // Returns up to limit co-stars of an actor, highest weight first
+    public List<CoStar> topCoStars(long actorId, int limit) {
+        Snapshot current = snapshot;
+        int actor = current.actorIndex(actorId);
+        if (actor < 0 || limit < 1) {
+            return List.of();
+        }
+
+        int[] shared = new int[current.actorCount()];
+        double[] weight = new double[current.actorCount()];
+        IntList touched = new IntList();
+        IntList cast = new IntList();
+        current.forEachMovie(actor, movie -> {
+            // Collect the cast first, since its size sets the weight of each co-appearance
+            cast.clear();
+            current.forEachCastMember(movie, member -> {
+                if (member != actor) {
+                    cast.add(member);
+                }
+            });
+            for (int i = 0; i < cast.size; i++) {
+                int member = cast.values[i];
+                if (shared[member]++ == 0) {
+                    touched.add(member);
+                }
+                weight[member] += 1.0 / cast.size;
+            }
+        });
+
+        List<CoStar> coStars = new ArrayList<>(touched.size);
+        for (int i = 0; i < touched.size; i++) {
+            int member = touched.values[i];
+            coStars.add(new CoStar(current.actorId(member), shared[member], weight[member]));
+        }
+        coStars.sort((left, right) -> left.weight() != right.weight()
+                ? Double.compare(right.weight(), left.weight())
+                : Long.compare(left.actorId(), right.actorId()));
+        return coStars.size() > limit ? List.copyOf(coStars.subList(0, limit)) : coStars;
+    }
+
+    // Reports the size of the graph
+    public Stats stats() {
+        Snapshot current = snapshot;
+        Base base = current.base;
+        long deltaBytes = 8L * (current.changedMovies.length + current.extraActors.length)
+                + 24L * current.entryActors.length; // Each entry is held in its cast and in both entry arrays
+        for (long[] cast : current.changedCasts) {
+            deltaBytes += ARRAY_HEADER + REFERENCE;
+        }
+        return new Stats(base.actorIds.length + current.extraActors.length, base.movieIds.length,
+                base.movieActors.length + current.entryActors.length,
+                current.changedMovies.length,
+                base.estimatedBytes + deltaBytes);
+    }
+
+    // Installs the next snapshot, folding the delta into a fresh base once it has grown large enough
+    private void publish(Snapshot next) {
+        if (next.changedMovies.length < MERGE_THRESHOLD) {
+            snapshot = next;
+        } else {
+            snapshot = Snapshot.of(next.fold());
+        }
+    }
+
+    private static int compareEntries(long actor, long movie, long otherActor, long otherMovie) {
+        return actor != otherActor ? Long.compare(actor, otherActor) : Long.compare(movie, otherMovie);
+    }
+
+    private static long[] insert(long[] sorted, int at, long value) {
+        long[] copy = new long[sorted.length + 1];
+        System.arraycopy(sorted, 0, copy, 0, at);
+        copy[at] = value;
+        System.arraycopy(sorted, at, copy, at + 1, sorted.length - at);
+        return copy;
+    }
+
+    // Growable int array, so traversals do not box
+    private static final class IntList {
+
+        int[] values = new int[16];
+        int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        void clear() {
+            size = 0;
+        }
+    }
+
+    // One side of the bidirectional search: the actors of its deepest level
+    private static final class Frontier {
+
+        private IntList actors = new IntList();
+        private int reached;
+
+        Frontier(int start) {
+            actors.add(start);
+        }
+
+        int size() {
+            return actors.size;
+        }
+
+        // Replaces the frontier with the unseen co-stars of its actors; returns an actor also seen by the other
+        // side as soon as one is reached, or -1
+        int expand(Snapshot graph, int[] parent, int[] other) {
+            IntList next = new IntList();
+            reached = -1;
+            for (int i = 0; i < actors.size && reached < 0; i++) {
+                int actor = actors.values[i];
+                graph.forEachMovie(actor, movie -> graph.forEachCastMember(movie, member -> {
+                    if (reached >= 0 || parent[member] != UNSEEN) {
+                        return;
+                    }
+                    parent[member] = actor;
+                    if (other[member] != UNSEEN) {
+                        reached = member;
+                    } else {
+                        next.add(member);
+                    }
+                }));
+            }
+            actors = next;
+            return reached;
+        }
+    }
+
+    // Collects cast entries and packs them into an immutable base
+    public static final class Builder {
+
+        private long[] movies = new long[1024];
+        private long[] actors = new long[1024];
+        private int size;
+
+        public Builder add(long movieId, long actorId) {
+            if (size == movies.length) {
+                movies = Arrays.copyOf(movies, size * 2);
+                actors = Arrays.copyOf(actors, size * 2);
+            }
+            movies[size] = movieId;
+            actors[size++] = actorId;
+            return this;
+        }
+
+        Base build() {
+            long[] movieIds = distinct(Arrays.copyOf(movies, size));
+            long[] actorIds = distinct(Arrays.copyOf(actors, size));
+            int[] movieOf = new int[size];
+            int[] actorOf = new int[size];
+            for (int i = 0; i < size; i++) {
+                movieOf[i] = Arrays.binarySearch(movieIds, movies[i]);
+                actorOf[i] = Arrays.binarySearch(actorIds, actors[i]);
+            }
+            return Base.of(movieIds, actorIds, movieOf, actorOf, size);
+        }
+
+        // Sorts and removes duplicates in place
+        private static long[] distinct(long[] values) {
+            Arrays.sort(values);
+            int count = 0;
+            for (int i = 0; i < values.length; i++) {
+                if (i == 0 || values[i] != values[i - 1]) {
+                    values[count++] = values[i];
+                }
+            }
+            return Arrays.copyOf(values, count);
+        }
+
+    }
+
+    // Immutable adjacency over a fixed set of cast entries
+    static final class Base {
+
+        static final Base EMPTY = new Base(NO_IDS, NO_IDS, new int[1], new int[0], new int[1], new int[0], 0);
+
+        final long[] movieIds;
+        final long[] actorIds;
+        final int[] movieOffsets;
+        final int[] movieActors;
+        final int[] actorOffsets;
+        final int[] actorMovies;
+        final long estimatedBytes;
+
+        Base(long[] movieIds, long[] actorIds, int[] movieOffsets, int[] movieActors,
+             int[] actorOffsets, int[] actorMovies, long estimatedBytes) {
+            this.movieIds = movieIds;
+            this.actorIds = actorIds;
+            this.movieOffsets = movieOffsets;
+            this.movieActors = movieActors;
+            this.actorOffsets = actorOffsets;
+            this.actorMovies = actorMovies;
+            this.estimatedBytes = estimatedBytes;
+        }
+
+        // Packs the first count (movie index, actor index) pairs into adjacency arrays in linear time
+        static Base of(long[] movieIds, long[] actorIds, int[] movieOf, int[] actorOf, int count) {
+            int[] movieOffsets = new int[movieIds.length + 1];
+            int[] movieActors = new int[count];
+            int[] actorOffsets = new int[actorIds.length + 1];
+            int[] actorMovies = new int[count];
+            group(movieOf, actorOf, count, movieOffsets, movieActors);
+            group(actorOf, movieOf, count, actorOffsets, actorMovies);
+
+            long bytes = 6L * ARRAY_HEADER + 8L * (movieIds.length + actorIds.length)
+                    + 4L * (movieOffsets.length + actorOffsets.length + movieActors.length + actorMovies.length);
+            return new Base(movieIds, actorIds, movieOffsets, movieActors, actorOffsets, actorMovies, bytes);
+        }
+
+        // Counting sort of the pairs by key into offsets and neighbour arrays (compressed sparse rows)
+        private static void group(int[] keys, int[] values, int count, int[] offsets, int[] neighbours) {
+            for (int i = 0; i < count; i++) {
+                offsets[keys[i] + 1]++;
+            }
+            for (int i = 1; i < offsets.length; i++) {
+                offsets[i] += offsets[i - 1];
+            }
+            int[] next = Arrays.copyOf(offsets, offsets.length - 1);
+            for (int i = 0; i < count; i++) {
+                neighbours[next[keys[i]]++] = values[i];
+            }
+        }
+    }
+
+    // Everything a reader needs, swapped atomically on each write.
+    // Actors are numbered base actors first, then actors that only appear in changed casts. Movies are numbered
+    // base movies first, then changed movies; a base movie whose cast changed is only reached as a changed movie.
+    private record Snapshot(Base base, long[] changedMovies, long[][] changedCasts,
+                            long[] extraActors, long[] entryActors, long[] entryMovies) {
+
+        // entryActors and entryMovies hold the cast entries of the changed movies, ordered by actor then movie
+
+        static Snapshot of(Base base) {
+            return new Snapshot(base, NO_IDS, new long[0][], NO_IDS, NO_IDS, NO_IDS);
+        }
+
+        int actorCount() {
+            return base.actorIds.length + extraActors.length;
+        }
+
+        // Index of an actor in this snapshot, or -1
+        int actorIndex(long actorId) {
+            int position = Arrays.binarySearch(base.actorIds, actorId);
+            if (position >= 0) {
+                return position;
+            }
+            position = Arrays.binarySearch(extraActors, actorId);
+            return position >= 0 ? base.actorIds.length + position : -1;
+        }
+
+        long actorId(int actor) {
+            return actor < base.actorIds.length ? base.actorIds[actor] : extraActors[actor - base.actorIds.length];
+        }
+
+        // Index of a movie in this snapshot, or -1
+        int movieIndex(long movieId) {
+            int position = Arrays.binarySearch(changedMovies, movieId);
+            if (position >= 0) {
+                return base.movieIds.length + position;
+            }
+            position = Arrays.binarySearch(base.movieIds, movieId);
+            return position >= 0 ? position : -1;
+        }
+
+        long movieId(int movie) {
+            return movie < base.movieIds.length ? base.movieIds[movie] : changedMovies[movie - base.movieIds.length];
+        }
+
+        // Calls back with every movie the actor currently appears in
+        void forEachMovie(int actor, IntConsumer action) {
+            if (actor < base.actorIds.length) {
+                for (int i = base.actorOffsets[actor]; i < base.actorOffsets[actor + 1]; i++) {
+                    int movie = base.actorMovies[i];
+                    if (changedMovies.length == 0 || Arrays.binarySearch(changedMovies, base.movieIds[movie]) < 0) {
+                        action.accept(movie);
+                    }
+                }
+            }
+            if (entryActors.length > 0) {
+                long actorId = actorId(actor);
+                for (int i = lowerBound(entryActors, actorId); i < entryActors.length && entryActors[i] == actorId; i++) {
+                    action.accept(base.movieIds.length + Arrays.binarySearch(changedMovies, entryMovies[i]));
+                }
+            }
+        }
+
+        // Calls back with every actor in the movie's cast
+        void forEachCastMember(int movie, IntConsumer action) {
+            if (movie < base.movieIds.length) {
+                for (int i = base.movieOffsets[movie]; i < base.movieOffsets[movie + 1]; i++) {
+                    action.accept(base.movieActors[i]);
+                }
+            } else {
+                for (long actorId : changedCasts[movie - base.movieIds.length]) {
+                    action.accept(actorIndex(actorId));
+                }
+            }
+        }
+
+        // A movie both actors appear in; they are known to be co-stars
+        int sharedMovie(int first, int second) {
+            int[] found = {-1};
+            forEachMovie(first, movie -> {
+                if (found[0] < 0) {
+                    forEachCastMember(movie, member -> {
+                        if (member == second) {
+                            found[0] = movie;
+                        }
+                    });
+                }
+            });
+            return found[0];
+        }
+
+        // Builds a base holding the current cast entries, without the delta. Runs in linear time: surviving base
+        // entries keep their order and are only renumbered, and just the changed casts are looked up.
+        Base fold() {
+            // Movies: base movies whose cast did not change, merged by ID with the changed movies that still have a cast
+            long[] movieIds = new long[base.movieIds.length + changedMovies.length];
+            int[] movieMap = new int[base.movieIds.length];
+            int[] changedMap = new int[changedMovies.length];
+            int movieCount = 0;
+            int m = 0;
+            for (int c = 0; c <= changedMovies.length; c++) {
+                long next = c < changedMovies.length ? changedMovies[c] : Long.MAX_VALUE;
+                for (; m < base.movieIds.length && base.movieIds[m] <= next; m++) {
+                    boolean replaced = base.movieIds[m] == next;
+                    movieMap[m] = replaced ? -1 : movieCount;
+                    if (!replaced) {
+                        movieIds[movieCount++] = base.movieIds[m];
+                    }
+                }
+                if (c < changedMovies.length) {
+                    changedMap[c] = changedCasts[c].length > 0 ? movieCount : -1;
+                    if (changedCasts[c].length > 0) {
+                        movieIds[movieCount++] = next;
+                    }
+                }
+            }
+
+            // Actors: base and extra actors, merged by ID; base actors keep their relative order
+            long[] actorIds = new long[base.actorIds.length + extraActors.length];
+            int[] actorMap = new int[base.actorIds.length];
+            int actorCount = 0;
+            for (int a = 0, e = 0; a < base.actorIds.length || e < extraActors.length; ) {
+                if (e == extraActors.length || (a < base.actorIds.length && base.actorIds[a] < extraActors[e])) {
+                    actorMap[a] = actorCount;
+                    actorIds[actorCount++] = base.actorIds[a++];
+                } else {
+                    actorIds[actorCount++] = extraActors[e++];
+                }
+            }
+
+            int capacity = base.movieActors.length + entryActors.length;
+            int[] movieOf = new int[capacity];
+            int[] actorOf = new int[capacity];
+            int count = 0;
+            for (int movie = 0; movie < base.movieIds.length; movie++) {
+                if (movieMap[movie] < 0) {
+                    continue;
+                }
+                for (int i = base.movieOffsets[movie]; i < base.movieOffsets[movie + 1]; i++) {
+                    movieOf[count] = movieMap[movie];
+                    actorOf[count++] = actorMap[base.movieActors[i]];
+                }
+            }
+            for (int c = 0; c < changedMovies.length; c++) {
+                for (long actorId : changedCasts[c]) {
+                    movieOf[count] = changedMap[c];
+                    actorOf[count++] = Arrays.binarySearch(actorIds, actorId);
+                }
+            }
+            return Base.of(Arrays.copyOf(movieIds, movieCount), actorIds, movieOf, actorOf, count);
+        }
+
+        private static int lowerBound(long[] sorted, long value) {
+            int low = 0;
+            int high = sorted.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (sorted[middle] < value) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+    }
+}
@@ -0,0 +1,374 @@
+package com.pablo9298.kmdb.index;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+// Compressed set of non-negative ints, laid out like a Roaring bitmap.
+//
+// Values are split into chunks of 65536 by their upper 16 bits. Each chunk keeps its lower 16 bits in one
+// of two containers: a sorted char[] while it holds at most ARRAY_LIMIT values, otherwise a long[1024] with
+// one bit per value. Sparse sets (an actor's filmography) cost two bytes per value and dense ones (a popular
+// genre) one bit per possible value, and intersections work chunk by chunk on whichever forms meet.
+//
+// Instances are not thread-safe; MovieFacetIndex guards them with its lock.
+public final class CompressedBitmap {
+
+    // Largest array container; beyond it a bitmap container (8 KB) is smaller
+    private static final int ARRAY_LIMIT = 4096;
+    private static final int WORDS = 1024;
+
+    // Rough JVM sizes used for the memory estimate: an object or array header and a reference
+    private static final int HEADER = 16;
+    private static final int REFERENCE = 4;
+
+    private static final char[] NO_KEYS = new char[0];
+
+    // keys[i] is the upper 16 bits of the values in containers[i], which is a char[] or a long[]
+    private char[] keys = NO_KEYS;
+    private Object[] containers = new Object[0];
+    private int[] cardinalities = new int[0];
+    private int size;
+
+    // Adds a value; returns false if it was already present
+    public boolean add(int value) {
+        char key = (char) (value >>> 16);
+        char low = (char) value;
+        int index = find(key);
+        if (index < 0) {
+            insertContainer(-index - 1, key, new char[]{low}, 1);
+            return true;
+        }
+        if (containers[index] instanceof char[] array) {
+            int position = Arrays.binarySearch(array, low);
+            if (position >= 0) {
+                return false;
+            }
+            if (array.length < ARRAY_LIMIT) {
+                int insertAt = -position - 1;
+                char[] grown = new char[array.length + 1];
+                System.arraycopy(array, 0, grown, 0, insertAt);
+                grown[insertAt] = low;
+                System.arraycopy(array, insertAt, grown, insertAt + 1, array.length - insertAt);
+                containers[index] = grown;
+            } else {
+                long[] words = toWords(array);
+                words[low >>> 6] |= 1L << low;
+                containers[index] = words;
+            }
+        } else {
+            long[] words = (long[]) containers[index];
+            long bit = 1L << low;
+            if ((words[low >>> 6] & bit) != 0) {
+                return false;
+            }
+            words[low >>> 6] |= bit;
+        }
+        cardinalities[index]++;
+        return true;
+    }
+
+    // Removes a value; returns false if it was not present
+    public boolean remove(int value) {
+        int index = find((char) (value >>> 16));
+        if (index < 0) {
+            return false;
+        }
+        char low = (char) value;
+        if (containers[index] instanceof char[] array) {
+            int position = Arrays.binarySearch(array, low);
+            if (position < 0) {
+                return false;
+            }
+            char[] shrunk = new char[array.length - 1];
+            System.arraycopy(array, 0, shrunk, 0, position);
+            System.arraycopy(array, position + 1, shrunk, position, array.length - position - 1);
+            containers[index] = shrunk;
+        } else {
+            long[] words = (long[]) containers[index];
+            long bit = 1L << low;
+            if ((words[low >>> 6] & bit) == 0) {
+                return false;
+            }
+            words[low >>> 6] &= ~bit;
+            if (cardinalities[index] - 1 <= ARRAY_LIMIT) {
+                containers[index] = toArray(words, cardinalities[index] - 1);
+            }
+        }
+        if (--cardinalities[index] == 0) {
+            removeContainer(index);
+        }
+        return true;
+    }
+
+    public boolean contains(int value) {
+        int index = find((char) (value >>> 16));
+        if (index < 0) {
+            return false;
+        }
+        char low = (char) value;
+        return containers[index] instanceof char[] array
+                ? Arrays.binarySearch(array, low) >= 0
+                : (((long[]) containers[index])[low >>> 6] & (1L << low)) != 0;
+    }
+
+    public int cardinality() {
+        int total = 0;
+        for (int i = 0; i < size; i++) {
+            total += cardinalities[i];
+        }
+        return total;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    // Copy that keeps every chunk as a bitmap container, whatever its size. Intersecting it with another
+    // bitmap then costs one probe per value of an array container or one word per word of a bitmap container,
+    // instead of a merge of two arrays, which pays off when one filter is counted against many bitmaps
+    public CompressedBitmap toBitmapContainers() {
+        CompressedBitmap result = new CompressedBitmap();
+        for (int i = 0; i < size; i++) {
+            Object container = containers[i] instanceof char[] array ? toWords(array) : ((long[]) containers[i]).clone();
+            result.insertContainer(result.size, keys[i], container, cardinalities[i]);
+        }
+        return result;
+    }
+
+    // Returns up to limit values greater than after, in ascending order
+    public int[] values(int after, int limit) {
+        int[] result = new int[Math.min(limit, cardinality())];
+        int count = 0;
+        int from = after + 1;
+        for (int i = 0; i < size && count < result.length; i++) {
+            int high = keys[i] << 16;
+            if (high + 0xFFFF < from) {
+                continue;
+            }
+            if (containers[i] instanceof char[] array) {
+                for (char low : array) {
+                    if (high + low >= from) {
+                        result[count++] = high + low;
+                        if (count == result.length) {
+                            break;
+                        }
+                    }
+                }
+            } else {
+                long[] words = (long[]) containers[i];
+                for (int w = 0; w < WORDS && count < result.length; w++) {
+                    long word = words[w];
+                    while (word != 0 && count < result.length) {
+                        int value = high + (w << 6) + Long.numberOfTrailingZeros(word);
+                        word &= word - 1;
+                        if (value >= from) {
+                            result[count++] = value;
+                        }
+                    }
+                }
+            }
+        }
+        return count == result.length ? result : Arrays.copyOf(result, count);
+    }
+
+    // Heap held by the bitmap, estimated from its containers
+    public long estimatedBytes() {
+        long bytes = 3L * HEADER + HEADER + 2L * keys.length + (long) REFERENCE * containers.length + 4L * cardinalities.length;
+        for (int i = 0; i < size; i++) {
+            bytes += HEADER + (containers[i] instanceof char[] array ? 2L * array.length : 8L * WORDS);
+        }
+        return bytes;
+    }
+
+    // Values present in both bitmaps
+    public static CompressedBitmap and(CompressedBitmap left, CompressedBitmap right) {
+        CompressedBitmap result = new CompressedBitmap();
+        for (int i = 0, j = 0; i < left.size && j < right.size; ) {
+            if (left.keys[i] < right.keys[j]) {
+                i++;
+            } else if (left.keys[i] > right.keys[j]) {
+                j++;
+            } else {
+                Object container = andContainers(left.containers[i], right.containers[j]);
+                int cardinality = cardinality(container);
+                if (cardinality > 0) {
+                    result.insertContainer(result.size, left.keys[i], container, cardinality);
+                }
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    // Number of values present in both bitmaps, without building their intersection
+    public static int andCardinality(CompressedBitmap left, CompressedBitmap right) {
+        int total = 0;
+        for (int i = 0, j = 0; i < left.size && j < right.size; ) {
+            if (left.keys[i] < right.keys[j]) {
+                i++;
+            } else if (left.keys[i] > right.keys[j]) {
+                j++;
+            } else {
+                total += andCardinality(left.containers[i++], right.containers[j++]);
+            }
+        }
+        return total;
+    }
+
+    // Values present in any of the bitmaps; every key is accumulated as a bitmap container, so a union
+    // of many small arrays costs one bit per value instead of a merge per input
+    public static CompressedBitmap or(List<CompressedBitmap> bitmaps) {
+        SortedMap<Character, long[]> accumulated = new TreeMap<>();
+        for (CompressedBitmap bitmap : bitmaps) {
+            for (int j = 0; j < bitmap.size; j++) {
+                long[] words = accumulated.computeIfAbsent(bitmap.keys[j], key -> new long[WORDS]);
+                if (bitmap.containers[j] instanceof long[] otherWords) {
+                    for (int w = 0; w < WORDS; w++) {
+                        words[w] |= otherWords[w];
+                    }
+                } else {
+                    for (char low : (char[]) bitmap.containers[j]) {
+                        words[low >>> 6] |= 1L << low;
+                    }
+                }
+            }
+        }
+        CompressedBitmap result = new CompressedBitmap();
+        accumulated.forEach((key, words) -> {
+            int count = cardinality(words);
+            result.insertContainer(result.size, key, count > ARRAY_LIMIT ? words : toArray(words, count), count);
+        });
+        return result;
+    }
+
+    private int find(char key) {
+        return Arrays.binarySearch(keys, 0, size, key);
+    }
+
+    private void insertContainer(int index, char key, Object container, int cardinality) {
+        if (size == keys.length) {
+            int capacity = Math.max(4, size * 2);
+            keys = Arrays.copyOf(keys, capacity);
+            containers = Arrays.copyOf(containers, capacity);
+            cardinalities = Arrays.copyOf(cardinalities, capacity);
+        }
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(containers, index, containers, index + 1, size - index);
+        System.arraycopy(cardinalities, index, cardinalities, index + 1, size - index);
+        keys[index] = key;
+        containers[index] = container;
+        cardinalities[index] = cardinality;
+        size++;
+    }
+
+    private void removeContainer(int index) {
+        System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+        System.arraycopy(containers, index + 1, containers, index, size - index - 1);
+        System.arraycopy(cardinalities, index + 1, cardinalities, index, size - index - 1);
+        containers[--size] = null;
+    }
+
+    private static Object andContainers(Object left, Object right) {
+        if (left instanceof char[] a && right instanceof char[] b) {
+            char[] result = new char[Math.min(a.length, b.length)];
+            int count = 0;
+            for (int i = 0, j = 0; i < a.length && j < b.length; ) {
+                if (a[i] < b[j]) {
+                    i++;
+                } else if (a[i] > b[j]) {
+                    j++;
+                } else {
+                    result[count++] = a[i++];
+                    j++;
+                }
+            }
+            return Arrays.copyOf(result, count);
+        }
+        if (left instanceof long[] a && right instanceof long[] b) {
+            long[] words = new long[WORDS];
+            int count = 0;
+            for (int w = 0; w < WORDS; w++) {
+                words[w] = a[w] & b[w];
+                count += Long.bitCount(words[w]);
+            }
+            return count > ARRAY_LIMIT ? words : toArray(words, count);
+        }
+        char[] array = left instanceof char[] a ? a : (char[]) right;
+        long[] words = left instanceof long[] a ? a : (long[]) right;
+        char[] result = new char[array.length];
+        int count = 0;
+        for (char low : array) {
+            if ((words[low >>> 6] & (1L << low)) != 0) {
+                result[count++] = low;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    private static int andCardinality(Object left, Object right) {
+        if (left instanceof char[] a && right instanceof char[] b) {
+            // Branch-free merge: on interleaved arrays the comparisons are unpredictable, so advancing both
+            // cursors by the outcome of a comparison is several times faster than branching on it
+            int count = 0;
+            for (int i = 0, j = 0; i < a.length && j < b.length; ) {
+                char x = a[i];
+                char y = b[j];
+                count += x == y ? 1 : 0;
+                i += x <= y ? 1 : 0;
+                j += x >= y ? 1 : 0;
+            }
+            return count;
+        }
+        if (left instanceof long[] a && right instanceof long[] b) {
+            int count = 0;
+            for (int w = 0; w < WORDS; w++) {
+                count += Long.bitCount(a[w] & b[w]);
+            }
+            return count;
+        }
+        char[] array = left instanceof char[] a ? a : (char[]) right;
+        long[] words = left instanceof long[] a ? a : (long[]) right;
+        int count = 0;
+        for (char low : array) {
+            if ((words[low >>> 6] & (1L << low)) != 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static int cardinality(Object container) {
+        if (container instanceof char[] array) {
+            return array.length;
+        }
+        int count = 0;
+        for (long word : (long[]) container) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    private static long[] toWords(char[] array) {
+        long[] words = new long[WORDS];
+        for (char low : array) {
+            words[low >>> 6] |= 1L << low;
+        }
+        return words;
+    }
+
+    private static char[] toArray(long[] words, int cardinality) {
+        char[] array = new char[cardinality];
+        int count = 0;
+        for (int w = 0; w < WORDS; w++) {
+            long word = words[w];
+            while (word != 0) {
+                array[count++] = (char) ((w << 6) + Long.numberOfTrailingZeros(word));
+                word &= word - 1;
+            }
+        }
+        return array;
+    }
+}
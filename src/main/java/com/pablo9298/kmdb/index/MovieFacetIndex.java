@@ -0,0 +1,274 @@
+package com.pablo9298.kmdb.index;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// In-memory bitmap indexes for faceted movie filtering.
+//
+// Every genre, actor, release year and duration (in whole minutes) has a CompressedBitmap of the IDs of its
+// movies. A query intersects the bitmaps of its filters, where a year or duration range is the union of the
+// bitmaps it spans, and facet counts are intersection sizes computed without materializing the intersections.
+// Decades and DURATION_BUCKET-minute buckets have bitmaps of their own for counting: a few dense bitmaps
+// intersect much faster than a hundred sparse ones, while the exact ones let range bounds fall anywhere.
+//
+// Readers share a read lock and writers take the write lock; both hold it for microseconds.
+public final class MovieFacetIndex {
+
+    // Width of the duration buckets reported as facets, in minutes
+    public static final int DURATION_BUCKET = 30;
+
+    // Filters of a query; empty sets and null bounds do not filter. Genres and actors must all match.
+    public record Query(Set<Long> genreIds, Set<Long> actorIds, Integer yearFrom, Integer yearTo,
+                        Integer durationMin, Integer durationMax) {
+    }
+
+    // Movies matching a query: their total, up to limit IDs after the requested one, and the facet counts.
+    // Genre counts are taken within the result, so they tell how far adding that genre would narrow it.
+    // Decade and duration counts ignore the query's own year or duration range, so they show the alternatives.
+    public record Result(int total, long[] movieIds, Map<Long, Integer> genreCounts,
+                         SortedMap<Integer, Integer> decadeCounts, SortedMap<Integer, Integer> durationCounts) {
+    }
+
+    // Number of indexed movies, values per facet and estimated heap use
+    public record Stats(int movies, int genres, int actors, int years, int durations, long estimatedBytes) {
+    }
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private Facets facets = new Facets();
+
+    // Replaces all indexes with the movies collected by the builder
+    public void replace(Builder builder) {
+        lock.writeLock().lock();
+        try {
+            facets = builder.facets;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Indexes a movie under its current values
+    public void put(long movieId, Integer year, Integer duration, Collection<Long> genreIds, Collection<Long> actorIds) {
+        lock.writeLock().lock();
+        try {
+            facets.add(toInt(movieId), year, duration, genreIds, actorIds);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Removes a movie from the indexes of the values it was put under
+    public void remove(long movieId, Integer year, Integer duration, Collection<Long> genreIds, Collection<Long> actorIds) {
+        lock.writeLock().lock();
+        try {
+            int id = toInt(movieId);
+            facets.all.remove(id);
+            if (year != null) {
+                removeFrom(facets.years, year, id);
+                removeFrom(facets.decades, bucket(year, 10), id);
+            }
+            if (duration != null) {
+                removeFrom(facets.durations, duration, id);
+                removeFrom(facets.durationBuckets, bucket(duration, DURATION_BUCKET), id);
+            }
+            genreIds.forEach(genreId -> removeFrom(facets.genres, genreId, id));
+            actorIds.forEach(actorId -> removeFrom(facets.actors, actorId, id));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Drops the index of a deleted genre
+    public void removeGenre(long genreId) {
+        lock.writeLock().lock();
+        try {
+            facets.genres.remove(genreId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Drops the index of a deleted actor
+    public void removeActor(long actorId) {
+        lock.writeLock().lock();
+        try {
+            facets.actors.remove(actorId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Answers a query with up to limit movie IDs greater than afterId, in ID order
+    public Result search(Query query, long afterId, int limit) {
+        lock.readLock().lock();
+        try {
+            Facets current = facets;
+            CompressedBitmap byLinks = current.byLinks(query);
+            CompressedBitmap byYear = query.yearFrom() != null || query.yearTo() != null
+                    ? union(current.years, current.decades, 10, query.yearFrom(), query.yearTo()) : null;
+            CompressedBitmap byDuration = query.durationMin() != null || query.durationMax() != null
+                    ? union(current.durations, current.durationBuckets, DURATION_BUCKET, query.durationMin(), query.durationMax()) : null;
+
+            CompressedBitmap result = intersect(intersect(byLinks, byYear), byDuration);
+            CompressedBitmap matches = result != null ? result : current.all;
+
+            CompressedBitmap counted = result != null ? result.toBitmapContainers() : null;
+            Map<Long, Integer> genreCounts = new TreeMap<>();
+            current.genres.forEach((genreId, movies) -> {
+                int count = counted != null ? CompressedBitmap.andCardinality(counted, movies) : movies.cardinality();
+                if (count > 0) {
+                    genreCounts.put(genreId, count);
+                }
+            });
+            SortedMap<Integer, Integer> decadeCounts = count(current.decades, intersect(byLinks, byDuration));
+            SortedMap<Integer, Integer> durationCounts = count(current.durationBuckets, intersect(byLinks, byYear));
+
+            int[] page = afterId < Integer.MAX_VALUE ? matches.values((int) Math.max(afterId, -1), limit) : new int[0];
+            return new Result(matches.cardinality(), Arrays.stream(page).asLongStream().toArray(),
+                    genreCounts, decadeCounts, durationCounts);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Reports the size of the indexes
+    public Stats stats() {
+        lock.readLock().lock();
+        try {
+            Facets current = facets;
+            long bytes = current.all.estimatedBytes();
+            for (Map<?, CompressedBitmap> index : List.of(current.genres, current.actors, current.years, current.durations,
+                    current.decades, current.durationBuckets)) {
+                for (CompressedBitmap bitmap : index.values()) {
+                    bytes += 48 + bitmap.estimatedBytes(); // Map entry, boxed key and the bitmap
+                }
+            }
+            return new Stats(current.all.cardinality(), current.genres.size(), current.actors.size(),
+                    current.years.size(), current.durations.size(), bytes);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Sizes of each bucket's bitmap within the filter (all movies when null)
+    private static SortedMap<Integer, Integer> count(NavigableMap<Integer, CompressedBitmap> buckets, CompressedBitmap filter) {
+        CompressedBitmap counted = filter != null ? filter.toBitmapContainers() : null;
+        SortedMap<Integer, Integer> counts = new TreeMap<>();
+        buckets.forEach((bucket, movies) -> {
+            int count = counted != null ? CompressedBitmap.andCardinality(counted, movies) : movies.cardinality();
+            if (count > 0) {
+                counts.put(bucket, count);
+            }
+        });
+        return counts;
+    }
+
+    // Start of the bucket of the given width that holds a value
+    private static int bucket(int value, int width) {
+        return Math.floorDiv(value, width) * width;
+    }
+
+    // Movies with a value in an inclusive range, where open ends are unbounded. Buckets the range covers whole
+    // are taken from their own bitmaps, so only the values in the buckets at either end are unioned one by one.
+    private static CompressedBitmap union(NavigableMap<Integer, CompressedBitmap> values, NavigableMap<Integer, CompressedBitmap> buckets,
+                                          int width, Integer from, Integer to) {
+        long low = from != null ? from : Long.MIN_VALUE;
+        long high = to != null ? to : Long.MAX_VALUE;
+        List<CompressedBitmap> parts = new ArrayList<>();
+        buckets.forEach((bucket, movies) -> {
+            long last = (long) bucket + width - 1;
+            if (bucket >= low && last <= high) {
+                parts.add(movies);
+            } else if (last >= low && bucket <= high) {
+                parts.addAll(values.subMap((int) Math.max(low, bucket), true, (int) Math.min(high, last), true).values());
+            }
+        });
+        return CompressedBitmap.or(parts);
+    }
+
+    // Intersection where null means no filter
+    private static CompressedBitmap intersect(CompressedBitmap left, CompressedBitmap right) {
+        if (left == null) {
+            return right;
+        }
+        return right == null ? left : CompressedBitmap.and(left, right);
+    }
+
+    private static <K> void removeFrom(Map<K, CompressedBitmap> index, K key, int movieId) {
+        CompressedBitmap movies = index.get(key);
+        if (movies != null && movies.remove(movieId) && movies.isEmpty()) {
+            index.remove(key);
+        }
+    }
+
+    // Movie IDs are stored as ints; SQLite row IDs beyond that range are not expected in a movie catalog
+    private static int toInt(long movieId) {
+        return Math.toIntExact(movieId);
+    }
+
+    // Collects movies into fresh indexes
+    public static final class Builder {
+
+        private final Facets facets = new Facets();
+
+        public Builder movie(long movieId, Integer year, Integer duration) {
+            facets.add(toInt(movieId), year, duration, List.of(), List.of());
+            return this;
+        }
+
+        public Builder genre(long movieId, long genreId) {
+            facets.genres.computeIfAbsent(genreId, key -> new CompressedBitmap()).add(toInt(movieId));
+            return this;
+        }
+
+        public Builder actor(long movieId, long actorId) {
+            facets.actors.computeIfAbsent(actorId, key -> new CompressedBitmap()).add(toInt(movieId));
+            return this;
+        }
+    }
+
+    // The bitmaps, keyed by facet value
+    private static final class Facets {
+
+        final CompressedBitmap all = new CompressedBitmap();
+        final Map<Long, CompressedBitmap> genres = new HashMap<>();
+        final Map<Long, CompressedBitmap> actors = new HashMap<>();
+        final NavigableMap<Integer, CompressedBitmap> years = new TreeMap<>();
+        final NavigableMap<Integer, CompressedBitmap> durations = new TreeMap<>();
+        final NavigableMap<Integer, CompressedBitmap> decades = new TreeMap<>();
+        final NavigableMap<Integer, CompressedBitmap> durationBuckets = new TreeMap<>();
+
+        void add(int movieId, Integer year, Integer duration, Collection<Long> genreIds, Collection<Long> actorIds) {
+            all.add(movieId);
+            if (year != null) {
+                years.computeIfAbsent(year, key -> new CompressedBitmap()).add(movieId);
+                decades.computeIfAbsent(bucket(year, 10), key -> new CompressedBitmap()).add(movieId);
+            }
+            if (duration != null) {
+                durations.computeIfAbsent(duration, key -> new CompressedBitmap()).add(movieId);
+                durationBuckets.computeIfAbsent(bucket(duration, DURATION_BUCKET), key -> new CompressedBitmap()).add(movieId);
+            }
+            genreIds.forEach(genreId -> genres.computeIfAbsent(genreId, key -> new CompressedBitmap()).add(movieId));
+            actorIds.forEach(actorId -> actors.computeIfAbsent(actorId, key -> new CompressedBitmap()).add(movieId));
+        }
+
+        // Movies having all the requested genres and actors, smallest bitmap first; null when neither is requested
+        CompressedBitmap byLinks(Query query) {
+            List<CompressedBitmap> required = new ArrayList<>();
+            for (Long genreId : query.genreIds()) {
+                required.add(genres.getOrDefault(genreId, new CompressedBitmap()));
+            }
+            for (Long actorId : query.actorIds()) {
+                required.add(actors.getOrDefault(actorId, new CompressedBitmap()));
+            }
+            if (required.isEmpty()) {
+                return null;
+            }
+            required.sort(Comparator.comparingInt(CompressedBitmap::cardinality));
+            CompressedBitmap result = required.get(0);
+            for (int i = 1; i < required.size() && !result.isEmpty(); i++) {
+                result = CompressedBitmap.and(result, required.get(i));
+            }
+            return result;
+        }
+    }
+}
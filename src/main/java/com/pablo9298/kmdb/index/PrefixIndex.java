@@ -0,0 +1,479 @@
+package com.pablo9298.kmdb.index;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+// In-memory word-prefix index for typeahead over short labels such as titles and names.
+//
+// Every label is normalized once (lower case, no diacritics, punctuation collapsed to single spaces).
+// Each word start in it becomes an entry packed into a long (document index, character offset).
+// Entries are kept in a sorted long[] ordered by the text from that offset on, so a prefix query is
+// a binary search followed by a short forward scan. No per-entry objects or substrings are stored.
+//
+// The sorted base is immutable. Writes go to a small delta of added documents and a sorted array
+// of deleted IDs, and are folded into a new base once the delta grows past MERGE_THRESHOLD.
+// Readers work on a volatile snapshot and never block. Writers are serialized.
+public final class PrefixIndex {
+
+    // Number of pending additions and deletions that triggers folding the delta into the base
+    private static final int MERGE_THRESHOLD = 4096;
+
+    // Rough JVM sizes used for the memory estimate: a String header plus its byte[] header, and a reference
+    private static final int STRING_OVERHEAD = 40;
+    private static final int REFERENCE = 4;
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    // A matching document
+    public record Suggestion(long id, String label) {
+    }
+
+    // Size of the index: live documents, sorted base entries, pending delta writes and estimated heap use
+    public record Stats(int documents, int entries, int pendingWrites, long estimatedBytes) {
+    }
+
+    private volatile Snapshot snapshot = new Snapshot(Base.EMPTY, new Document[0], new long[0]);
+
+    // Replaces the whole index with the documents collected by the builder
+    public synchronized void replace(Builder builder) {
+        snapshot = new Snapshot(builder.build(), new Document[0], new long[0]);
+    }
+
+    // Adds a document or replaces the label of an existing one
+    public synchronized void put(long id, String label) {
+        label = label != null ? label : "";
+        Snapshot current = snapshot;
+        List<Document> delta = new ArrayList<>(current.delta.length + 1);
+        for (Document document : current.delta) {
+            if (document.id != id) {
+                delta.add(document);
+            }
+        }
+        String normalized = normalize(label);
+        delta.add(new Document(id, label, normalized.equals(label) ? label : normalized));
+        publish(current.base, delta.toArray(new Document[0]), hide(current, id));
+    }
+
+    // Removes a document
+    public synchronized void remove(long id) {
+        Snapshot current = snapshot;
+        Document[] delta = Arrays.stream(current.delta).filter(document -> document.id != id).toArray(Document[]::new);
+        publish(current.base, delta, hide(current, id));
+    }
+
+    // Returns up to limit documents with a word starting with the given text, ordered by the matched text
+    public List<Suggestion> suggest(String text, int limit) {
+        String prefix = normalize(text);
+        if (prefix.isEmpty() || limit < 1) {
+            return List.of();
+        }
+
+        Snapshot current = snapshot;
+        Base base = current.base;
+        List<Match> deltaMatches = current.deltaMatches(prefix);
+        List<Suggestion> suggestions = new ArrayList<>(limit);
+        Set<Long> seen = new HashSet<>();
+
+        int b = base.lowerBound(prefix);
+        int d = 0;
+        while (suggestions.size() < limit) {
+            boolean baseHasMore = b < base.entries.length && base.compareToPrefix(b, prefix) == 0;
+            boolean deltaHasMore = d < deltaMatches.size();
+            if (!baseHasMore && !deltaHasMore) {
+                break;
+            }
+
+            // Take whichever candidate sorts first, as a regular merge of two sorted sequences
+            if (baseHasMore && (!deltaHasMore || base.compareTo(b, deltaMatches.get(d).suffix()) <= 0)) {
+                int doc = base.document(b++);
+                long id = base.ids[doc];
+                if (Arrays.binarySearch(current.deleted, id) < 0 && seen.add(id)) {
+                    suggestions.add(new Suggestion(id, base.labels[doc]));
+                }
+            } else {
+                Document document = deltaMatches.get(d++).document();
+                if (seen.add(document.id)) {
+                    suggestions.add(new Suggestion(document.id, document.label));
+                }
+            }
+        }
+        return suggestions;
+    }
+
+    // Reports the size of the index
+    public Stats stats() {
+        Snapshot current = snapshot;
+        long deltaBytes = 0;
+        for (Document document : current.delta) {
+            deltaBytes += REFERENCE + documentBytes(document.label, document.normalized);
+        }
+        int pending = current.delta.length + current.deleted.length;
+        return new Stats(current.base.ids.length - current.deleted.length + current.delta.length,
+                current.base.entries.length,
+                pending,
+                current.base.estimatedBytes + deltaBytes + 8L * current.deleted.length);
+    }
+
+    // Installs the next snapshot, folding the delta into a fresh base once it has grown large enough
+    private void publish(Base base, Document[] delta, long[] deleted) {
+        if (delta.length + deleted.length < MERGE_THRESHOLD) {
+            snapshot = new Snapshot(base, delta, deleted);
+        } else {
+            snapshot = new Snapshot(base.merge(delta, deleted), new Document[0], new long[0]);
+        }
+    }
+
+    // Returns the deleted IDs with the given one added, if the base holds a document for it
+    private static long[] hide(Snapshot current, long id) {
+        long[] sorted = current.deleted;
+        int position = Arrays.binarySearch(sorted, id);
+        if (position >= 0 || Arrays.binarySearch(current.base.ids, id) < 0) {
+            return sorted;
+        }
+        int insertAt = -position - 1;
+        long[] copy = new long[sorted.length + 1];
+        System.arraycopy(sorted, 0, copy, 0, insertAt);
+        copy[insertAt] = id;
+        System.arraycopy(sorted, insertAt, copy, insertAt + 1, sorted.length - insertAt);
+        return copy;
+    }
+
+    // Lower-cases, strips diacritics and collapses everything but letters and digits into single spaces
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String ascii = normalizeAscii(text);
+        if (ascii != null) {
+            return ascii;
+        }
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        String plain = DIACRITICS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+        return SEPARATORS.matcher(plain).replaceAll(" ").strip();
+    }
+
+    // Same as normalize for plain ASCII text without the Unicode machinery; null when the text needs it
+    private static String normalizeAscii(String text) {
+        StringBuilder result = new StringBuilder(text.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= 0x80) {
+                return null;
+            }
+            if ((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')) {
+                result.append(pendingSpace && result.length() > 0 ? " " : "").append(c);
+                pendingSpace = false;
+            } else if (c >= 'A' && c <= 'Z') {
+                result.append(pendingSpace && result.length() > 0 ? " " : "").append((char) (c + ('a' - 'A')));
+                pendingSpace = false;
+            } else {
+                pendingSpace = true;
+            }
+        }
+        return result.toString();
+    }
+
+    private static long stringBytes(String value) {
+        return STRING_OVERHEAD + value.length();
+    }
+
+    // Heap held per document: its ID, two references and the label plus its normalized form when they differ
+    private static long documentBytes(String label, String normalized) {
+        long bytes = 8L + 2 * REFERENCE + stringBytes(label);
+        return normalized == label ? bytes : bytes + stringBytes(normalized);
+    }
+
+    // Collects documents and sorts their word entries into an immutable base
+    public static final class Builder {
+
+        private long[] ids = new long[1024];
+        private final List<String> labels = new ArrayList<>();
+
+        public Builder add(long id, String label) {
+            if (labels.size() == ids.length) {
+                ids = Arrays.copyOf(ids, ids.length * 2);
+            }
+            ids[labels.size()] = id;
+            labels.add(label != null ? label : "");
+            return this;
+        }
+
+        Base build() {
+            // Documents are kept in ID order so writes can tell whether an ID lives in the base
+            Integer[] order = new Integer[labels.size()];
+            Arrays.setAll(order, i -> i);
+            Arrays.sort(order, (left, right) -> Long.compare(ids[left], ids[right]));
+
+            List<Integer> unique = new ArrayList<>(order.length);
+            for (Integer position : order) {
+                if (!unique.isEmpty() && ids[unique.get(unique.size() - 1)] == ids[position]) {
+                    unique.set(unique.size() - 1, Math.max(unique.get(unique.size() - 1), position)); // Last one wins
+                } else {
+                    unique.add(position);
+                }
+            }
+
+            int count = unique.size();
+            long[] documentIds = new long[count];
+            String[] documentLabels = new String[count];
+            for (int doc = 0; doc < count; doc++) {
+                documentIds[doc] = ids[unique.get(doc)];
+                documentLabels[doc] = labels.get(unique.get(doc));
+            }
+            String[] normalized = new String[count];
+            long[] entries = new long[Math.max(16, count * 2)];
+            int entryCount = 0;
+            long bytes = 0;
+
+            for (int doc = 0; doc < count; doc++) {
+                normalized[doc] = normalize(documentLabels[doc]);
+                if (normalized[doc].equals(documentLabels[doc])) {
+                    normalized[doc] = documentLabels[doc]; // Share the label instead of keeping an equal copy
+                }
+                bytes += documentBytes(documentLabels[doc], normalized[doc]);
+                String text = normalized[doc];
+                for (int offset = 0; offset < text.length(); offset++) {
+                    if (offset == 0 || text.charAt(offset - 1) == ' ') {
+                        if (entryCount == entries.length) {
+                            entries = Arrays.copyOf(entries, entries.length * 2);
+                        }
+                        entries[entryCount++] = ((long) doc << 32) | offset;
+                    }
+                }
+            }
+
+            Base unsorted = new Base(documentIds, documentLabels, normalized, new long[0], 0);
+            return new Base(documentIds, documentLabels, normalized,
+                    unsorted.sort(Arrays.copyOf(entries, entryCount)), bytes + 8L * entryCount);
+        }
+    }
+
+    // Immutable sorted entries over a fixed set of documents
+    static final class Base {
+
+        static final Base EMPTY = new Base(new long[0], new String[0], new String[0], new long[0], 0);
+
+        final long[] ids;
+        final String[] labels;
+        final String[] normalized;
+        final long[] entries;
+        final long estimatedBytes;
+
+        Base(long[] ids, String[] labels, String[] normalized, long[] entries, long estimatedBytes) {
+            this.ids = ids;
+            this.labels = labels;
+            this.normalized = normalized;
+            this.entries = entries;
+            this.estimatedBytes = estimatedBytes;
+        }
+
+        // Builds the next base from this one without the deleted IDs plus the delta, in linear time
+        Base merge(Document[] delta, long[] deleted) {
+            Document[] added = delta.clone();
+            Arrays.sort(added, (left, right) -> Long.compare(left.id, right.id));
+
+            // Merge surviving base documents and added documents by ID, remembering where each base document went
+            int capacity = ids.length + added.length;
+            long[] mergedIds = new long[capacity];
+            String[] mergedLabels = new String[capacity];
+            String[] mergedNormalized = new String[capacity];
+            int[] moved = new int[ids.length];
+            int[] addedAt = new int[added.length];
+            int count = 0;
+            int a = 0;
+            long bytes = 0;
+            for (int doc = 0; doc <= ids.length; doc++) {
+                while (a < added.length && (doc == ids.length || added[a].id <= ids[doc])) {
+                    addedAt[a] = count;
+                    mergedIds[count] = added[a].id;
+                    mergedLabels[count] = added[a].label;
+                    mergedNormalized[count++] = added[a].normalized;
+                    bytes += documentBytes(added[a].label, added[a].normalized);
+                    a++;
+                }
+                if (doc == ids.length) {
+                    break;
+                }
+                boolean replaced = count > 0 && mergedIds[count - 1] == ids[doc];
+                if (replaced || Arrays.binarySearch(deleted, ids[doc]) >= 0) {
+                    moved[doc] = -1;
+                    continue;
+                }
+                moved[doc] = count;
+                mergedIds[count] = ids[doc];
+                mergedLabels[count] = labels[doc];
+                mergedNormalized[count++] = normalized[doc];
+                bytes += documentBytes(labels[doc], normalized[doc]);
+            }
+
+            // Sort just the new entries, then merge them into the already sorted base entries
+            Base fresh = new Base(Arrays.copyOf(mergedIds, count), Arrays.copyOf(mergedLabels, count),
+                    Arrays.copyOf(mergedNormalized, count), new long[0], 0);
+            long[] addedEntries = new long[0];
+            int addedCount = 0;
+            for (int i = 0; i < added.length; i++) {
+                String text = added[i].normalized;
+                for (int offset = 0; offset < text.length(); offset++) {
+                    if (offset == 0 || text.charAt(offset - 1) == ' ') {
+                        if (addedCount == addedEntries.length) {
+                            addedEntries = Arrays.copyOf(addedEntries, Math.max(16, addedCount * 2));
+                        }
+                        addedEntries[addedCount++] = ((long) addedAt[i] << 32) | offset;
+                    }
+                }
+            }
+            addedEntries = fresh.sort(Arrays.copyOf(addedEntries, addedCount));
+
+            long[] mergedEntries = new long[entries.length + addedCount];
+            int size = 0;
+            int j = 0;
+            for (long entry : entries) {
+                int doc = moved[(int) (entry >>> 32)];
+                if (doc < 0) {
+                    continue;
+                }
+                long remapped = ((long) doc << 32) | (int) entry;
+                while (j < addedCount && fresh.compareEntries(addedEntries[j], remapped) < 0) {
+                    mergedEntries[size++] = addedEntries[j++];
+                }
+                mergedEntries[size++] = remapped;
+            }
+            while (j < addedCount) {
+                mergedEntries[size++] = addedEntries[j++];
+            }
+
+            return new Base(fresh.ids, fresh.labels, fresh.normalized, Arrays.copyOf(mergedEntries, size),
+                    bytes + 8L * size);
+        }
+
+        int document(int entry) {
+            return (int) (entries[entry] >>> 32);
+        }
+
+        int offset(int entry) {
+            return (int) entries[entry];
+        }
+
+        // Index of the first entry whose text is not smaller than the prefix
+        int lowerBound(String prefix) {
+            int low = 0;
+            int high = entries.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (compareToPrefix(middle, prefix) < 0) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        // Compares the entry's text with the prefix, looking only at the first prefix.length() characters
+        int compareToPrefix(int entry, String prefix) {
+            String text = normalized[document(entry)];
+            int offset = offset(entry);
+            int length = Math.min(text.length() - offset, prefix.length());
+            for (int i = 0; i < length; i++) {
+                int difference = text.charAt(offset + i) - prefix.charAt(i);
+                if (difference != 0) {
+                    return difference;
+                }
+            }
+            return length == prefix.length() ? 0 : -1;
+        }
+
+        // Compares the entry's full text with another text
+        int compareTo(int entry, String other) {
+            String text = normalized[document(entry)];
+            int offset = offset(entry);
+            int length = Math.min(text.length() - offset, other.length());
+            for (int i = 0; i < length; i++) {
+                int difference = text.charAt(offset + i) - other.charAt(i);
+                if (difference != 0) {
+                    return difference;
+                }
+            }
+            return (text.length() - offset) - other.length();
+        }
+
+        // Orders two packed entries by their text, then by document ID
+        private int compareEntries(long left, long right) {
+            String a = normalized[(int) (left >>> 32)];
+            String b = normalized[(int) (right >>> 32)];
+            int i = (int) left;
+            int j = (int) right;
+            while (i < a.length() && j < b.length()) {
+                int difference = a.charAt(i++) - b.charAt(j++);
+                if (difference != 0) {
+                    return difference;
+                }
+            }
+            int byLength = (a.length() - i) - (b.length() - j);
+            return byLength != 0 ? byLength : Long.compare(ids[(int) (left >>> 32)], ids[(int) (right >>> 32)]);
+        }
+
+        // Bottom-up merge sort over packed entries of this base's documents; avoids boxing millions of longs
+        long[] sort(long[] unsorted) {
+            long[] source = unsorted;
+            long[] target = new long[source.length];
+            for (int width = 1; width < source.length; width *= 2) {
+                for (int low = 0; low < source.length; low += 2 * width) {
+                    int middle = Math.min(low + width, source.length);
+                    int high = Math.min(low + 2 * width, source.length);
+                    int i = low;
+                    int j = middle;
+                    int k = low;
+                    while (i < middle && j < high) {
+                        target[k++] = compareEntries(source[i], source[j]) <= 0 ? source[i++] : source[j++];
+                    }
+                    while (i < middle) {
+                        target[k++] = source[i++];
+                    }
+                    while (j < high) {
+                        target[k++] = source[j++];
+                    }
+                }
+                long[] swap = source;
+                source = target;
+                target = swap;
+            }
+            return source;
+        }
+    }
+
+    // A document added or changed since the base was built
+    private record Document(long id, String label, String normalized) {
+    }
+
+    // A delta document matched at one of its word starts, with the text from that word on
+    private record Match(Document document, String suffix) {
+    }
+
+    // Everything a reader needs, swapped atomically on each write
+    private record Snapshot(Base base, Document[] delta, long[] deleted) {
+
+        // Scans the pending documents for word starts matching the prefix, in text order
+        List<Match> deltaMatches(String prefix) {
+            List<Match> matches = new ArrayList<>();
+            for (Document document : delta) {
+                String text = document.normalized;
+                for (int offset = 0; offset < text.length(); offset++) {
+                    if ((offset == 0 || text.charAt(offset - 1) == ' ') && text.startsWith(prefix, offset)) {
+                        matches.add(new Match(document, text.substring(offset)));
+                    }
+                }
+            }
+            matches.sort((left, right) -> left.suffix().compareTo(right.suffix()));
+            return matches;
+        }
+    }
+}
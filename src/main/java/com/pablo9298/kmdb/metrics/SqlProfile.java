@@ -0,0 +1,116 @@
+package com.pablo9298.kmdb.metrics;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+// Statements executed on one thread between start() and close(), grouped by SQL shape.
+// The profiling filter opens one per API request. Tests open their own and assert on it:
+//
+//     try (SqlProfile profile = SqlProfile.start()) {
+//         movieService.getMoviesByGenreId(genreId, null, 20);
+//         profile.assertStatementCountAtMost(2).assertNoRepeatedStatements(3);
+//     }
+//
+// Profiles nest; statements count towards every open profile on the thread.
+public final class SqlProfile implements AutoCloseable {
+
+    private static final ThreadLocal<SqlProfile> CURRENT = new ThreadLocal<>();
+
+    // Executions and total time of one SQL shape
+    public record ShapeStats(String sql, int executions, long totalNanos) {
+    }
+
+    private final SqlProfile parent;
+    private final Map<String, long[]> byStatement = new LinkedHashMap<>(); // Raw SQL -> {executions, nanos}
+    private int statementCount;
+    private long totalNanos;
+    private boolean closed;
+
+    private SqlProfile(SqlProfile parent) {
+        this.parent = parent;
+    }
+
+    // Starts recording the statements executed on the current thread
+    public static SqlProfile start() {
+        SqlProfile profile = new SqlProfile(CURRENT.get());
+        CURRENT.set(profile);
+        return profile;
+    }
+
+    // Adds an executed statement to every open profile on the current thread
+    static void recordOnCurrentThread(String sql, long nanos) {
+        for (SqlProfile profile = CURRENT.get(); profile != null; profile = profile.parent) {
+            long[] stats = profile.byStatement.computeIfAbsent(sql, key -> new long[2]);
+            stats[0]++;
+            stats[1] += nanos;
+            profile.statementCount++;
+            profile.totalNanos += nanos;
+        }
+    }
+
+    // Stops recording and makes the enclosing profile, if any, current again
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            CURRENT.set(parent);
+        }
+    }
+
+    public int statementCount() {
+        return statementCount;
+    }
+
+    public long totalNanos() {
+        return totalNanos;
+    }
+
+    // Statements grouped by shape, most executed first
+    public List<ShapeStats> shapes() {
+        Map<String, long[]> byShape = new LinkedHashMap<>();
+        byStatement.forEach((sql, stats) -> {
+            long[] total = byShape.computeIfAbsent(SqlShape.of(sql), key -> new long[2]);
+            total[0] += stats[0];
+            total[1] += stats[1];
+        });
+        List<ShapeStats> shapes = new ArrayList<>();
+        byShape.forEach((shape, stats) -> shapes.add(new ShapeStats(shape, (int) stats[0], stats[1])));
+        shapes.sort(Comparator.comparingInt(ShapeStats::executions).reversed());
+        return shapes;
+    }
+
+    // Shapes executed at least threshold times, the signature of an N+1 access pattern
+    public List<ShapeStats> repeatedStatements(int threshold) {
+        return shapes().stream().filter(shape -> shape.executions() >= threshold).toList();
+    }
+
+    // Fails when more than max statements were executed
+    public SqlProfile assertStatementCountAtMost(int max) {
+        if (statementCount > max) {
+            throw new AssertionError("Expected at most " + max + " SQL statements but " + statementCount
+                    + " were executed:\n" + summary());
+        }
+        return this;
+    }
+
+    // Fails when any statement shape was executed threshold times or more
+    public SqlProfile assertNoRepeatedStatements(int threshold) {
+        List<ShapeStats> repeated = repeatedStatements(threshold);
+        if (!repeated.isEmpty()) {
+            throw new AssertionError("Expected no SQL statement to run " + threshold + " or more times, possible N+1:\n"
+                    + summary());
+        }
+        return this;
+    }
+
+    // One line per shape with its execution count and time
+    public String summary() {
+        return shapes().stream()
+                .map(shape -> String.format("%4dx %8.2f ms  %s", shape.executions(), shape.totalNanos() / 1e6, shape.sql()))
+                .collect(Collectors.joining("\n"));
+    }
+}
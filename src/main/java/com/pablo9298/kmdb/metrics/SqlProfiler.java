@@ -0,0 +1,91 @@
+package com.pablo9298.kmdb.metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+// JDBC statement profiler. Wraps the application data source in a ProfilingDataSource,
+// feeds every executed statement into the open SqlProfile of the current thread and
+// logs sampled warnings for slow statements and for statements repeated within a request.
+@Component
+public class SqlProfiler implements BeanPostProcessor {
+
+    private static final Logger log = LoggerFactory.getLogger(SqlProfiler.class);
+
+    // Upper bound on remembered warning keys, so unusual traffic cannot grow the map without limit
+    private static final int MAX_WARNING_KEYS = 10_000;
+
+    @Value("${kmdb.sql-profiler.enabled:true}")
+    private boolean enabled;
+
+    // Executions of one statement shape within a request that are reported as a possible N+1
+    @Value("${kmdb.sql-profiler.repeat-threshold:5}")
+    private int repeatThreshold;
+
+    // Execution time above which a single statement is reported as slow
+    @Value("${kmdb.sql-profiler.slow-statement-ms:250}")
+    private long slowStatementMs;
+
+    // Minimum time between two warnings about the same route and statement
+    @Value("${kmdb.sql-profiler.warning-interval-seconds:60}")
+    private long warningIntervalSeconds;
+
+    private final Map<String, Long> lastWarnings = new ConcurrentHashMap<>();
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (enabled && "dataSource".equals(beanName) && bean instanceof DataSource dataSource) {
+            return new ProfilingDataSource(dataSource, this);
+        }
+        return bean;
+    }
+
+    // Called by ProfilingDataSource after each statement execution
+    void record(String sql, long nanos) {
+        SqlProfile.recordOnCurrentThread(sql, nanos);
+        if (nanos >= TimeUnit.MILLISECONDS.toNanos(slowStatementMs)) {
+            String shape = SqlShape.of(sql);
+            if (shouldWarn("slow|" + shape)) {
+                log.warn("Slow SQL statement: elapsedMs={} thresholdMs={} sql=\"{}\"",
+                        TimeUnit.NANOSECONDS.toMillis(nanos), slowStatementMs, shape);
+            }
+        }
+    }
+
+    // Reports statements that a finished request executed repeatedly
+    public void report(SqlProfile profile, String route) {
+        if (profile.statementCount() < repeatThreshold) {
+            return;
+        }
+        for (SqlProfile.ShapeStats shape : profile.repeatedStatements(repeatThreshold)) {
+            if (shouldWarn(route + "|" + shape.sql())) {
+                log.warn("Repeated SQL statement, possible N+1: route=\"{}\" executions={} totalMs={} requestStatements={} sql=\"{}\"",
+                        route, shape.executions(), TimeUnit.NANOSECONDS.toMillis(shape.totalNanos()),
+                        profile.statementCount(), shape.sql());
+            }
+        }
+    }
+
+    // Samples warnings: at most one per key and interval
+    private boolean shouldWarn(String key) {
+        long now = System.nanoTime();
+        long interval = TimeUnit.SECONDS.toNanos(warningIntervalSeconds);
+        if (lastWarnings.size() > MAX_WARNING_KEYS) {
+            lastWarnings.clear();
+        }
+        Long previous = lastWarnings.get(key);
+        if (previous != null && now - previous < interval) {
+            return false;
+        }
+        return previous == null
+                ? lastWarnings.putIfAbsent(key, now) == null
+                : lastWarnings.replace(key, previous, now);
+    }
+}
@@ -0,0 +1,38 @@
+package com.pablo9298.kmdb.metrics;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+// Profiles the SQL of each API request, response rendering included, and reports repeated statements
+@Component
+public class SqlProfilingFilter extends OncePerRequestFilter {
+
+    @Autowired
+    private SqlProfiler sqlProfiler;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith("/api/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        SqlProfile profile = SqlProfile.start();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            profile.close();
+            Object route = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+            sqlProfiler.report(profile, request.getMethod() + " " + (route != null ? route : request.getRequestURI()));
+        }
+    }
+}
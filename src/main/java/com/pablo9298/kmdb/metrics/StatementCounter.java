@@ -0,0 +1,28 @@
+package com.pablo9298.kmdb.metrics;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.stereotype.Component;
+
+// Counts the SQL statements Hibernate prepares on the current thread.
+// Installed as Hibernate's StatementInspector, so the cost per statement is one thread-local increment.
+@Component
+public class StatementCounter implements StatementInspector {
+
+    private static final ThreadLocal<int[]> COUNT = ThreadLocal.withInitial(() -> new int[1]);
+
+    @Override
+    public String inspect(String sql) {
+        COUNT.get()[0]++;
+        return sql;
+    }
+
+    // Starts counting from zero on the current thread
+    public void reset() {
+        COUNT.get()[0] = 0;
+    }
+
+    // Number of statements prepared on the current thread since the last reset
+    public int current() {
+        return COUNT.get()[0];
+    }
+}
@@ -3,11 +3,19 @@ package com.pablo9298.kmdb.model;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.util.HashSet;
 import java.util.Set;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "actors")
+@Table(indexes = {
+        // Serves keyset pagination ordered by name
+        @Index(name = "idx_actor_name", columnList = "name")
+})
 public class Actor {
 
     // Unique identifier for each actor
@@ -27,17 +35,23 @@ public class Actor {
     @Pattern(regexp = "^\\d{4}-\\d{2}-\\d{2}$", message = "Birth date must follow the format YYYY-MM-DD")
     private String birthDate;
 
-    // Many-to-Many relationship with Movie entity
+    // Many-to-Many relationship with Movie entity, mapped by Movie.actors which owns the movie_actor table
     // JsonIgnore prevents serialization of movies to avoid circular references in JSON responses
-    @ManyToMany
-    @JoinTable(
-            name = "movie_actor",
-            joinColumns = @JoinColumn(name = "actor_id"),
-            inverseJoinColumns = @JoinColumn(name = "movie_id")
-    )
+    @ManyToMany(mappedBy = "actors")
     @JsonIgnore
     private Set<Movie> movies = new HashSet<>();
 
+    // Incremented by Hibernate on every update; guards updates against lost writes and identifies the representation in ETags
+    @Version
+    @Column(nullable = false, columnDefinition = "bigint not null default 0")
+    @JsonIgnore
+    private Long version;
+
+    // Time of the last insert or update in epoch milliseconds, sent as Last-Modified (0 for rows older than the column)
+    @Column(nullable = false, columnDefinition = "bigint not null default 0")
+    @JsonIgnore
+    private long lastModified;
+
     // Default constructor
     public Actor() {
         this.id = null;
@@ -55,6 +69,21 @@ public class Actor {
         return id;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    // Records the time of every insert and update
+    @PrePersist
+    @PreUpdate
+    void touch() {
+        lastModified = System.currentTimeMillis();
+    }
+
     public String getName() {
         return name;
     }
@@ -3,11 +3,19 @@ package com.pablo9298.kmdb.model;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.util.HashSet;
 import java.util.Set;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "genres")
+@Table(indexes = {
+        // Serves keyset pagination ordered by name
+        @Index(name = "idx_genre_name", columnList = "name")
+})
 public class Genre {
 
     // Unique identifier for each genre
@@ -20,17 +28,23 @@ public class Genre {
     @NotNull(message = "Name cannot be null")
     private String name;
 
-    // Many-to-Many relationship with Movie entity
+    // Many-to-Many relationship with Movie entity, mapped by Movie.genres which owns the movie_genre table
     // JsonIgnore prevents serialization of movies to avoid circular references in JSON responses
-    @ManyToMany
-    @JoinTable(
-            name = "movie_genre",
-            joinColumns = @JoinColumn(name = "movie_id"),
-            inverseJoinColumns = @JoinColumn(name = "genre_id")
-    )
+    @ManyToMany(mappedBy = "genres")
     @JsonIgnore
     private Set<Movie> movies = new HashSet<>();
 
+    // Incremented by Hibernate on every update; guards updates against lost writes and identifies the representation in ETags
+    @Version
+    @Column(nullable = false, columnDefinition = "bigint not null default 0")
+    @JsonIgnore
+    private Long version;
+
+    // Time of the last insert or update in epoch milliseconds, sent as Last-Modified (0 for rows older than the column)
+    @Column(nullable = false, columnDefinition = "bigint not null default 0")
+    @JsonIgnore
+    private long lastModified;
+
     // Default constructor
     public Genre() {
         this.id = null;
@@ -47,6 +61,21 @@ public class Genre {
         return id;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    // Records the time of every insert and update
+    @PrePersist
+    @PreUpdate
+    void touch() {
+        lastModified = System.currentTimeMillis();
+    }
+
     public String getName() {
         return name;
     }
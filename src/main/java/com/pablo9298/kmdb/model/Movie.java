@@ -1,12 +1,24 @@
 package com.pablo9298.kmdb.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import java.util.HashSet;
 import java.util.Set;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "movies")
+@Table(indexes = {
+        // Serves release-year lookups and range scans without reading the whole table
+        @Index(name = "idx_movie_release_year", columnList = "release_year"),
+        // Serves keyset pagination ordered by title
+        @Index(name = "idx_movie_title", columnList = "title")
+})
 public class Movie {
 
     // Unique identifier for each movie
@@ -32,23 +44,44 @@ public class Movie {
     private Integer duration;
 
     // Many-to-Many relationship with Genre entity
+    // BatchSize initializes the genres of up to a full page of movies with one query instead of one per movie
     @ManyToMany
+    @BatchSize(size = 100)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "movie-genres")
     @JoinTable(
             name = "movie_genre",
             joinColumns = @JoinColumn(name = "movie_id"),
-            inverseJoinColumns = @JoinColumn(name = "genre_id")
+            inverseJoinColumns = @JoinColumn(name = "genre_id"),
+            // The primary key starts with movie_id, so checking and unlinking a genre's movies needs its own index
+            indexes = @Index(name = "idx_movie_genre_genre", columnList = "genre_id")
     )
     private Set<Genre> genres = new HashSet<>();
 
     // Many-to-Many relationship with Actor entity, with specific fetch and cascade types
+    // BatchSize initializes the casts of up to a full page of movies with one query instead of one per movie
     @ManyToMany(fetch = FetchType.LAZY, cascade = {CascadeType.PERSIST, CascadeType.MERGE})
+    @BatchSize(size = 100)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "movie-actors")
     @JoinTable(
             name = "movie_actor",
             joinColumns = @JoinColumn(name = "movie_id"),
-            inverseJoinColumns = @JoinColumn(name = "actor_id")
+            inverseJoinColumns = @JoinColumn(name = "actor_id"),
+            // The primary key starts with actor_id, so lookups of a movie's cast need their own index
+            indexes = @Index(name = "idx_movie_actor_movie", columnList = "movie_id")
     )
     private Set<Actor> actors = new HashSet<>();
 
+    // Incremented by Hibernate on every update; guards updates against lost writes and identifies the representation in ETags
+    @Version
+    @Column(nullable = false, columnDefinition = "bigint not null default 0")
+    @JsonIgnore
+    private Long version;
+
+    // Time of the last insert or update in epoch milliseconds, sent as Last-Modified (0 for rows older than the column)
+    @Column(nullable = false, columnDefinition = "bigint not null default 0")
+    @JsonIgnore
+    private long lastModified;
+
     // Default constructor
     public Movie() {
         this.id = null;
@@ -67,6 +100,21 @@ public class Movie {
         return id;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    // Records the time of every insert and update
+    @PrePersist
+    @PreUpdate
+    void touch() {
+        lastModified = System.currentTimeMillis();
+    }
+
     public String getTitle() {
         return title;
     }
@@ -1,14 +1,65 @@
 package com.pablo9298.kmdb.repository;
 
 import com.pablo9298.kmdb.model.Actor;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface ActorRepository extends JpaRepository<Actor, Long> {
 
     // Finds actors by name, ignoring case sensitivity for the name field
+    // Results are kept in the query cache and invalidated by Hibernate whenever the table changes
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     List<Actor> findByNameIgnoreCase(String name);
+
+    // Full-text name search through the actor_fts index: returns [id, rank] pairs, best match first
+    @Query(value = "SELECT rowid, bm25(actor_fts) FROM actor_fts WHERE actor_fts MATCH :query "
+            + "ORDER BY bm25(actor_fts), rowid LIMIT :limit", nativeQuery = true)
+    List<Object[]> searchNames(@Param("query") String query, @Param("limit") int limit);
+
+    // Continues a full-text name search after the last [rank, id] pair of the previous page
+    @Query(value = "SELECT rowid, bm25(actor_fts) FROM actor_fts WHERE actor_fts MATCH :query "
+            + "AND (bm25(actor_fts) > :rank OR (bm25(actor_fts) = :rank AND rowid > :afterId)) "
+            + "ORDER BY bm25(actor_fts), rowid LIMIT :limit", nativeQuery = true)
+    List<Object[]> searchNamesAfter(@Param("query") String query, @Param("rank") double rank,
+                                    @Param("afterId") long afterId, @Param("limit") int limit);
+
+    // Version stamp of an actor, [version, last modified], read without loading the entity
+    @Query("SELECT a.version, a.lastModified FROM Actor a WHERE a.id = :id")
+    List<Object[]> findVersionById(@Param("id") Long id);
+
+    // Returns which of the given IDs belong to existing actors, in a single query
+    @Query("SELECT a.id FROM Actor a WHERE a.id IN :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    // Returns the [lower-cased name, birth date] keys taken by actors with any of the given names, in a single query
+    // that seeks on ux_actor_name_birth_date
+    @Query(value = "SELECT lower(name), birth_date FROM actor WHERE name COLLATE NOCASE IN (:names)", nativeQuery = true)
+    List<Object[]> findExistingKeys(@Param("names") Collection<String> names);
+
+    // ID of the actor with the given name and birth date, with the name compared without regard to case
+    @Query(value = "SELECT id FROM actor WHERE name = :name COLLATE NOCASE AND birth_date = :birthDate", nativeQuery = true)
+    Optional<Long> findIdByNameAndBirthDate(@Param("name") String name, @Param("birthDate") String birthDate);
+
+    // Keyset pagination ordered by ID: seeks directly past the last row of the previous page
+    @Query("SELECT a FROM Actor a WHERE a.id > :afterId ORDER BY a.id")
+    List<Actor> findPageOrderById(@Param("afterId") Long afterId, Limit limit);
+
+    // First keyset page ordered by name, with the ID as a tie-breaker
+    @Query("SELECT a FROM Actor a ORDER BY a.name, a.id")
+    List<Actor> findFirstPageOrderByName(Limit limit);
+
+    // Next keyset page ordered by name; the leading range condition lets SQLite seek on idx_actor_name
+    @Query("SELECT a FROM Actor a WHERE a.name >= :name AND (a.name > :name OR a.id > :afterId) ORDER BY a.name, a.id")
+    List<Actor> findPageOrderByName(@Param("name") String name, @Param("afterId") Long afterId, Limit limit);
 }
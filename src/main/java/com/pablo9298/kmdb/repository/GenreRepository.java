@@ -1,9 +1,17 @@
 package com.pablo9298.kmdb.repository;
 
 import com.pablo9298.kmdb.model.Genre;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
@@ -11,5 +19,40 @@ public interface GenreRepository extends JpaRepository<Genre, Long> {
     // This interface inherits basic CRUD and query methods for the Genre entity from JpaRepository.
     // JpaRepository provides methods like save, findById, findAll, deleteById, etc.
 
+    // Results are kept in the query cache and invalidated by Hibernate whenever the table changes
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"))
     Optional<Genre> findByNameIgnoreCase(String name);
+
+    // Version stamp of a genre, [version, last modified], read without loading the entity
+    @Query("SELECT g.version, g.lastModified FROM Genre g WHERE g.id = :id")
+    List<Object[]> findVersionById(@Param("id") Long id);
+
+    // Version stamp of the whole genre list, [count, sum of versions, highest id, latest last modified];
+    // it changes whenever a genre is added, renamed or removed
+    @Query("SELECT count(g), coalesce(sum(g.version), 0), coalesce(max(g.id), 0), coalesce(max(g.lastModified), 0) FROM Genre g")
+    List<Object[]> findCollectionVersion();
+
+    // Returns which of the given IDs belong to existing genres, in a single query
+    @Query("SELECT g.id FROM Genre g WHERE g.id IN :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    // Returns which of the given lower-cased names are already taken, in a single query that seeks on ux_genre_name
+    @Query(value = "SELECT lower(name) FROM genre WHERE name COLLATE NOCASE IN (:names)", nativeQuery = true)
+    List<String> findExistingNames(@Param("names") Collection<String> names);
+
+    // ID of the genre with the given name, compared without regard to case like ux_genre_name
+    @Query(value = "SELECT id FROM genre WHERE name = :name COLLATE NOCASE", nativeQuery = true)
+    Optional<Long> findIdByName(@Param("name") String name);
+
+    // Keyset pagination ordered by ID: seeks directly past the last row of the previous page
+    @Query("SELECT g FROM Genre g WHERE g.id > :afterId ORDER BY g.id")
+    List<Genre> findPageOrderById(@Param("afterId") Long afterId, Limit limit);
+
+    // First keyset page ordered by name, with the ID as a tie-breaker
+    @Query("SELECT g FROM Genre g ORDER BY g.name, g.id")
+    List<Genre> findFirstPageOrderByName(Limit limit);
+
+    // Next keyset page ordered by name; the leading range condition lets SQLite seek on idx_genre_name
+    @Query("SELECT g FROM Genre g WHERE g.name >= :name AND (g.name > :name OR g.id > :afterId) ORDER BY g.name, g.id")
+    List<Genre> findPageOrderByName(@Param("name") String name, @Param("afterId") Long afterId, Limit limit);
 }
@@ -1,25 +1,99 @@
 package com.pablo9298.kmdb.repository;
 
 import com.pablo9298.kmdb.model.Movie;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface MovieRepository extends JpaRepository<Movie, Long> {
 
-    // Custom query to find movies by genre ID
-    // Joins the Movie and Genre entities and selects movies with the specified genre ID
-    @Query("SELECT m FROM Movie m JOIN m.genres g WHERE g.id = :genreId")
-    List<Movie> findMoviesByGenreId(@Param("genreId") Long genreId);
+    // Keyset page of the movies of a genre, ordered by ID; genres and actors are batch-loaded by the caller,
+    // as fetching both collections here would multiply the rows and defeat the limit
+    @Query("SELECT m FROM Movie m JOIN m.genres g WHERE g.id = :genreId AND m.id > :afterId ORDER BY m.id")
+    List<Movie> findPageByGenreId(@Param("genreId") Long genreId, @Param("afterId") Long afterId, Limit limit);
 
-    // Finds movies by title, ignoring case and allowing partial matches
-    List<Movie> findByTitleContainingIgnoreCase(String title);
+    // Keyset page of the movies an actor has appeared in, ordered by ID
+    @Query("SELECT m FROM Movie m JOIN m.actors a WHERE a.id = :actorId AND m.id > :afterId ORDER BY m.id")
+    List<Movie> findPageByActorId(@Param("actorId") Long actorId, @Param("afterId") Long afterId, Limit limit);
+
+    // Loads the given movies with genres and actors fetched in the same query
+    @EntityGraph(attributePaths = {"genres", "actors"})
+    @Query("SELECT m FROM Movie m WHERE m.id IN :ids")
+    List<Movie> findAllWithAssociationsByIdIn(@Param("ids") Collection<Long> ids);
+
+    // Full-text title search through the movie_fts index: returns [id, rank] pairs, best match first
+    @Query(value = "SELECT rowid, bm25(movie_fts) FROM movie_fts WHERE movie_fts MATCH :query "
+            + "ORDER BY bm25(movie_fts), rowid LIMIT :limit", nativeQuery = true)
+    List<Object[]> searchTitles(@Param("query") String query, @Param("limit") int limit);
+
+    // Continues a full-text title search after the last [rank, id] pair of the previous page
+    @Query(value = "SELECT rowid, bm25(movie_fts) FROM movie_fts WHERE movie_fts MATCH :query "
+            + "AND (bm25(movie_fts) > :rank OR (bm25(movie_fts) = :rank AND rowid > :afterId)) "
+            + "ORDER BY bm25(movie_fts), rowid LIMIT :limit", nativeQuery = true)
+    List<Object[]> searchTitlesAfter(@Param("query") String query, @Param("rank") double rank,
+                                     @Param("afterId") long afterId, @Param("limit") int limit);
+
+    // Version stamp of a movie as rendered with its genres and cast, read without loading any entity:
+    // [movie version, sum of actor versions, sum of genre versions, latest last_modified of the three]
+    // Cast and genre changes bump the movie version, and renaming an actor or genre bumps its own version
+    @Query(value = """
+            SELECT m.version,
+                   (SELECT coalesce(sum(a.version), 0) FROM movie_actor ma JOIN actor a ON a.id = ma.actor_id WHERE ma.movie_id = m.id),
+                   (SELECT coalesce(sum(g.version), 0) FROM movie_genre mg JOIN genre g ON g.id = mg.genre_id WHERE mg.movie_id = m.id),
+                   max(m.last_modified,
+                       (SELECT coalesce(max(a.last_modified), 0) FROM movie_actor ma JOIN actor a ON a.id = ma.actor_id WHERE ma.movie_id = m.id),
+                       (SELECT coalesce(max(g.last_modified), 0) FROM movie_genre mg JOIN genre g ON g.id = mg.genre_id WHERE mg.movie_id = m.id))
+            FROM movie m WHERE m.id = :id""", nativeQuery = true)
+    List<Object[]> findGraphVersion(@Param("id") Long id);
 
     // Check if there is a movie with the same name
     Optional<Movie> findByTitleIgnoreCase(String title);
+
+    // Returns which of the given lower-cased titles are already taken, in a single query that seeks on ux_movie_title
+    @Query(value = "SELECT lower(title) FROM movie WHERE title COLLATE NOCASE IN (:titles)", nativeQuery = true)
+    List<String> findExistingTitles(@Param("titles") Collection<String> titles);
+
+    // ID of the movie with the given title, compared without regard to case like ux_movie_title
+    @Query(value = "SELECT id FROM movie WHERE title = :title COLLATE NOCASE", nativeQuery = true)
+    Optional<Long> findIdByTitle(@Param("title") String title);
+
+    // Keyset page of the movies released in the given year, ordered by ID; seeks on idx_movie_release_year,
+    // whose entries are ordered by (release_year, id)
+    @Query("SELECT m FROM Movie m WHERE m.releaseYear = :year AND m.id > :afterId ORDER BY m.id")
+    List<Movie> findPageByReleaseYear(@Param("year") Integer year, @Param("afterId") Long afterId, Limit limit);
+
+    // Keyset page of the movies released from the given (year, id) position up to an inclusive last year,
+    // ordered by release year and ID, seeking on idx_movie_release_year
+    @Query("SELECT m FROM Movie m WHERE m.releaseYear >= :year AND m.releaseYear <= :yearTo "
+            + "AND (m.releaseYear > :year OR m.id > :afterId) ORDER BY m.releaseYear, m.id")
+    List<Movie> findPageByReleaseYearUntil(@Param("year") Integer year, @Param("afterId") Long afterId,
+                                           @Param("yearTo") Integer yearTo, Limit limit);
+
+    // Keyset pagination ordered by ID: seeks directly past the last row of the previous page
+    @Query("SELECT m FROM Movie m WHERE m.id > :afterId ORDER BY m.id")
+    List<Movie> findPageOrderById(@Param("afterId") Long afterId, Limit limit);
+
+    // First keyset page ordered by title, with the ID as a tie-breaker
+    @Query("SELECT m FROM Movie m ORDER BY m.title, m.id")
+    List<Movie> findFirstPageOrderByTitle(Limit limit);
+
+    // Next keyset page ordered by title; the leading range condition lets SQLite seek on idx_movie_title
+    @Query("SELECT m FROM Movie m WHERE m.title >= :title AND (m.title > :title OR m.id > :afterId) ORDER BY m.title, m.id")
+    List<Movie> findPageOrderByTitle(@Param("title") String title, @Param("afterId") Long afterId, Limit limit);
+
+    // Keyset page ordered by release year that starts inside the movies without a year, which sort first
+    @Query("SELECT m FROM Movie m WHERE (m.releaseYear IS NULL AND m.id > :afterId) OR m.releaseYear IS NOT NULL ORDER BY m.releaseYear, m.id")
+    List<Movie> findPageOrderByReleaseYearFromUnknown(@Param("afterId") Long afterId, Limit limit);
+
+    // Next keyset page ordered by release year, seeking on idx_movie_release_year
+    @Query("SELECT m FROM Movie m WHERE m.releaseYear >= :year AND (m.releaseYear > :year OR m.id > :afterId) ORDER BY m.releaseYear, m.id")
+    List<Movie> findPageOrderByReleaseYear(@Param("year") Integer year, @Param("afterId") Long afterId, Limit limit);
 }
@@ -1,43 +1,116 @@
 package com.pablo9298.kmdb.service;
 
+import com.pablo9298.kmdb.dto.Cursor;
+import com.pablo9298.kmdb.dto.CursorPage;
+import com.pablo9298.kmdb.dto.ResourceVersion;
+import com.pablo9298.kmdb.dto.Versioned;
+import com.pablo9298.kmdb.event.ActorChangedEvent;
+import com.pablo9298.kmdb.event.ActorSnapshot;
+import com.pablo9298.kmdb.exception.DuplicateResourceException;
+import com.pablo9298.kmdb.exception.PreconditionFailedException;
 import com.pablo9298.kmdb.exception.ResourceNotFoundException;
 import com.pablo9298.kmdb.model.*;
 import com.pablo9298.kmdb.repository.ActorRepository;
+import com.pablo9298.kmdb.repository.MovieRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
 import java.util.List;
-import java.util.Set;
+import java.util.function.Predicate;
 
 @Service
 public class ActorService {
     @Autowired
     private ActorRepository actorRepository;
 
-    // Creates a new actor
+    @Autowired
+    private MovieRepository movieRepository;
+
+    @Autowired
+    private CatalogLinkService catalogLinkService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    // Creates a new actor; the unique index on name and birth date rejects duplicates
+    @Transactional
     public Actor createActor(Actor actor) {
-        return actorRepository.save(actor);
+        Actor saved = DuplicateResourceException.guard(() -> actorRepository.saveAndFlush(actor), duplicateMessage(actor.getName(), actor.getBirthDate()));
+        eventPublisher.publishEvent(ActorChangedEvent.created(ActorSnapshot.of(saved)));
+        return saved;
     }
 
-    // Retrieves all actors
-    public List<Actor> getAllActors() {
-        return actorRepository.findAll();
+    // Retrieves a page of actors after the given continuation token, ordered by id or name
+    @Transactional(readOnly = true)
+    public CursorPage<Actor> getActorsPage(String token, int limit, String sort) {
+        Cursor cursor = token != null ? Cursor.decode(token, sort) : null;
+        long afterId = cursor != null ? cursor.id() : 0L;
+        Limit window = Limit.of(limit + 1); // One extra row tells whether a next page exists
+
+        List<Actor> actors = switch (sort) {
+            case "id" -> actorRepository.findPageOrderById(afterId, window);
+            case "name" -> cursor == null
+                    ? actorRepository.findFirstPageOrderByName(window)
+                    : actorRepository.findPageOrderByName(cursor.value(), afterId, window);
+            default -> throw new IllegalArgumentException("Unsupported sort key: " + sort + ". Use id or name.");
+        };
+
+        return CursorPage.of(actors, limit, actor -> new Cursor(sort, "name".equals(sort) ? actor.getName() : null, actor.getId()));
     }
 
     // Retrieves an actor by ID
+    @Transactional(readOnly = true)
     public Actor getActorById(Long id) {
         return actorRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Actor not found with id: " + id));
     }
 
+    // Reads the current version of an actor without loading it, for conditional requests
+    @Transactional(readOnly = true)
+    public ResourceVersion getActorVersion(Long id) {
+        List<Object[]> rows = actorRepository.findVersionById(id);
+        if (rows.isEmpty()) {
+            throw new ResourceNotFoundException("Actor not found with id: " + id);
+        }
+        return ResourceVersion.of(String.valueOf(rows.get(0)[0]), (Long) rows.get(0)[1]);
+    }
+
+    // Reads the version of an actor and, unless the client's copy of that version is current, the actor itself,
+    // both in one read-only transaction
+    @Transactional(readOnly = true)
+    public Actor getActorUnlessCurrent(Long id, Predicate<ResourceVersion> isCurrent) {
+        if (isCurrent.test(getActorVersion(id))) {
+            return null;
+        }
+        return getActorById(id);
+    }
+
     // Updates an existing actor (PATCH)
+    @Transactional
     public Actor updateActor(Long id, Actor updateActor) {
+        return updateActor(id, updateActor, null).body();
+    }
+
+    // Updates an existing actor, provided the If-Match value (when given) names its current version.
+    // Returns the actor with the version it was written at.
+    @Transactional
+    public Versioned<Actor> updateActor(Long id, Actor updateActor, String ifMatch) {
         // Check if there is an attempt to modify the ID field
         if (updateActor.getId() != null && !updateActor.getId().equals(id)) {
             throw new IllegalArgumentException("ID field cannot be modified.");
         }
+        if (ifMatch != null && !getActorVersion(id).matches(ifMatch)) {
+            throw new PreconditionFailedException("Actor " + id + " has changed since it was read; fetch it again before updating.");
+        }
 
         return actorRepository.findById(id).map(actor -> {
+            ActorSnapshot before = ActorSnapshot.of(actor);
+
             // Update fields only if provided in the request
             if (updateActor.getName() != null) {
                 actor.setName(updateActor.getName());
@@ -45,32 +118,33 @@ public class ActorService {
             if (updateActor.getBirthDate() != null) {
                 actor.setBirthDate(updateActor.getBirthDate());
             }
-            if (updateActor.getMovies() != null) {
-                actor.setMovies(updateActor.getMovies());
-            }
-            return actorRepository.save(actor);
+            Actor saved = DuplicateResourceException.guard(() -> actorRepository.saveAndFlush(actor), duplicateMessage(actor.getName(), actor.getBirthDate()));
+            eventPublisher.publishEvent(ActorChangedEvent.updated(before, ActorSnapshot.of(saved)));
+            return new Versioned<>(saved, getActorVersion(id));
         }).orElseThrow(() -> new RuntimeException("Actor not found with id " + id));
     }
 
     // Deletes an actor with a check for the force parameter
+    @Transactional
     public void deleteActor(Long actorId, boolean force) {
         Actor actor = actorRepository.findById(actorId)
                 .orElseThrow(() -> new ResourceNotFoundException("Actor not found with ID: " + actorId));
 
-        // Check if the actor is associated with movies
-        if (!force && !actor.getMovies().isEmpty()) {
+        // Check if the actor is associated with movies, without loading them
+        if (!force && catalogLinkService.actorHasMovies(actorId)) {
             throw new IllegalStateException("Cannot delete actor with associated movies. Use force=true to override.");
         }
 
-        // If force=true, remove associations and delete the actor
-        if (force || actor.getMovies().isEmpty()) {
-            // Remove all associations between the actor and movies if force=true
-            actor.getMovies().forEach(movie -> movie.getActors().remove(actor));
-            actorRepository.delete(actor);
+        // If force=true, remove the actor from every cast with one statement and delete the actor
+        if (force) {
+            catalogLinkService.unlinkActor(actorId);
         }
+        actorRepository.delete(actor);
+        eventPublisher.publishEvent(ActorChangedEvent.deleted(ActorSnapshot.of(actor)));
     }
 
     // Retrieves actors by name (case-insensitive)
+    @Transactional(readOnly = true)
     public List<Actor> getActorsByName(String name) {
         List<Actor> actors = actorRepository.findByNameIgnoreCase(name);
         if (actors.isEmpty()) {
@@ -79,23 +153,61 @@ public class ActorService {
         return actors;
     }
 
-    // Retrieves all movies an actor has appeared in by actor ID
-    public Set<Movie> getMoviesByActor(Long actorId) {
-        return actorRepository.findById(actorId)
-                .orElseThrow(() -> new RuntimeException("Actor not found with id " + actorId))
-                .getMovies();
+    // Searches actor names through the full-text index, best match first, with word-prefix matching
+    @Transactional(readOnly = true)
+    public CursorPage<Actor> searchActorsByName(String name, String token, int limit) {
+        String query = FullTextQuery.prefixMatch(name);
+        Cursor cursor = token != null ? Cursor.decode(token, FullTextQuery.SORT) : null;
+
+        List<Object[]> hits = cursor == null
+                ? actorRepository.searchNames(query, limit + 1)
+                : actorRepository.searchNamesAfter(query, FullTextQuery.rankOf(cursor), cursor.id(), limit + 1);
+
+        return FullTextQuery.toPage(hits, limit, actorRepository::findAllById, Actor::getId);
     }
 
-    // Retrieves all movies for a specific actor by actor ID with additional checks
-    public Set<Movie> getMoviesByActorId(Long actorId) {
-        Actor actor = actorRepository.findById(actorId)
-                .orElseThrow(() -> new ResourceNotFoundException("Actor not found with ID: " + actorId));
+    // Retrieves a page of the movies an actor has appeared in, ordered by ID
+    @Transactional(readOnly = true)
+    public CursorPage<Movie> getMoviesByActor(Long actorId, String token, int limit) {
+        if (!actorRepository.existsById(actorId)) {
+            throw new RuntimeException("Actor not found with id " + actorId);
+        }
+        return moviesPage(actorId, token, limit);
+    }
+
+    // Retrieves a page of the movies of an actor, with additional checks
+    @Transactional(readOnly = true)
+    public CursorPage<Movie> getMoviesByActorId(Long actorId, String token, int limit) {
+        if (!actorRepository.existsById(actorId)) {
+            throw new ResourceNotFoundException("Actor not found with ID: " + actorId);
+        }
 
-        Set<Movie> movies = actor.getMovies();
-        if (movies.isEmpty()) {
+        CursorPage<Movie> movies = moviesPage(actorId, token, limit);
+        if (movies.items().isEmpty() && token == null) {
             throw new ResourceNotFoundException("No movies found for actor with ID: " + actorId);
         }
 
         return movies;
     }
+
+    private CursorPage<Movie> moviesPage(Long actorId, String token, int limit) {
+        long afterId = token != null ? Cursor.decode(token, "id").id() : 0L;
+        List<Movie> movies = movieRepository.findPageByActorId(actorId, afterId, Limit.of(limit + 1));
+        return CursorPage.of(MovieGraphs.initialize(movies), limit, movie -> new Cursor("id", null, movie.getId()));
+    }
+
+    // Checks if a date string matches the format YYYY-MM-DD; shared by the single, bulk and upsert endpoints
+    public static boolean isValidDate(String dateStr) {
+        try {
+            LocalDate.parse(dateStr);  // Checks if date is in the correct format
+            return true;
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+
+    // Message for an actor whose name and birth date are already taken; names compare without regard to case
+    static String duplicateMessage(String name, String birthDate) {
+        return "Actor '" + name + "' born " + birthDate + " already exists";
+    }
 }
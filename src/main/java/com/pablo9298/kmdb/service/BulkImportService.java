@@ -0,0 +1,312 @@
+package com.pablo9298.kmdb.service;
+
+import com.pablo9298.kmdb.dto.BulkImportResult;
+import com.pablo9298.kmdb.dto.BulkImportResult.RowError;
+import com.pablo9298.kmdb.event.*;
+import com.pablo9298.kmdb.model.*;
+import com.pablo9298.kmdb.repository.*;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Creates many movies, actors or genres per request.
+// Rows are validated up front with one lookup query per kind of reference. Accepted rows
+// are then written with JDBC batch inserts, join rows included, and committed once.
+// IDs are assigned from the current maximum inside the transaction, because the IDENTITY
+// generation used by the entities would force one round trip per inserted row.
+// The inserts bypass Hibernate, so cached query results are dropped once they commit,
+// and the same change events as single creates are published for every accepted row.
+@Service
+public class BulkImportService {
+
+    // Upper bound on rows per bulk request; keeps every IN list below SQLite's bound-parameter limit
+    public static final int MAX_ROWS = 10_000;
+
+    // Number of statements handed to the driver per JDBC batch
+    private static final int BATCH_SIZE = 500;
+
+    // Maximum number of IDs bound into a single IN query
+    private static final int IN_CHUNK_SIZE = 10_000;
+
+    @Autowired
+    private MovieRepository movieRepository;
+
+    @Autowired
+    private ActorRepository actorRepository;
+
+    @Autowired
+    private GenreRepository genreRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private Validator validator;
+
+    @Autowired
+    private CatalogCacheService catalogCacheService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    // Creates movies together with their actor and genre links
+    @Transactional
+    public BulkImportResult importMovies(List<Movie> movies) {
+        checkSize(movies);
+        lockForWrite("movie");
+
+        // Everything the rows depend on is looked up once for the whole request
+        Set<String> takenTitles = new HashSet<>(existing(lowerCased(movies, Movie::getTitle), movieRepository::findExistingTitles));
+        Set<Long> knownActors = new HashSet<>(existing(referencedIds(movies, Movie::getActors, Actor::getId), actorRepository::findExistingIds));
+        Set<Long> knownGenres = new HashSet<>(existing(referencedIds(movies, Movie::getGenres, Genre::getId), genreRepository::findExistingIds));
+
+        List<RowError> errors = new ArrayList<>();
+        List<Long> ids = new ArrayList<>(movies.size());
+        List<Object[]> movieRows = new ArrayList<>();
+        List<Object[]> genreRows = new ArrayList<>();
+        List<Object[]> actorRows = new ArrayList<>();
+        List<MovieSnapshot> created = new ArrayList<>();
+        long nextId = currentMaxId("movie");
+        long now = System.currentTimeMillis();
+
+        for (int i = 0; i < movies.size(); i++) {
+            Movie movie = movies.get(i);
+            String problem = violations(movie);
+            if (problem == null && !takenTitles.add(foldCase(movie.getTitle()))) {
+                problem = "Film with title '" + movie.getTitle() + "' already exists.";
+            }
+            if (problem == null) {
+                problem = missingReferences("Actor", movie.getActors(), Actor::getId, knownActors);
+            }
+            if (problem == null) {
+                problem = missingReferences("Genre", movie.getGenres(), Genre::getId, knownGenres);
+            }
+            if (problem != null) {
+                errors.add(new RowError(i, problem));
+                ids.add(null);
+                continue;
+            }
+
+            long movieId = ++nextId;
+            ids.add(movieId);
+            movieRows.add(new Object[]{movieId, movie.getTitle(), movie.getReleaseYear(), movie.getDuration(), now});
+            Set<Long> genreIds = distinctIds(movie.getGenres(), Genre::getId);
+            Set<Long> actorIds = distinctIds(movie.getActors(), Actor::getId);
+            genreIds.forEach(genreId -> genreRows.add(new Object[]{movieId, genreId}));
+            actorIds.forEach(actorId -> actorRows.add(new Object[]{actorId, movieId}));
+            created.add(new MovieSnapshot(movieId, movie.getTitle(), movie.getReleaseYear(), movie.getDuration(),
+                    Set.copyOf(genreIds), Set.copyOf(actorIds)));
+        }
+
+        batchInsert("INSERT INTO movie (id, title, release_year, duration, last_modified) VALUES (?, ?, ?, ?, ?)", movieRows);
+        batchInsert("INSERT INTO movie_genre (movie_id, genre_id) VALUES (?, ?)", genreRows);
+        batchInsert("INSERT INTO movie_actor (actor_id, movie_id) VALUES (?, ?)", actorRows);
+        catalogCacheService.evictQueriesAfterCommit();
+        created.forEach(snapshot -> eventPublisher.publishEvent(MovieChangedEvent.created(snapshot)));
+        return new BulkImportResult(movieRows.size(), errors.size(), ids, errors);
+    }
+
+    // Creates actors, rejecting names that are already taken by an actor with the same birth date
+    @Transactional
+    public BulkImportResult importActors(List<Actor> actors) {
+        checkSize(actors);
+        lockForWrite("actor");
+
+        Set<String> takenKeys = existing(lowerCased(actors, Actor::getName), actorRepository::findExistingKeys).stream()
+                .map(key -> key[0] + "|" + key[1])
+                .collect(Collectors.toCollection(HashSet::new));
+
+        List<RowError> errors = new ArrayList<>();
+        List<Long> ids = new ArrayList<>(actors.size());
+        List<Object[]> actorRows = new ArrayList<>();
+        List<ActorSnapshot> created = new ArrayList<>();
+        long nextId = currentMaxId("actor");
+        long now = System.currentTimeMillis();
+
+        for (int i = 0; i < actors.size(); i++) {
+            Actor actor = actors.get(i);
+            String problem = violations(actor);
+            if (problem == null && !ActorService.isValidDate(actor.getBirthDate())) {
+                problem = "Birth date must be in the format YYYY-MM-DD";
+            }
+            if (problem == null && !takenKeys.add(foldCase(actor.getName()) + "|" + actor.getBirthDate())) {
+                problem = ActorService.duplicateMessage(actor.getName(), actor.getBirthDate());
+            }
+            if (problem != null) {
+                errors.add(new RowError(i, problem));
+                ids.add(null);
+                continue;
+            }
+
+            long actorId = ++nextId;
+            ids.add(actorId);
+            actorRows.add(new Object[]{actorId, actor.getName(), actor.getBirthDate(), now});
+            created.add(new ActorSnapshot(actorId, actor.getName(), actor.getBirthDate()));
+        }
+
+        batchInsert("INSERT INTO actor (id, name, birth_date, last_modified) VALUES (?, ?, ?, ?)", actorRows);
+        catalogCacheService.evictQueriesAfterCommit();
+        created.forEach(snapshot -> eventPublisher.publishEvent(ActorChangedEvent.created(snapshot)));
+        return new BulkImportResult(actorRows.size(), errors.size(), ids, errors);
+    }
+
+    // Creates genres, rejecting names that already exist
+    @Transactional
+    public BulkImportResult importGenres(List<Genre> genres) {
+        checkSize(genres);
+        lockForWrite("genre");
+
+        Set<String> takenNames = new HashSet<>(existing(lowerCased(genres, Genre::getName), genreRepository::findExistingNames));
+
+        List<RowError> errors = new ArrayList<>();
+        List<Long> ids = new ArrayList<>(genres.size());
+        List<Object[]> genreRows = new ArrayList<>();
+        List<GenreSnapshot> created = new ArrayList<>();
+        long nextId = currentMaxId("genre");
+        long now = System.currentTimeMillis();
+
+        for (int i = 0; i < genres.size(); i++) {
+            Genre genre = genres.get(i);
+            String problem = violations(genre);
+            if (problem == null && !takenNames.add(foldCase(genre.getName()))) {
+                problem = "Genre with name '" + genre.getName() + "' already exists";
+            }
+            if (problem != null) {
+                errors.add(new RowError(i, problem));
+                ids.add(null);
+                continue;
+            }
+
+            long genreId = ++nextId;
+            ids.add(genreId);
+            genreRows.add(new Object[]{genreId, genre.getName(), now});
+            created.add(new GenreSnapshot(genreId, genre.getName()));
+        }
+
+        batchInsert("INSERT INTO genre (id, name, last_modified) VALUES (?, ?, ?)", genreRows);
+        catalogCacheService.evictQueriesAfterCommit();
+        created.forEach(snapshot -> eventPublisher.publishEvent(GenreChangedEvent.created(snapshot)));
+        return new BulkImportResult(genreRows.size(), errors.size(), ids, errors);
+    }
+
+    // Rejects empty and oversized requests
+    private void checkSize(List<?> rows) {
+        if (rows == null || rows.isEmpty() || rows.size() > MAX_ROWS) {
+            throw new IllegalArgumentException("Bulk requests must contain between 1 and " + MAX_ROWS + " rows");
+        }
+    }
+
+    // Returns the bean validation errors of a row as one message, or null when the row is valid
+    private String violations(Object row) {
+        if (row == null) {
+            return "Row must not be null";
+        }
+        Set<ConstraintViolation<Object>> violations = validator.validate(row);
+        if (violations.isEmpty()) {
+            return null;
+        }
+        return violations.stream()
+                .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                .sorted()
+                .collect(Collectors.joining("; "));
+    }
+
+    // Describes references to rows that do not exist, or returns null when all of them do
+    private <T> String missingReferences(String type, Set<T> references, Function<T, Long> idOf, Set<Long> known) {
+        if (references == null) {
+            return null;
+        }
+        List<String> missing = new ArrayList<>();
+        for (T reference : references) {
+            Long id = reference != null ? idOf.apply(reference) : null;
+            if (id == null) {
+                return type + " references must include an id";
+            }
+            if (!known.contains(id)) {
+                missing.add(id.toString());
+            }
+        }
+        return missing.isEmpty() ? null : type + " not found with id: " + String.join(", ", missing);
+    }
+
+    // Lower-cases ASCII letters only, as SQLite's lower() and NOCASE collation do, so keys compare like the unique indexes
+    private static String foldCase(String value) {
+        StringBuilder folded = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            folded.append(c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c);
+        }
+        return folded.toString();
+    }
+
+    // Collects the lower-cased values of a unique column across all non-null rows
+    private <T> Set<String> lowerCased(List<T> rows, Function<T, String> column) {
+        return rows.stream()
+                .filter(Objects::nonNull)
+                .map(column)
+                .filter(Objects::nonNull)
+                .map(BulkImportService::foldCase)
+                .collect(Collectors.toSet());
+    }
+
+    // Collects every referenced ID across all rows
+    private <T, R> Set<Long> referencedIds(List<T> rows, Function<T, Set<R>> references, Function<R, Long> idOf) {
+        Set<Long> ids = new HashSet<>();
+        for (T row : rows) {
+            if (row != null && references.apply(row) != null) {
+                ids.addAll(distinctIds(references.apply(row), idOf));
+            }
+        }
+        return ids;
+    }
+
+    // Returns the distinct non-null IDs of a row's references
+    private <R> Set<Long> distinctIds(Set<R> references, Function<R, Long> idOf) {
+        if (references == null) {
+            return Set.of();
+        }
+        return references.stream()
+                .filter(Objects::nonNull)
+                .map(idOf)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
+    // Runs an IN lookup over the given keys in chunks and returns the matches
+    private <K, R> List<R> existing(Collection<K> keys, Function<Collection<K>, List<R>> lookup) {
+        List<K> all = new ArrayList<>(keys);
+        List<R> found = new ArrayList<>();
+        for (int from = 0; from < all.size(); from += IN_CHUNK_SIZE) {
+            found.addAll(lookup.apply(all.subList(from, Math.min(from + IN_CHUNK_SIZE, all.size()))));
+        }
+        return found;
+    }
+
+    // Takes SQLite's write lock before the import reads anything. A transaction that reads first takes a snapshot,
+    // and its first write fails with SQLITE_BUSY if another connection committed in the meantime; the lookups and
+    // the highest ID it read would be stale as well. The statement changes no rows but still starts the write.
+    private void lockForWrite(String table) {
+        jdbcTemplate.update("UPDATE " + table + " SET id = id WHERE 0");
+    }
+
+    // Reads the highest ID in a table; the write lock taken by lockForWrite keeps it stable until commit
+    private long currentMaxId(String table) {
+        Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM " + table, Long.class);
+        return maxId != null ? maxId : 0L;
+    }
+
+    // Sends the rows to the database as prepared-statement batches
+    private void batchInsert(String sql, List<Object[]> rows) {
+        for (int from = 0; from < rows.size(); from += BATCH_SIZE) {
+            jdbcTemplate.batchUpdate(sql, rows.subList(from, Math.min(from + BATCH_SIZE, rows.size())));
+        }
+    }
+}
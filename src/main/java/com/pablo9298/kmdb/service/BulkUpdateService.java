@@ -0,0 +1,392 @@
+package com.pablo9298.kmdb.service;
+
+import com.pablo9298.kmdb.dto.BulkMutationResult;
+import com.pablo9298.kmdb.dto.BulkMutationResult.ItemResult;
+import com.pablo9298.kmdb.event.*;
+import com.pablo9298.kmdb.exception.DuplicateResourceException;
+import com.pablo9298.kmdb.model.*;
+import com.pablo9298.kmdb.repository.*;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Updates or deletes many movies, actors or genres per request, in one transaction with one commit.
+// The targets and everything the items reference are loaded with one query per kind of row, and each item
+// is checked before anything changes, so a rejected item gets its own result instead of rolling back the rest.
+// Updates merge fields exactly like the single PATCH endpoints and reach the database as JDBC batches when
+// Hibernate flushes; deletes unlink and remove all accepted rows with a few set-based statements.
+// The same change events as single updates and deletes are published for every applied item.
+// A new title or name that collides with another row fails the whole request with 409 Conflict, as the unique
+// index rejects it only when the batch is flushed.
+@Service
+public class BulkUpdateService {
+
+    // Upper bound on items per request; keeps the persistence context small and every IN list short
+    public static final int MAX_ITEMS = 1_000;
+
+    @Autowired
+    private MovieRepository movieRepository;
+
+    @Autowired
+    private ActorRepository actorRepository;
+
+    @Autowired
+    private GenreRepository genreRepository;
+
+    @Autowired
+    private CatalogLinkService catalogLinkService;
+
+    @Autowired
+    private Validator validator;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    // Applies partial updates to movies; genres and actors, when given, replace the current ones
+    @Transactional
+    public BulkMutationResult updateMovies(List<Movie> changes) {
+        checkSize(changes);
+
+        Map<Long, Movie> movies = byId(movieRepository.findAllWithAssociationsByIdIn(targetIds(changes, Movie::getId)), Movie::getId);
+        Map<Long, Genre> genres = byId(genreRepository.findAllById(referencedIds(changes, Movie::getGenres, Genre::getId)), Genre::getId);
+        Map<Long, Actor> actors = byId(actorRepository.findAllById(referencedIds(changes, Movie::getActors, Actor::getId)), Actor::getId);
+
+        Results results = new Results(changes.size());
+        Map<Movie, MovieSnapshot> updated = new LinkedHashMap<>();
+        for (int i = 0; i < changes.size(); i++) {
+            Movie change = changes.get(i);
+            Movie movie = target(results, i, change, Movie::getId, movies, "Movie");
+            if (movie == null) {
+                continue;
+            }
+            String problem = violations(Movie.class, Map.of("title", Optional.ofNullable(change.getTitle()),
+                    "releaseYear", Optional.ofNullable(change.getReleaseYear()), "duration", Optional.ofNullable(change.getDuration())));
+            if (problem != null) {
+                results.reject(i, movie.getId(), HttpStatus.BAD_REQUEST, problem);
+                continue;
+            }
+            String missing = missingReferences("Genre", change.getGenres(), Genre::getId, genres);
+            if (missing == null) {
+                missing = missingReferences("Actor", change.getActors(), Actor::getId, actors);
+            }
+            if (missing != null) {
+                results.reject(i, movie.getId(), missing.endsWith("an id") ? HttpStatus.BAD_REQUEST : HttpStatus.NOT_FOUND, missing);
+                continue;
+            }
+
+            updated.putIfAbsent(movie, MovieSnapshot.of(movie));
+            if (change.getTitle() != null) {
+                movie.setTitle(change.getTitle());
+            }
+            if (change.getReleaseYear() != null) {
+                movie.setReleaseYear(change.getReleaseYear());
+            }
+            if (change.getDuration() != null) {
+                movie.setDuration(change.getDuration());
+            }
+            if (change.getGenres() != null && !change.getGenres().isEmpty()) {
+                movie.setGenres(resolve(change.getGenres(), Genre::getId, genres));
+            }
+            if (change.getActors() != null && !change.getActors().isEmpty()) {
+                movie.setActors(resolve(change.getActors(), Actor::getId, actors));
+            }
+            results.apply(i, movie.getId(), HttpStatus.OK);
+        }
+
+        DuplicateResourceException.guard(() -> {
+            movieRepository.flush();
+            return null;
+        }, "One of the new titles is already taken by another movie; no changes were applied");
+        updated.forEach((movie, before) -> eventPublisher.publishEvent(MovieChangedEvent.updated(before, MovieSnapshot.of(movie))));
+        return results.toResult();
+    }
+
+    // Applies partial updates to actors
+    @Transactional
+    public BulkMutationResult updateActors(List<Actor> changes) {
+        checkSize(changes);
+
+        Map<Long, Actor> actors = byId(actorRepository.findAllById(targetIds(changes, Actor::getId)), Actor::getId);
+
+        Results results = new Results(changes.size());
+        Map<Actor, ActorSnapshot> updated = new LinkedHashMap<>();
+        for (int i = 0; i < changes.size(); i++) {
+            Actor change = changes.get(i);
+            Actor actor = target(results, i, change, Actor::getId, actors, "Actor");
+            if (actor == null) {
+                continue;
+            }
+            String problem = violations(Actor.class, Map.of("name", Optional.ofNullable(change.getName()),
+                    "birthDate", Optional.ofNullable(change.getBirthDate())));
+            if (problem == null && change.getBirthDate() != null && !ActorService.isValidDate(change.getBirthDate())) {
+                problem = "Birth date must be in the format YYYY-MM-DD";
+            }
+            if (problem != null) {
+                results.reject(i, actor.getId(), HttpStatus.BAD_REQUEST, problem);
+                continue;
+            }
+
+            updated.putIfAbsent(actor, ActorSnapshot.of(actor));
+            if (change.getName() != null) {
+                actor.setName(change.getName());
+            }
+            if (change.getBirthDate() != null) {
+                actor.setBirthDate(change.getBirthDate());
+            }
+            results.apply(i, actor.getId(), HttpStatus.OK);
+        }
+
+        DuplicateResourceException.guard(() -> {
+            actorRepository.flush();
+            return null;
+        }, "One of the new names and birth dates is already taken by another actor; no changes were applied");
+        updated.forEach((actor, before) -> eventPublisher.publishEvent(ActorChangedEvent.updated(before, ActorSnapshot.of(actor))));
+        return results.toResult();
+    }
+
+    // Renames genres
+    @Transactional
+    public BulkMutationResult updateGenres(List<Genre> changes) {
+        checkSize(changes);
+
+        Map<Long, Genre> genres = byId(genreRepository.findAllById(targetIds(changes, Genre::getId)), Genre::getId);
+
+        Results results = new Results(changes.size());
+        Map<Genre, GenreSnapshot> updated = new LinkedHashMap<>();
+        for (int i = 0; i < changes.size(); i++) {
+            Genre change = changes.get(i);
+            Genre genre = target(results, i, change, Genre::getId, genres, "Genre");
+            if (genre == null) {
+                continue;
+            }
+            String problem = violations(Genre.class, Map.of("name", Optional.ofNullable(change.getName())));
+            if (problem == null && change.getName() == null) {
+                problem = "name: Name cannot be null";
+            }
+            if (problem != null) {
+                results.reject(i, genre.getId(), HttpStatus.BAD_REQUEST, problem);
+                continue;
+            }
+
+            updated.putIfAbsent(genre, GenreSnapshot.of(genre));
+            genre.setName(change.getName());
+            results.apply(i, genre.getId(), HttpStatus.OK);
+        }
+
+        DuplicateResourceException.guard(() -> {
+            genreRepository.flush();
+            return null;
+        }, "One of the new names is already taken by another genre; no changes were applied");
+        updated.forEach((genre, before) -> eventPublisher.publishEvent(GenreChangedEvent.updated(before, GenreSnapshot.of(genre))));
+        return results.toResult();
+    }
+
+    // Deletes movies; without force, movies that still have actors or genres are rejected
+    @Transactional
+    public BulkMutationResult deleteMovies(List<Long> ids, boolean force) {
+        checkSize(ids);
+
+        Map<Long, Movie> movies = byId(movieRepository.findAllById(distinct(ids)), Movie::getId);
+        Set<Long> linked = force || movies.isEmpty() ? Set.of() : catalogLinkService.moviesWithLinks(movies.keySet());
+        Results results = deletable(ids, movies, linked, "Movie",
+                "Cannot delete movie with associated actors or genres. Use force=true to override.");
+        if (results.accepted.isEmpty()) {
+            return results.toResult();
+        }
+
+        Map<Long, Set<Long>> genreIds = catalogLinkService.genreIdsOf(results.accepted);
+        Map<Long, Set<Long>> actorIds = catalogLinkService.actorIdsOf(results.accepted);
+        List<MovieSnapshot> deleted = results.accepted.stream()
+                .map(id -> MovieSnapshot.of(movies.get(id), genreIds.getOrDefault(id, Set.of()), actorIds.getOrDefault(id, Set.of())))
+                .toList();
+        catalogLinkService.unlinkMovies(results.accepted);
+        movieRepository.deleteAllByIdInBatch(results.accepted);
+        deleted.forEach(snapshot -> eventPublisher.publishEvent(MovieChangedEvent.deleted(snapshot)));
+        return results.toResult();
+    }
+
+    // Deletes actors; with force they are first removed from every cast, otherwise actors in any cast are rejected
+    @Transactional
+    public BulkMutationResult deleteActors(List<Long> ids, boolean force) {
+        checkSize(ids);
+
+        Map<Long, Actor> actors = byId(actorRepository.findAllById(distinct(ids)), Actor::getId);
+        Set<Long> linked = force || actors.isEmpty() ? Set.of() : catalogLinkService.actorsWithMovies(actors.keySet());
+        Results results = deletable(ids, actors, linked, "Actor",
+                "Cannot delete actor with associated movies. Use force=true to override.");
+        if (results.accepted.isEmpty()) {
+            return results.toResult();
+        }
+
+        if (force) {
+            catalogLinkService.unlinkActors(results.accepted);
+        }
+        actorRepository.deleteAllByIdInBatch(results.accepted);
+        results.accepted.forEach(id -> eventPublisher.publishEvent(ActorChangedEvent.deleted(ActorSnapshot.of(actors.get(id)))));
+        return results.toResult();
+    }
+
+    // Deletes genres; with force they are first removed from every movie, otherwise genres in use are rejected
+    @Transactional
+    public BulkMutationResult deleteGenres(List<Long> ids, boolean force) {
+        checkSize(ids);
+
+        Map<Long, Genre> genres = byId(genreRepository.findAllById(distinct(ids)), Genre::getId);
+        Set<Long> linked = force || genres.isEmpty() ? Set.of() : catalogLinkService.genresWithMovies(genres.keySet());
+        Results results = deletable(ids, genres, linked, "Genre",
+                "Cannot delete genre with associated movies. Use force=true to override.");
+        if (results.accepted.isEmpty()) {
+            return results.toResult();
+        }
+
+        if (force) {
+            catalogLinkService.unlinkGenres(results.accepted);
+        }
+        genreRepository.deleteAllByIdInBatch(results.accepted);
+        results.accepted.forEach(id -> eventPublisher.publishEvent(GenreChangedEvent.deleted(GenreSnapshot.of(genres.get(id)))));
+        return results.toResult();
+    }
+
+    // Decides which of the requested IDs can be deleted: existing, listed once, and unlinked unless forced
+    private Results deletable(List<Long> ids, Map<Long, ?> existing, Set<Long> linked, String type, String linkedMessage) {
+        Results results = new Results(ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            Long id = ids.get(i);
+            if (id == null) {
+                results.reject(i, null, HttpStatus.BAD_REQUEST, "ID must not be null");
+            } else if (!existing.containsKey(id)) {
+                results.reject(i, id, HttpStatus.NOT_FOUND, type + " not found with ID: " + id);
+            } else if (results.accepted.contains(id)) {
+                results.reject(i, id, HttpStatus.BAD_REQUEST, type + " " + id + " appears more than once in the request");
+            } else if (linked.contains(id)) {
+                results.reject(i, id, HttpStatus.CONFLICT, linkedMessage);
+            } else {
+                results.apply(i, id, HttpStatus.NO_CONTENT);
+            }
+        }
+        return results;
+    }
+
+    // Returns the loaded row an update item targets, or records why the item cannot be applied and returns null.
+    // Only items that pass validation claim their row, so an invalid item does not make a later one a repeat.
+    private <T> T target(Results results, int index, T change, Function<T, Long> idOf, Map<Long, T> loaded, String type) {
+        if (change == null) {
+            results.reject(index, null, HttpStatus.BAD_REQUEST, "Item must not be null");
+            return null;
+        }
+        Long id = idOf.apply(change);
+        if (id == null) {
+            results.reject(index, null, HttpStatus.BAD_REQUEST, "Item must include the id of the " + type.toLowerCase(Locale.ROOT) + " to update");
+            return null;
+        }
+        T row = loaded.get(id);
+        if (row == null) {
+            results.reject(index, id, HttpStatus.NOT_FOUND, type + " not found with id " + id);
+            return null;
+        }
+        if (results.accepted.contains(id)) {
+            results.reject(index, id, HttpStatus.BAD_REQUEST, type + " " + id + " appears more than once in the request");
+            return null;
+        }
+        return row;
+    }
+
+    // Checks the given field values against the entity's constraints; absent values keep the current ones and are skipped
+    private String violations(Class<?> type, Map<String, Optional<?>> values) {
+        List<String> problems = new ArrayList<>();
+        values.forEach((property, value) -> value.ifPresent(present -> {
+            for (ConstraintViolation<?> violation : validator.validateValue(type, property, present)) {
+                problems.add(property + ": " + violation.getMessage());
+            }
+        }));
+        return problems.isEmpty() ? null : problems.stream().sorted().collect(Collectors.joining("; "));
+    }
+
+    // Describes references to rows that do not exist, or returns null when all of them do
+    private <T> String missingReferences(String type, Set<T> references, Function<T, Long> idOf, Map<Long, T> known) {
+        if (references == null) {
+            return null;
+        }
+        List<String> missing = new ArrayList<>();
+        for (T reference : references) {
+            Long id = reference != null ? idOf.apply(reference) : null;
+            if (id == null) {
+                return type + " references must include an id";
+            }
+            if (!known.containsKey(id)) {
+                missing.add(id.toString());
+            }
+        }
+        return missing.isEmpty() ? null : type + " not found with id: " + String.join(", ", missing);
+    }
+
+    // Replaces references by the managed rows loaded for the whole request
+    private <T> Set<T> resolve(Set<T> references, Function<T, Long> idOf, Map<Long, T> known) {
+        return references.stream().map(reference -> known.get(idOf.apply(reference))).collect(Collectors.toCollection(HashSet::new));
+    }
+
+    // Rejects empty and oversized requests
+    private void checkSize(List<?> items) {
+        if (items == null || items.isEmpty() || items.size() > MAX_ITEMS) {
+            throw new IllegalArgumentException("Batch requests must contain between 1 and " + MAX_ITEMS + " items");
+        }
+    }
+
+    // Collects the IDs of all non-null items
+    private <T> Set<Long> targetIds(List<T> items, Function<T, Long> idOf) {
+        return items.stream().filter(Objects::nonNull).map(idOf).filter(Objects::nonNull).collect(Collectors.toSet());
+    }
+
+    // Collects every referenced ID across all items
+    private <T, R> Set<Long> referencedIds(List<T> items, Function<T, Set<R>> references, Function<R, Long> idOf) {
+        Set<Long> ids = new HashSet<>();
+        for (T item : items) {
+            if (item != null && references.apply(item) != null) {
+                references.apply(item).stream().filter(Objects::nonNull).map(idOf).filter(Objects::nonNull).forEach(ids::add);
+            }
+        }
+        return ids;
+    }
+
+    private static Set<Long> distinct(List<Long> ids) {
+        return ids.stream().filter(Objects::nonNull).collect(Collectors.toSet());
+    }
+
+    private static <T> Map<Long, T> byId(List<T> rows, Function<T, Long> idOf) {
+        return rows.stream().collect(Collectors.toMap(idOf, Function.identity()));
+    }
+
+    // Per-item results in request order, and the IDs accepted so far
+    private static class Results {
+        final List<ItemResult> items;
+        final Set<Long> accepted = new LinkedHashSet<>();
+        int applied;
+
+        Results(int size) {
+            items = new ArrayList<>(size);
+        }
+
+        // Records an item that passed validation; a later item for the same row is then rejected as a repeat
+        void apply(int index, Long id, HttpStatus status) {
+            accepted.add(id);
+            items.add(new ItemResult(index, id, status.value(), null));
+            applied++;
+        }
+
+        void reject(int index, Long id, HttpStatus status, String message) {
+            items.add(new ItemResult(index, id, status.value(), message));
+        }
+
+        BulkMutationResult toResult() {
+            return new BulkMutationResult(applied, items.size() - applied, items);
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.pablo9298.kmdb.service;
+
+import com.pablo9298.kmdb.model.Movie;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+// Invalidates and reports on the Hibernate second-level cache.
+// Writes made through JPA keep the cache consistent on their own; this service covers
+// the JDBC write paths that bypass Hibernate and exposes per-region statistics.
+@Service
+public class CatalogCacheService {
+
+    // JCache statistics attributes reported for each cache region
+    private static final String[] STATISTICS = {
+            "CacheHits", "CacheMisses", "CacheHitPercentage", "CacheGets", "CachePuts", "CacheRemovals", "CacheEvictions"
+    };
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    // Drops cached query results once the current transaction commits, or right away without one.
+    // Used after JDBC writes, which Hibernate cannot track for query cache invalidation.
+    public void evictQueriesAfterCommit() {
+        afterCommit(this::evictQueries);
+    }
+
+    // Drops the given cached movies, their genre and cast collections and query results once the current
+    // transaction commits, or right away without one. Used after JDBC writes to the join tables, which change
+    // the versions and collections of movies behind Hibernate's back.
+    public void evictMoviesAfterCommit(Collection<Long> movieIds) {
+        Set<Long> ids = Set.copyOf(movieIds);
+        afterCommit(() -> evictEntities(Map.of(Movie.class, ids)));
+    }
+
+    // Drops the cached state of the given entities, with the genre and cast collections of movies, and cached
+    // query results. Used by the write queue once a group has committed, as its writes leave the cache alone.
+    public void evictEntities(Map<Class<?>, Set<Long>> entities) {
+        Cache cache = entityManagerFactory.unwrap(SessionFactory.class).getCache();
+        entities.forEach((type, ids) -> {
+            for (Long id : ids) {
+                cache.evictEntityData(type, id);
+                if (type == Movie.class) {
+                    cache.evictCollectionData(Movie.class.getName() + ".genres", id);
+                    cache.evictCollectionData(Movie.class.getName() + ".actors", id);
+                }
+            }
+        });
+        evictQueries();
+    }
+
+    private void afterCommit(Runnable eviction) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    eviction.run();
+                }
+            });
+        } else {
+            eviction.run();
+        }
+    }
+
+    // Drops cached query results
+    private void evictQueries() {
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictQueryRegions();
+    }
+
+    // Reads hit, miss and eviction counters of every cache region from the JCache statistics MBeans
+    public Map<String, Map<String, Object>> getStatistics() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        Map<String, Map<String, Object>> regions = new TreeMap<>();
+        try {
+            for (ObjectName name : server.queryNames(new ObjectName("javax.cache:type=CacheStatistics,*"), null)) {
+                Map<String, Object> values = new LinkedHashMap<>();
+                for (String attribute : STATISTICS) {
+                    values.put(attribute, server.getAttribute(name, attribute));
+                }
+                regions.put(name.getKeyProperty("Cache"), values);
+            }
+        } catch (JMException e) {
+            throw new IllegalStateException("Cache statistics are unavailable: " + e.getMessage(), e);
+        }
+        return regions;
+    }
+}
@@ -0,0 +1,149 @@
+package com.pablo9298.kmdb.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+// Writes the catalog as newline-delimited JSON, one row per line.
+// Rows are read in chunks of CHUNK_SIZE by ID, each in a short read-only transaction of its own, and a chunk is
+// rendered before it is written, so a slow client never holds a transaction open: a long read transaction keeps
+// SQLite's lock and WAL checkpoints from completing while writers wait. Only one chunk is kept in memory.
+// The export is not a snapshot: rows changed while it runs appear as they were when their chunk was read.
+@Service
+public class CatalogExportService {
+
+    // Number of rows read per transaction; the response stream is flushed after each chunk
+    private static final int CHUNK_SIZE = 1000;
+
+    // Movie rows with their genre and actor IDs aggregated per movie, so associations need no extra round trips
+    private static final String MOVIE_EXPORT_SQL = """
+            SELECT m.id, m.title, m.release_year, m.duration,
+                   (SELECT group_concat(mg.genre_id) FROM movie_genre mg WHERE mg.movie_id = m.id) AS genre_ids,
+                   (SELECT group_concat(ma.actor_id) FROM movie_actor ma WHERE ma.movie_id = m.id) AS actor_ids
+            FROM movie m
+            WHERE m.id > ?
+            ORDER BY m.id
+            LIMIT ?""";
+
+    private static final String ACTOR_EXPORT_SQL = "SELECT id, name, birth_date FROM actor WHERE id > ? ORDER BY id LIMIT ?";
+
+    private static final String GENRE_EXPORT_SQL = "SELECT id, name FROM genre WHERE id > ? ORDER BY id LIMIT ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // Exports all movies; associations are written as genreIds and actorIds
+    public void exportMovies(OutputStream out) throws IOException {
+        export(out, MOVIE_EXPORT_SQL, (rs, json) -> {
+            json.writeNumberField("id", rs.getLong("id"));
+            json.writeStringField("title", rs.getString("title"));
+            writeNullableInt(json, "releaseYear", rs.getObject("release_year"));
+            writeNullableInt(json, "duration", rs.getObject("duration"));
+            writeIdArray(json, "genreIds", rs.getString("genre_ids"));
+            writeIdArray(json, "actorIds", rs.getString("actor_ids"));
+        });
+    }
+
+    // Exports all actors
+    public void exportActors(OutputStream out) throws IOException {
+        export(out, ACTOR_EXPORT_SQL, (rs, json) -> {
+            json.writeNumberField("id", rs.getLong("id"));
+            json.writeStringField("name", rs.getString("name"));
+            json.writeStringField("birthDate", rs.getString("birth_date"));
+        });
+    }
+
+    // Exports all genres
+    public void exportGenres(OutputStream out) throws IOException {
+        export(out, GENRE_EXPORT_SQL, (rs, json) -> {
+            json.writeNumberField("id", rs.getLong("id"));
+            json.writeStringField("name", rs.getString("name"));
+        });
+    }
+
+    // Streams the table to the output one chunk at a time, writing each row as one JSON object followed by a newline
+    private void export(OutputStream out, String sql, RowWriter rowWriter) throws IOException {
+        TransactionTemplate readTransaction = new TransactionTemplate(transactionManager);
+        readTransaction.setReadOnly(true);
+        Chunk chunk = new Chunk(0, 0, new byte[0]);
+        do {
+            long afterId = chunk.lastId();
+            chunk = readTransaction.execute(status -> readChunk(sql, afterId, rowWriter));
+            out.write(chunk.rows());
+            out.flush();
+        } while (chunk.count() == CHUNK_SIZE);
+    }
+
+    // Renders the rows after the given ID, up to CHUNK_SIZE of them
+    private Chunk readChunk(String sql, long afterId, RowWriter rowWriter) {
+        ByteArrayOutputStream rows = new ByteArrayOutputStream();
+        long[] lastId = {afterId};
+        int[] count = {0};
+        try (JsonGenerator json = objectMapper.getFactory().createGenerator(rows)) {
+            json.setRootValueSeparator(null); // Lines are separated explicitly below
+            jdbcTemplate.query(sql, (RowCallbackHandler) rs -> {
+                try {
+                    json.writeStartObject();
+                    rowWriter.write(rs, json);
+                    json.writeEndObject();
+                    json.writeRaw('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                lastId[0] = rs.getLong("id");
+                count[0]++;
+            }, afterId, CHUNK_SIZE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new Chunk(count[0], lastId[0], rows.toByteArray());
+    }
+
+    // Writes an integer column that may be NULL
+    private static void writeNullableInt(JsonGenerator json, String field, Object value) throws IOException {
+        if (value == null) {
+            json.writeNullField(field);
+        } else {
+            json.writeNumberField(field, ((Number) value).intValue());
+        }
+    }
+
+    // Writes a comma-separated list of IDs produced by group_concat as a JSON array
+    private static void writeIdArray(JsonGenerator json, String field, String ids) throws IOException {
+        json.writeArrayFieldStart(field);
+        if (ids != null) {
+            for (String id : ids.split(",")) {
+                json.writeNumber(Long.parseLong(id));
+            }
+        }
+        json.writeEndArray();
+    }
+
+    // Rendered rows of one chunk, their number and the last ID among them
+    private record Chunk(int count, long lastId, byte[] rows) {
+    }
+
+    // Writes the fields of the current row
+    @FunctionalInterface
+    private interface RowWriter {
+        void write(ResultSet rs, JsonGenerator json) throws SQLException, IOException;
+    }
+}
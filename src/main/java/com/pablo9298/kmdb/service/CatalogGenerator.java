@@ -0,0 +1,407 @@
+package com.pablo9298.kmdb.service;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigInteger;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.function.IntSupplier;
+
+// Fills an empty catalog with a synthetic, reproducible dataset of any size for scale and performance testing.
+// Every value is drawn from one seeded random stream, so the same settings always produce the same rows.
+// The distribution follows real catalogs: a few genres and actors are far more popular than the rest,
+// most casts are small with a long tail of ensemble films, and release years cluster around film eras.
+// Rows are written with explicit IDs through batched JDBC inserts, bypassing Hibernate entirely.
+@Service
+public class CatalogGenerator {
+
+    private static final Logger log = LoggerFactory.getLogger(CatalogGenerator.class);
+
+    // Genres in order of popularity; the genre at rank r is picked with a weight of 1 / r
+    private static final String[] GENRES = {"Drama", "Comedy", "Thriller", "Action", "Romance", "Crime", "Horror",
+            "Documentary", "Adventure", "Science Fiction", "Family", "Mystery", "Fantasy", "Animation", "History",
+            "War", "Music", "Western", "Biography", "Sport"};
+
+    private static final String[] ADJECTIVES = {"Silent", "Golden", "Last", "Dark", "Broken", "Hidden", "Endless",
+            "Burning", "Frozen", "Lost", "Crimson", "Savage", "Quiet", "Distant", "Wild", "Hollow", "Bright", "Secret",
+            "Restless", "Forgotten", "Scarlet", "Iron", "Velvet", "Midnight", "Eternal", "Wandering", "Fallen", "Sacred",
+            "Electric", "Bitter", "Gentle", "Final"};
+
+    private static final String[] NOUNS = {"River", "Star", "Empire", "Summer", "Storm", "Road", "Winter", "Ghost",
+            "Garden", "Kingdom", "Harbor", "Mirror", "Witness", "Stranger", "Promise", "Frontier", "Island", "Shadow",
+            "Voyage", "Letter", "Crown", "Orchard", "Signal", "Horizon", "Bridge", "Tide", "Station", "Lighthouse",
+            "Hunter", "Dancer", "Soldier", "Prophet", "Machine", "Circus", "Harvest", "Canyon", "Valley", "Fortress",
+            "Whisper", "Echo", "Flame", "Compass", "Lantern", "Serpent", "Falcon", "Wolf", "Raven", "Tiger",
+            "Detective", "Painter", "Widow", "Orphan", "Gambler", "Pilgrim", "Sailor", "Thief", "Doctor", "Heiress",
+            "Train", "Motel", "Carnival", "Monastery", "Vineyard", "Desert"};
+
+    private static final String[] PLACES = {"Paris", "Tokyo", "Berlin", "Cairo", "Lisbon", "Havana", "Vienna",
+            "Istanbul", "Mumbai", "Montreal", "Seoul", "Nairobi", "Oslo", "Prague", "Santiago", "Dublin", "Marseille",
+            "Shanghai", "Texas", "Alaska", "Siberia", "Patagonia", "Sicily", "Bavaria", "Kyoto", "Tangier", "Brooklyn",
+            "Naples", "Tallinn", "Reykjavik", "Manila", "Lagos"};
+
+    private static final String[] FIRST_NAMES = {"Anna", "Boris", "Clara", "David", "Elena", "Felix", "Greta",
+            "Hugo", "Ingrid", "Jonas", "Karin", "Leo", "Maria", "Nikolai", "Olga", "Peter", "Rosa", "Stefan", "Tove",
+            "Ulrich", "Vera", "Walter", "Yara", "Zoltan", "Amelie", "Bruno", "Celine", "Dmitri", "Emma", "Frank",
+            "Gloria", "Henrik", "Irene", "James", "Keiko", "Lucas", "Mei", "Noah", "Oscar", "Paula", "Rafael", "Sofia",
+            "Tomas", "Ursula", "Victor", "Wanda", "Xavier", "Yusuf", "Zara", "Alice", "Ben", "Chloe", "Daniel", "Eva",
+            "Fatima", "George", "Hana", "Ivan", "Julia", "Kofi", "Lena", "Marco", "Nina", "Omar"};
+
+    private static final String[] LAST_NAMES = {"Berg", "Carlsen", "Dahl", "Eriksen", "Fischer", "Hansen", "Ivanov",
+            "Jensen", "Koch", "Larsen", "Meyer", "Nielsen", "Olsen", "Petrov", "Quist", "Rask", "Schmidt", "Tamm",
+            "Urban", "Vogel", "Weber", "Young", "Zimmer", "Almeida", "Brown", "Costa", "Dubois", "Evans", "Ferrari",
+            "Garcia", "Haas", "Ito", "Jovanovic", "Kowalski", "Lindqvist", "Moreau", "Novak", "Okafor", "Park",
+            "Rossi", "Silva", "Tanaka", "Ueda", "Varga", "Walsh", "Xu", "Yilmaz", "Zhang", "Andersson", "Bianchi",
+            "Chen", "Duarte", "Esposito", "Fontaine", "Gonzalez", "Horvath", "Ibrahim", "Kim", "Laurent", "Martin",
+            "Nakamura", "Ortiz", "Popescu", "Rahman"};
+
+    // Film eras that release years cluster around: centre year, spread in years and share of all movies
+    private static final int[][] ERAS = {{1942, 9, 10}, {1972, 9, 20}, {1998, 7, 30}, {2015, 5, 40}};
+    private static final int FIRST_YEAR = 1920;
+    private static final int LAST_YEAR = 2024;
+
+    // Distinct titles before a number is appended, as in a sequel: four templates over every word combination
+    private static final int TITLE_SPACE = 4 * ADJECTIVES.length * NOUNS.length * PLACES.length;
+
+    // Median cast size and the spread of its log-normal distribution, capped for the largest ensembles
+    private static final double MEDIAN_CAST = 5;
+    private static final double CAST_SPREAD = 0.75;
+    private static final int MAX_CAST = 60;
+
+    // Share of roles that go to the popular end of the actor list; the rest are spread evenly
+    private static final double POPULAR_ROLE_SHARE = 0.6;
+
+    // Movies written per transaction, and rows sent per JDBC batch
+    private static final int MOVIES_PER_TRANSACTION = 50_000;
+    private static final int BATCH_SIZE = 5_000;
+
+    // Sizes and seed of a generated catalog; actors 0 means one actor for every four movies (at least 100)
+    public record Settings(int movies, int actors, long seed) {
+
+        public Settings {
+            if (movies < 1) {
+                throw new IllegalArgumentException("The number of movies must be positive");
+            }
+            if (actors < 0) {
+                throw new IllegalArgumentException("The number of actors must not be negative");
+            }
+        }
+
+        public int actorCount() {
+            return actors > 0 ? actors : Math.max(100, movies / 4);
+        }
+    }
+
+    // Row counts of a generated catalog and how long writing it took
+    public record Summary(int movies, int actors, int genres, long movieGenres, long movieActors, long millis) {
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private SuggestService suggestService;
+
+    @Autowired
+    private StatsService statsService;
+
+    @Autowired
+    private CoStarService coStarService;
+
+    @Autowired
+    private FacetService facetService;
+
+    // Words that appear in generated titles, for load tests and benchmarks that search the catalog
+    public static List<String> titleKeywords() {
+        List<String> keywords = new ArrayList<>(List.of(ADJECTIVES));
+        keywords.addAll(List.of(NOUNS));
+        return keywords;
+    }
+
+    // Generates a catalog into empty tables, or replaces the existing catalog when asked to
+    public Summary generate(Settings settings, boolean replace) {
+        Long existing = jdbcTemplate.queryForObject("SELECT count(*) FROM movie", Long.class);
+        Long existingActors = jdbcTemplate.queryForObject("SELECT count(*) FROM actor", Long.class);
+        if ((existing > 0 || existingActors > 0) && !replace) {
+            throw new IllegalStateException("The catalog already contains " + existing + " movies and "
+                    + existingActors + " actors; generate into an empty database or enable replace");
+        }
+
+        long started = System.nanoTime();
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        if (replace) {
+            transaction.executeWithoutResult(status -> {
+                for (String table : new String[]{"movie_actor", "movie_genre", "movie", "actor", "genre"}) {
+                    jdbcTemplate.update("DELETE FROM " + table);
+                }
+            });
+        }
+
+        Writer writer = new Writer(settings);
+        transaction.executeWithoutResult(status -> jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            writer.writeGenres(connection.prepareStatement("INSERT INTO genre (id, name, last_modified) VALUES (?, ?, ?)"));
+            writer.writeActors(connection.prepareStatement("INSERT INTO actor (id, name, birth_date, last_modified) VALUES (?, ?, ?, ?)"));
+            return null;
+        }));
+        for (int first = 1; first <= settings.movies(); first += MOVIES_PER_TRANSACTION) {
+            int last = Math.min(settings.movies(), first + MOVIES_PER_TRANSACTION - 1);
+            int from = first;
+            transaction.executeWithoutResult(status -> jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+                writer.writeMovies(from, last,
+                        connection.prepareStatement("INSERT INTO movie (id, title, release_year, duration, last_modified) VALUES (?, ?, ?, ?, ?)"),
+                        connection.prepareStatement("INSERT INTO movie_genre (movie_id, genre_id) VALUES (?, ?)"),
+                        connection.prepareStatement("INSERT INTO movie_actor (movie_id, actor_id) VALUES (?, ?)"));
+                return null;
+            }));
+            log.info("Generated {} of {} movies", last, settings.movies());
+        }
+
+        // Cached entities and the in-memory indexes describe the rows that were just replaced
+        entityManagerFactory.getCache().evictAll();
+        suggestService.rebuild();
+        statsService.rebuild();
+        coStarService.rebuild();
+        facetService.rebuild();
+
+        Summary summary = new Summary(settings.movies(), settings.actorCount(), GENRES.length,
+                writer.movieGenres, writer.movieActors, (System.nanoTime() - started) / 1_000_000);
+        log.info("Generated catalog with seed {}: {}", settings.seed(), summary);
+        return summary;
+    }
+
+    // Draws all rows of one catalog from a single random stream, in a fixed order
+    private static final class Writer {
+
+        private final SplittableRandom random;
+        private final long now = System.currentTimeMillis();
+        private final int actors;
+        private final long titleMultiplier;
+        private final int[] actorByPopularity;
+        private final double[] genreWeights = new double[GENRES.length];
+        private long movieGenres;
+        private long movieActors;
+
+        Writer(Settings settings) {
+            random = new SplittableRandom(settings.seed());
+            actors = settings.actorCount();
+            titleMultiplier = titleMultiplier(random.nextLong());
+
+            // Popularity rank to actor ID, shuffled so that popular actors are spread over the ID range
+            actorByPopularity = new int[actors];
+            for (int i = 0; i < actors; i++) {
+                actorByPopularity[i] = i + 1;
+            }
+            for (int i = actors - 1; i > 0; i--) {
+                int j = random.nextInt(i + 1);
+                int swap = actorByPopularity[i];
+                actorByPopularity[i] = actorByPopularity[j];
+                actorByPopularity[j] = swap;
+            }
+
+            double total = 0;
+            for (int rank = 0; rank < GENRES.length; rank++) {
+                total += 1.0 / (rank + 1);
+                genreWeights[rank] = total;
+            }
+            for (int rank = 0; rank < GENRES.length; rank++) {
+                genreWeights[rank] /= total;
+            }
+        }
+
+        void writeGenres(PreparedStatement insert) throws SQLException {
+            for (int i = 0; i < GENRES.length; i++) {
+                insert.setInt(1, i + 1);
+                insert.setString(2, GENRES[i]);
+                insert.setLong(3, now);
+                insert.addBatch();
+            }
+            insert.executeBatch();
+            insert.close();
+        }
+
+        void writeActors(PreparedStatement insert) throws SQLException {
+            Set<String> taken = new HashSet<>(); // Name and birth date are a unique key; a drawn duplicate is drawn again
+            for (int id = 1; id <= actors; id++) {
+                String name;
+                String birthDate;
+                do {
+                    name = FIRST_NAMES[random.nextInt(FIRST_NAMES.length)] + " "
+                            + (char) ('A' + random.nextInt(26)) + ". "
+                            + LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+                    int birthYear = 1905 + (int) (100 * Math.sqrt(random.nextDouble())); // More actors in recent generations
+                    birthDate = String.format("%d-%02d-%02d", birthYear, 1 + random.nextInt(12), 1 + random.nextInt(28));
+                } while (!taken.add(name + "|" + birthDate));
+                insert.setInt(1, id);
+                insert.setString(2, name);
+                insert.setString(3, birthDate);
+                insert.setLong(4, now);
+                insert.addBatch();
+                if (id % BATCH_SIZE == 0) {
+                    insert.executeBatch();
+                }
+            }
+            insert.executeBatch();
+            insert.close();
+        }
+
+        void writeMovies(int first, int last, PreparedStatement movies, PreparedStatement genres,
+                         PreparedStatement casts) throws SQLException {
+            int[] picked = new int[MAX_CAST];
+            for (int id = first; id <= last; id++) {
+                movies.setInt(1, id);
+                movies.setString(2, title(id));
+                movies.setInt(3, releaseYear());
+                movies.setInt(4, duration());
+                movies.setLong(5, now);
+                movies.addBatch();
+
+                int genreCount = pickGenreCount();
+                for (int i = 0; i < genreCount; i++) {
+                    int genre = pickDistinct(picked, i, this::pickGenre);
+                    genres.setInt(1, id);
+                    genres.setInt(2, genre);
+                    genres.addBatch();
+                }
+                movieGenres += genreCount;
+
+                int castSize = Math.min(castSize(), actors);
+                for (int i = 0; i < castSize; i++) {
+                    int actor = pickDistinct(picked, i, this::pickActor);
+                    casts.setInt(1, id);
+                    casts.setInt(2, actor);
+                    casts.addBatch();
+                }
+                movieActors += castSize;
+
+                if (id % BATCH_SIZE == 0) { // Movies first, so link rows never precede the rows they reference
+                    movies.executeBatch();
+                    genres.executeBatch();
+                    casts.executeBatch();
+                }
+            }
+            movies.executeBatch();
+            genres.executeBatch();
+            casts.executeBatch();
+            movies.close();
+            genres.close();
+            casts.close();
+        }
+
+        // Multiplying by a number coprime to TITLE_SPACE, modulo TITLE_SPACE, permutes the title space. TITLE_SPACE
+        // is 2^18 with the current word lists, where any odd number will do; the check keeps that true if they change.
+        private static long titleMultiplier(long drawn) {
+            long multiplier = Math.floorMod(drawn, TITLE_SPACE) | 1L;
+            while (BigInteger.valueOf(multiplier).gcd(BigInteger.valueOf(TITLE_SPACE)).intValue() != 1) {
+                multiplier += 2;
+            }
+            return multiplier;
+        }
+
+        // A unique title: the ID picks one word combination of the permuted title space, plus a sequel number past its end
+        private String title(int id) {
+            int slot = (int) ((id - 1) % TITLE_SPACE * titleMultiplier % TITLE_SPACE);
+            int sequel = (id - 1) / TITLE_SPACE;
+
+            String adjective = ADJECTIVES[slot % ADJECTIVES.length];
+            slot /= ADJECTIVES.length;
+            String noun = NOUNS[slot % NOUNS.length];
+            slot /= NOUNS.length;
+            String place = PLACES[slot % PLACES.length];
+            String title = switch (slot / PLACES.length) {
+                case 0 -> "The " + adjective + " " + noun + " of " + place;
+                case 1 -> adjective + " " + noun + " in " + place;
+                case 2 -> place + ": The " + adjective + " " + noun;
+                default -> "The " + adjective + " " + noun + " from " + place;
+            };
+            return sequel == 0 ? title : title + " " + (sequel + 1);
+        }
+
+        // A year near one of the film eras, picked in proportion to the era's share
+        private int releaseYear() {
+            int roll = random.nextInt(100);
+            for (int[] era : ERAS) {
+                roll -= era[2];
+                if (roll < 0) {
+                    long year = Math.round(era[0] + era[1] * gaussian());
+                    return (int) Math.max(FIRST_YEAR, Math.min(LAST_YEAR, year));
+                }
+            }
+            return LAST_YEAR;
+        }
+
+        private int duration() {
+            return (int) Math.max(62, Math.min(220, Math.round(104 + 18 * gaussian())));
+        }
+
+        // One genre for about half of the movies, two or three for the rest
+        private int pickGenreCount() {
+            int roll = random.nextInt(100);
+            return roll < 50 ? 1 : roll < 85 ? 2 : 3;
+        }
+
+        // Genre ID picked with a weight inversely proportional to its popularity rank
+        private int pickGenre() {
+            double roll = random.nextDouble();
+            for (int rank = 0; rank < GENRES.length; rank++) {
+                if (roll < genreWeights[rank]) {
+                    return rank + 1;
+                }
+            }
+            return GENRES.length;
+        }
+
+        // Log-normal cast size: most casts are small, a few are large ensembles
+        private int castSize() {
+            return (int) Math.max(1, Math.min(MAX_CAST, Math.round(MEDIAN_CAST * Math.exp(CAST_SPREAD * gaussian()))));
+        }
+
+        // Actor ID for one role: usually drawn towards the popular end of the ranking, otherwise anyone
+        private int pickActor() {
+            double skewed = random.nextDouble();
+            int rank = random.nextDouble() < POPULAR_ROLE_SHARE
+                    ? (int) (actors * skewed * skewed) // Rank r is picked with a weight of about 1 / sqrt(r)
+                    : random.nextInt(actors);
+            return actorByPopularity[rank];
+        }
+
+        // Draws values until one differs from the first count values already picked, then records it
+        private int pickDistinct(int[] picked, int count, IntSupplier draw) {
+            while (true) {
+                int value = draw.getAsInt();
+                boolean seen = false;
+                for (int i = 0; i < count && !seen; i++) {
+                    seen = picked[i] == value;
+                }
+                if (!seen) {
+                    picked[count] = value;
+                    return value;
+                }
+            }
+        }
+
+        // Standard normal value from the seeded stream (Box-Muller)
+        private double gaussian() {
+            double u = 1.0 - random.nextDouble();
+            return Math.sqrt(-2 * Math.log(u)) * Math.cos(2 * Math.PI * random.nextDouble());
+        }
+    }
+}
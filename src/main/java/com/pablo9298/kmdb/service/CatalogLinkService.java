@@ -0,0 +1,138 @@
+package com.pablo9298.kmdb.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+
+// Set-based reads and writes of the movie_actor and movie_genre join tables.
+// Checks and unlinks go straight to the tables with one indexed statement each, so their cost does not
+// grow with the number of associations the way loading an actor's or genre's movie collection does.
+// Callers run inside the transaction of the surrounding write and keep ID lists within BulkUpdateService.MAX_ITEMS,
+// far below SQLite's limit on bound parameters.
+@Service
+public class CatalogLinkService {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private CatalogCacheService catalogCacheService;
+
+    @Autowired
+    private ChangeLogService changeLogService;
+
+    // Whether the actor appears in any movie, seeking on the movie_actor primary key
+    public boolean actorHasMovies(Long actorId) {
+        return !actorsWithMovies(List.of(actorId)).isEmpty();
+    }
+
+    // Whether any movie is tagged with the genre, seeking on idx_movie_genre_genre
+    public boolean genreHasMovies(Long genreId) {
+        return !genresWithMovies(List.of(genreId)).isEmpty();
+    }
+
+    // Whether the movie has any cast members or genres
+    public boolean movieHasLinks(Long movieId) {
+        return !moviesWithLinks(List.of(movieId)).isEmpty();
+    }
+
+    // Which of the given actors appear in any movie; one EXISTS probe per actor
+    public Set<Long> actorsWithMovies(Collection<Long> actorIds) {
+        return ids("SELECT id FROM actor WHERE id IN (" + placeholders(actorIds) + ") "
+                + "AND EXISTS (SELECT 1 FROM movie_actor WHERE actor_id = actor.id)", actorIds);
+    }
+
+    // Which of the given genres tag any movie; one EXISTS probe per genre
+    public Set<Long> genresWithMovies(Collection<Long> genreIds) {
+        return ids("SELECT id FROM genre WHERE id IN (" + placeholders(genreIds) + ") "
+                + "AND EXISTS (SELECT 1 FROM movie_genre WHERE genre_id = genre.id)", genreIds);
+    }
+
+    // Which of the given movies have any cast members or genres
+    public Set<Long> moviesWithLinks(Collection<Long> movieIds) {
+        return ids("SELECT id FROM movie WHERE id IN (" + placeholders(movieIds) + ") "
+                + "AND (EXISTS (SELECT 1 FROM movie_actor WHERE movie_id = movie.id) "
+                + "OR EXISTS (SELECT 1 FROM movie_genre WHERE movie_id = movie.id))", movieIds);
+    }
+
+    // IDs of the genres of a movie, read without initializing its collection
+    public Set<Long> genreIdsOf(Long movieId) {
+        return genreIdsOf(List.of(movieId)).getOrDefault(movieId, Set.of());
+    }
+
+    // IDs of the cast of a movie, read without initializing its collection
+    public Set<Long> actorIdsOf(Long movieId) {
+        return actorIdsOf(List.of(movieId)).getOrDefault(movieId, Set.of());
+    }
+
+    // IDs of the genres of each given movie that has any, keyed by movie ID
+    public Map<Long, Set<Long>> genreIdsOf(Collection<Long> movieIds) {
+        return links("SELECT movie_id, genre_id FROM movie_genre WHERE movie_id IN (" + placeholders(movieIds) + ")", movieIds);
+    }
+
+    // IDs of the cast of each given movie that has any, keyed by movie ID
+    public Map<Long, Set<Long>> actorIdsOf(Collection<Long> movieIds) {
+        return links("SELECT movie_id, actor_id FROM movie_actor WHERE movie_id IN (" + placeholders(movieIds) + ")", movieIds);
+    }
+
+    // Removes an actor from every cast it is in; returns the number of movies changed
+    public int unlinkActor(Long actorId) {
+        return unlinkActors(List.of(actorId));
+    }
+
+    // Removes a genre from every movie it tags; returns the number of movies changed
+    public int unlinkGenre(Long genreId) {
+        return unlinkGenres(List.of(genreId));
+    }
+
+    // Removes the given actors from every cast they are in; returns the number of movies changed
+    public int unlinkActors(Collection<Long> actorIds) {
+        return unlink("movie_actor", "actor_id", actorIds);
+    }
+
+    // Removes the given genres from every movie they tag; returns the number of movies changed
+    public int unlinkGenres(Collection<Long> genreIds) {
+        return unlink("movie_genre", "genre_id", genreIds);
+    }
+
+    // Removes the cast and genre links of movies that are about to be deleted
+    public void unlinkMovies(Collection<Long> movieIds) {
+        jdbcTemplate.update("DELETE FROM movie_actor WHERE movie_id IN (" + placeholders(movieIds) + ")", movieIds.toArray());
+        jdbcTemplate.update("DELETE FROM movie_genre WHERE movie_id IN (" + placeholders(movieIds) + ")", movieIds.toArray());
+        catalogCacheService.evictMoviesAfterCommit(movieIds);
+    }
+
+    // Bumps the version of the linked movies, as Hibernate does when a collection of theirs changes, so their
+    // ETags move on, and logs them as updated; then deletes the links and drops those movies from the cache once
+    // the transaction commits
+    private int unlink(String table, String column, Collection<Long> ids) {
+        List<Object> args = new ArrayList<>(ids.size() + 1);
+        args.add(System.currentTimeMillis());
+        args.addAll(ids);
+        List<Long> movies = jdbcTemplate.queryForList("UPDATE movie SET version = version + 1, last_modified = ? WHERE id IN "
+                + "(SELECT movie_id FROM " + table + " WHERE " + column + " IN (" + placeholders(ids) + ")) RETURNING id",
+                Long.class, args.toArray());
+        jdbcTemplate.update("DELETE FROM " + table + " WHERE " + column + " IN (" + placeholders(ids) + ")", ids.toArray());
+        catalogCacheService.evictMoviesAfterCommit(movies);
+        changeLogService.recordMovieUpdates(movies);
+        return movies.size();
+    }
+
+    private Set<Long> ids(String sql, Collection<Long> args) {
+        return new HashSet<>(jdbcTemplate.queryForList(sql, Long.class, args.toArray()));
+    }
+
+    private Map<Long, Set<Long>> links(String sql, Collection<Long> movieIds) {
+        Map<Long, Set<Long>> links = new HashMap<>();
+        jdbcTemplate.query(sql, (RowCallbackHandler) row ->
+                links.computeIfAbsent(row.getLong(1), movieId -> new LinkedHashSet<>()).add(row.getLong(2)), movieIds.toArray());
+        return links;
+    }
+
+    private static String placeholders(Collection<?> values) {
+        return String.join(", ", Collections.nCopies(values.size(), "?"));
+    }
+}
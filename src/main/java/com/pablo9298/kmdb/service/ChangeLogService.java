@@ -0,0 +1,431 @@
+package com.pablo9298.kmdb.service;
+
+import com.pablo9298.kmdb.dto.CatalogChange;
+import com.pablo9298.kmdb.dto.ChangeLogHead;
+import com.pablo9298.kmdb.dto.ChangePage;
+import com.pablo9298.kmdb.event.ActorChangedEvent;
+import com.pablo9298.kmdb.event.ChangeType;
+import com.pablo9298.kmdb.event.GenreChangedEvent;
+import com.pablo9298.kmdb.event.MovieChangedEvent;
+import com.pablo9298.kmdb.exception.ChangesExpiredException;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+// Durable, ordered log of catalog changes, so downstream caches and indexes can sync incrementally.
+// Every create, update and delete event is written to the change_log table by the transaction that made the change,
+// in one batch just before it commits, so an entry exists exactly when its change does. SQLite lets one transaction
+// write at a time, so sequence numbers increase in commit order: once a reader has seen an entry, no entry with a
+// lower number can still appear. Movies that lose cast members or genres to a force delete are logged as updated.
+// New entries are read once by a dispatcher thread, which is woken whenever a change commits and otherwise polls,
+// so changes committed by other paths are picked up as well. It hands them to a bounded buffer per Server-Sent
+// Events subscriber, and each subscriber has a virtual thread of its own that sends from that buffer, so a slow
+// client only holds up itself. A subscriber that falls stream-buffer changes behind is closed and has to resume
+// with Last-Event-ID.
+@Service
+@DependsOn("sqliteSchemaInitializer")
+public class ChangeLogService {
+
+    private static final Logger log = LoggerFactory.getLogger(ChangeLogService.class);
+
+    // Number of changes returned when the client does not ask for a specific limit
+    public static final int DEFAULT_LIMIT = 100;
+
+    // Upper bound on the number of changes per request, and per read of the dispatcher
+    public static final int MAX_LIMIT = 1_000;
+
+    // Time without events after which a subscriber gets a keep-alive comment, so idle proxies keep the stream open
+    private static final long HEARTBEAT_MILLIS = TimeUnit.SECONDS.toMillis(15);
+
+    // Time between two prunes of the log
+    private static final long PRUNE_INTERVAL_NANOS = TimeUnit.HOURS.toNanos(1);
+
+    private static final RowMapper<CatalogChange> CHANGE = (row, rowNum) -> new CatalogChange(row.getLong("seq"),
+            row.getString("entity"), row.getLong("entity_id"), ChangeType.valueOf(row.getString("type")), row.getLong("changed_at"));
+
+    // Number of most recent changes kept; older entries are pruned every hour
+    @Value("${kmdb.change-log.max-entries:1000000}")
+    private long maxEntries;
+
+    // Longest time a committed change waits for the dispatcher when no wake-up reached it
+    @Value("${kmdb.change-log.poll-interval-ms:1000}")
+    private long pollIntervalMs;
+
+    // Changes a stream may have waiting to be sent before it is closed as too far behind
+    @Value("${kmdb.change-log.stream-buffer:10000}")
+    private int streamBuffer;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // Key of the entries a transaction has recorded and not yet written
+    private final Object pendingKey = new Object();
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final Semaphore wakeUp = new Semaphore(0);
+    private TransactionTemplate readTransaction;
+    private volatile boolean running;
+
+    // Last change the dispatcher has handed to the subscribers
+    private long head;
+
+    @PostConstruct
+    public void start() {
+        readTransaction = new TransactionTemplate(transactionManager);
+        readTransaction.setReadOnly(true);
+        prune();
+        head = latestSeq();
+        running = true;
+        Thread.ofPlatform().name("kmdb-change-stream").daemon().start(this::dispatch);
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        wakeUp.release();
+        subscribers.forEach(subscriber -> subscriber.close(null));
+    }
+
+    // Records a movie change with the transaction that makes it
+    @EventListener
+    public void onMovieChanged(MovieChangedEvent event) {
+        record("movie", List.of(event.movieId()), event.type());
+    }
+
+    // Records an actor change with the transaction that makes it
+    @EventListener
+    public void onActorChanged(ActorChangedEvent event) {
+        record("actor", List.of(event.actorId()), event.type());
+    }
+
+    // Records a genre change with the transaction that makes it
+    @EventListener
+    public void onGenreChanged(GenreChangedEvent event) {
+        record("genre", List.of(event.genreId()), event.type());
+    }
+
+    // Records movies changed by JDBC writes that publish no event of their own, such as unlinking a deleted actor
+    public void recordMovieUpdates(Collection<Long> movieIds) {
+        record("movie", movieIds, ChangeType.UPDATED);
+    }
+
+    // Lists changes committed after the given sequence number, oldest first
+    public ChangePage getChangesSince(long since, Integer limit) {
+        int checkedLimit = checkLimit(limit);
+        return readTransaction.execute(status -> {
+            checkSince(since);
+            List<CatalogChange> changes = read(since, checkedLimit + 1);
+            boolean hasMore = changes.size() > checkedLimit;
+            if (hasMore) {
+                changes = List.copyOf(changes.subList(0, checkedLimit));
+            }
+            long lastSeq = changes.isEmpty() ? since : changes.get(changes.size() - 1).seq();
+            return new ChangePage(changes, lastSeq, hasMore);
+        });
+    }
+
+    // Oldest retained and latest sequence numbers, both 0 while the log is empty. A consumer that starts from
+    // scratch reads the latest number first, loads the catalog, and then asks for the changes after that number.
+    public ChangeLogHead getHead() {
+        return readTransaction.execute(status -> jdbcTemplate.queryForObject(
+                "SELECT coalesce(min(seq), 0), coalesce(max(seq), 0) FROM change_log",
+                (row, rowNum) -> new ChangeLogHead(row.getLong(1), row.getLong(2))));
+    }
+
+    // Opens a stream of changes committed after the given sequence number, or from now on when it is null.
+    // Each change is sent as a "change" event whose ID is its sequence number, so a client that reconnects
+    // with Last-Event-ID resumes where it left off. A starting point that was pruned gets a single "expired"
+    // event instead, and one that was never assigned a single "invalid" event, as browsers' EventSource cannot
+    // read the status of a failed request.
+    public SseEmitter subscribe(Long since) {
+        SseEmitter emitter = new SseEmitter();
+        long from;
+        try {
+            from = readTransaction.execute(status -> {
+                long start = since != null ? since : latestSeq();
+                checkSince(start);
+                return start;
+            });
+        } catch (ChangesExpiredException e) {
+            return rejected(emitter, "expired", e.getMessage(), e.getLatestSeq());
+        } catch (IllegalArgumentException e) {
+            return rejected(emitter, "invalid", e.getMessage(), readTransaction.execute(status -> latestSeq()));
+        }
+        Subscriber subscriber = new Subscriber(emitter, from);
+        emitter.onCompletion(() -> subscriber.close(null));
+        emitter.onTimeout(() -> subscriber.close(null));
+        emitter.onError(error -> subscriber.close(null));
+        subscribers.add(subscriber);
+        subscriber.sender.start();
+        return emitter;
+    }
+
+    // Number of open change streams
+    public int subscriberCount() {
+        return subscribers.size();
+    }
+
+    // Adds entries to the batch the current transaction writes before it commits, or writes them right away without one
+    @SuppressWarnings("unchecked")
+    private void record(String entity, Collection<Long> ids, ChangeType type) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        List<Object[]> rows = new ArrayList<>(ids.size());
+        for (Long id : ids) {
+            rows.add(new Object[]{entity, id, type.name(), now});
+        }
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            insert(rows);
+            wakeUp.release();
+            return;
+        }
+        List<Object[]> pending = (List<Object[]>) TransactionSynchronizationManager.getResource(pendingKey);
+        if (pending == null) {
+            List<Object[]> batch = new ArrayList<>();
+            TransactionSynchronizationManager.bindResource(pendingKey, batch);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void beforeCommit(boolean readOnly) {
+                    insert(batch);
+                    release(batch);
+                }
+
+                // Also released before the commit, as the write queue runs this after its group commit, by which
+                // time the thread may already be collecting the batch of another transaction
+                @Override
+                public void afterCompletion(int status) {
+                    release(batch);
+                    if (status == STATUS_COMMITTED) {
+                        wakeUp.release();
+                    }
+                }
+            });
+            pending = batch;
+        }
+        pending.addAll(rows);
+    }
+
+    private void release(List<Object[]> batch) {
+        if (TransactionSynchronizationManager.getResource(pendingKey) == batch) {
+            TransactionSynchronizationManager.unbindResource(pendingKey);
+        }
+    }
+
+    private void insert(List<Object[]> rows) {
+        jdbcTemplate.batchUpdate("INSERT INTO change_log (entity, entity_id, type, changed_at) VALUES (?, ?, ?, ?)", rows);
+    }
+
+    // Reads changes after the given sequence number in a read-only transaction of its own
+    private List<CatalogChange> readSince(long since) {
+        return readTransaction.execute(status -> read(since, MAX_LIMIT));
+    }
+
+    private List<CatalogChange> read(long since, int limit) {
+        return jdbcTemplate.query("SELECT seq, entity, entity_id, type, changed_at FROM change_log WHERE seq > ? ORDER BY seq LIMIT ?",
+                CHANGE, since, limit);
+    }
+
+    private long latestSeq() {
+        return jdbcTemplate.queryForObject("SELECT coalesce(max(seq), 0) FROM change_log", Long.class);
+    }
+
+    // Rejects a starting point that no change has had yet, or whose following changes were pruned,
+    // since listing the rest would silently skip them
+    private void checkSince(long since) {
+        long latest = latestSeq();
+        if (since < 0 || since > latest) {
+            throw new IllegalArgumentException("since must be between 0 and the latest sequence number, " + latest);
+        }
+        Long oldest = jdbcTemplate.queryForObject("SELECT min(seq) FROM change_log", Long.class);
+        if (oldest != null && since < oldest - 1) {
+            throw new ChangesExpiredException("Changes after " + since + " are no longer retained; the oldest is "
+                    + oldest + ". Reload the catalog and continue from the latest change.", latest);
+        }
+    }
+
+    // Ends a stream that cannot start with a single event of the given name explaining why
+    private SseEmitter rejected(SseEmitter emitter, String event, String message, long latestSeq) {
+        try {
+            emitter.send(SseEmitter.event().name(event)
+                    .data(Map.of("message", message, "latestSeq", latestSeq), MediaType.APPLICATION_JSON));
+            emitter.complete();
+        } catch (IOException sendFailure) {
+            emitter.completeWithError(sendFailure);
+        }
+        return emitter;
+    }
+
+    // Drops all but the newest maxEntries changes; the newest one is always kept so the oldest retained change stays known
+    private void prune() {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            int pruned = jdbcTemplate.update("DELETE FROM change_log WHERE seq <= (SELECT max(seq) FROM change_log) - ?",
+                    Math.max(maxEntries, 1));
+            if (pruned > 0) {
+                log.info("Pruned {} entries from the change log", pruned);
+            }
+        });
+    }
+
+    // Dispatcher loop: after every wake-up or poll interval, reads what was committed since its last read
+    private void dispatch() {
+        long lastPrune = System.nanoTime();
+        while (running) {
+            try {
+                wakeUp.tryAcquire(pollIntervalMs, TimeUnit.MILLISECONDS);
+                wakeUp.drainPermits();
+            } catch (InterruptedException e) {
+                return;
+            }
+            try {
+                deliver();
+                if (System.nanoTime() - lastPrune > PRUNE_INTERVAL_NANOS) {
+                    lastPrune = System.nanoTime();
+                    prune();
+                }
+            } catch (RuntimeException e) {
+                log.warn("Cannot dispatch catalog changes: {}", e.getMessage());
+            }
+        }
+    }
+
+    // Reads new changes one batch at a time and hands every batch to each subscriber's buffer. The position moves
+    // on even without subscribers, as a new subscriber reads what it missed itself.
+    private void deliver() {
+        List<CatalogChange> changes;
+        do {
+            changes = readSince(head);
+            if (changes.isEmpty()) {
+                return;
+            }
+            for (Subscriber subscriber : subscribers) {
+                subscriber.offer(changes);
+            }
+            head = changes.get(changes.size() - 1).seq();
+        } while (changes.size() == MAX_LIMIT && running);
+    }
+
+    // Validates a requested number of changes
+    private int checkLimit(Integer limit) {
+        if (limit == null) {
+            return DEFAULT_LIMIT;
+        }
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new IllegalArgumentException("Limit parameter must be between 1 and " + MAX_LIMIT);
+        }
+        return limit;
+    }
+
+    // An open change stream, the changes waiting to be sent on it and the last one sent.
+    // Only its sender thread sends; the dispatcher only adds to the buffer.
+    private final class Subscriber {
+
+        private final SseEmitter emitter;
+        private final BlockingQueue<CatalogChange> buffer = new ArrayBlockingQueue<>(streamBuffer);
+        private final Thread sender;
+        private volatile boolean open = true;
+        private volatile boolean overrun;
+        private long lastSeq;
+
+        private Subscriber(SseEmitter emitter, long lastSeq) {
+            this.emitter = emitter;
+            this.lastSeq = lastSeq;
+            this.sender = Thread.ofVirtual().name("kmdb-change-stream-sender").unstarted(this::run);
+        }
+
+        // Called by the dispatcher; a subscriber without room for the whole batch is too far behind and is closed
+        private void offer(List<CatalogChange> changes) {
+            if (buffer.remainingCapacity() < changes.size()) {
+                overrun = true;
+                close(null);
+                return;
+            }
+            buffer.addAll(changes);
+        }
+
+        // Sends what was committed since the starting point, which the dispatcher read before this stream
+        // was opened, then whatever the dispatcher hands over, with a keep-alive comment when idle
+        private void run() {
+            try {
+                List<CatalogChange> missed;
+                do {
+                    missed = readSince(lastSeq);
+                    send(missed);
+                } while (missed.size() == MAX_LIMIT && open);
+                while (open) {
+                    CatalogChange change = buffer.poll(HEARTBEAT_MILLIS, TimeUnit.MILLISECONDS);
+                    if (change == null) {
+                        emitter.send(SseEmitter.event().comment("keep-alive"));
+                    } else {
+                        send(List.of(change));
+                    }
+                }
+                if (overrun) {
+                    emitter.send(SseEmitter.event().name("overrun").data(Map.of("message",
+                            "Stream fell more than " + streamBuffer + " changes behind; reconnect to resume after "
+                                    + lastSeq, "lastSeq", lastSeq), MediaType.APPLICATION_JSON));
+                    emitter.complete();
+                }
+            } catch (InterruptedException e) {
+                // Closed while waiting for changes
+            } catch (IOException | IllegalStateException | DataAccessException e) {
+                close(e);
+            }
+        }
+
+        // Sends the changes it has not sent yet; the catch-up read and the buffer can overlap
+        private void send(List<CatalogChange> changes) throws IOException {
+            for (CatalogChange change : changes) {
+                if (change.seq() > lastSeq) {
+                    emitter.send(SseEmitter.event().id(Long.toString(change.seq())).name("change")
+                            .data(change, MediaType.APPLICATION_JSON));
+                    lastSeq = change.seq();
+                }
+            }
+        }
+
+        // Forgets the stream and stops its sender; a failure also ends the response with an error.
+        // An overrun stream is left for its sender to end, after telling the client why.
+        private void close(Exception failure) {
+            open = false;
+            subscribers.remove(this);
+            if (failure != null) {
+                emitter.completeWithError(failure);
+            } else if (!overrun) {
+                sender.interrupt();
+                emitter.complete();
+            }
+        }
+    }
+}
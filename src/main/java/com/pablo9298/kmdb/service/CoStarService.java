@@ -0,0 +1,167 @@
+package com.pablo9298.kmdb.service;
+
+import com.pablo9298.kmdb.dto.ActorConnection;
+import com.pablo9298.kmdb.dto.CoStar;
+import com.pablo9298.kmdb.event.ActorChangedEvent;
+import com.pablo9298.kmdb.event.ChangeType;
+import com.pablo9298.kmdb.event.MovieChangedEvent;
+import com.pablo9298.kmdb.exception.ResourceNotFoundException;
+import com.pablo9298.kmdb.index.CoStarGraph;
+import com.pablo9298.kmdb.model.Actor;
+import com.pablo9298.kmdb.model.Movie;
+import com.pablo9298.kmdb.repository.ActorRepository;
+import com.pablo9298.kmdb.repository.MovieRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+// Degrees of separation and co-star rankings, answered from an in-memory collaboration graph.
+// The graph is loaded once at startup from the movie_actor table and then follows committed cast changes,
+// in commit order, through the catalog change events; only the names in a response are read from the database.
+@Service
+@DependsOn("sqliteSchemaInitializer")
+public class CoStarService {
+
+    private static final Logger log = LoggerFactory.getLogger(CoStarService.class);
+
+    // Search depth used when the client does not ask for one, and the deepest search allowed
+    public static final int DEFAULT_MAX_DEGREES = 6;
+    public static final int MAX_DEGREES = 12;
+
+    // Number of co-stars returned when the client does not ask for a specific limit, and the upper bound
+    public static final int DEFAULT_LIMIT = 10;
+    public static final int MAX_LIMIT = 100;
+
+    private final CoStarGraph graph = new CoStarGraph();
+
+    private final CommitOrderedEvents changes = new CommitOrderedEvents(this::apply);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ActorRepository actorRepository;
+
+    @Autowired
+    private MovieRepository movieRepository;
+
+    // Loads the graph from the database
+    @PostConstruct
+    public void rebuild() {
+        long started = System.nanoTime();
+        CoStarGraph.Builder builder = new CoStarGraph.Builder();
+        jdbcTemplate.query("SELECT movie_id, actor_id FROM movie_actor",
+                (RowCallbackHandler) row -> builder.add(row.getLong(1), row.getLong(2)));
+        graph.replace(builder);
+        log.info("Collaboration graph built in {} ms: {}", (System.nanoTime() - started) / 1_000_000, graph.stats());
+    }
+
+    // Finds how two actors are connected through the movies they made, fewest movies first
+    @Transactional(readOnly = true)
+    public ActorConnection getConnection(Long fromActorId, Long toActorId, Integer maxDegrees) {
+        int depth = checkRange("maxDegrees", maxDegrees, DEFAULT_MAX_DEGREES, MAX_DEGREES);
+        checkActorExists(fromActorId);
+        checkActorExists(toActorId);
+
+        CoStarGraph.Path path = graph.shortestPath(fromActorId, toActorId, depth);
+        if (path == null) {
+            return new ActorConnection(fromActorId, toActorId, fromActorId.equals(toActorId), 0, List.of());
+        }
+
+        Map<Long, String> actorNames = actorRepository.findAllById(ids(path.actorIds())).stream()
+                .collect(Collectors.toMap(Actor::getId, Actor::getName));
+        Map<Long, String> movieTitles = movieRepository.findAllById(ids(path.movieIds())).stream()
+                .collect(Collectors.toMap(Movie::getId, Movie::getTitle));
+        List<ActorConnection.Step> steps = new ArrayList<>(path.actorIds().length);
+        for (int i = 0; i < path.actorIds().length; i++) {
+            Long movieId = i > 0 ? path.movieIds()[i - 1] : null;
+            steps.add(new ActorConnection.Step(path.actorIds()[i], actorNames.get(path.actorIds()[i]),
+                    movieId, movieId != null ? movieTitles.get(movieId) : null));
+        }
+        return new ActorConnection(fromActorId, toActorId, true, path.degrees(), steps);
+    }
+
+    // Ranks the actors who appeared alongside an actor by how much they worked together
+    @Transactional(readOnly = true)
+    public List<CoStar> getCoStars(Long actorId, Integer limit) {
+        int size = checkRange("Limit", limit, DEFAULT_LIMIT, MAX_LIMIT);
+        checkActorExists(actorId);
+
+        List<CoStarGraph.CoStar> ranked = graph.topCoStars(actorId, size);
+        Map<Long, String> names = actorRepository.findAllById(ranked.stream().map(CoStarGraph.CoStar::actorId).toList())
+                .stream().collect(Collectors.toMap(Actor::getId, Actor::getName));
+        return ranked.stream()
+                .map(coStar -> new CoStar(coStar.actorId(), names.get(coStar.actorId()), coStar.sharedMovies(), coStar.weight()))
+                .toList();
+    }
+
+    // Reports the size and estimated memory footprint of the collaboration graph
+    public CoStarGraph.Stats graphStats() {
+        return graph.stats();
+    }
+
+    // Collects the catalog changes of the current transaction, which are applied in commit order once it commits
+    @EventListener
+    public void onMovieChanged(MovieChangedEvent event) {
+        changes.collect(event);
+    }
+
+    @EventListener
+    public void onActorChanged(ActorChangedEvent event) {
+        changes.collect(event);
+    }
+
+    // Applies one committed change: a movie whose cast changed replaces its cast in the graph, and a forced
+    // delete of an actor removed it from its casts
+    private void apply(Object event) {
+        switch (event) {
+            case MovieChangedEvent movie -> {
+                switch (movie.type()) {
+                    case CREATED, UPDATED -> {
+                        if (movie.before() == null || !movie.before().actorIds().equals(movie.after().actorIds())) {
+                            graph.putMovie(movie.movieId(), movie.after().actorIds().stream().mapToLong(Long::longValue).toArray());
+                        }
+                    }
+                    case DELETED -> graph.removeMovie(movie.movieId());
+                }
+            }
+            case ActorChangedEvent actor -> {
+                if (actor.type() == ChangeType.DELETED) {
+                    graph.removeActor(actor.actorId());
+                }
+            }
+            default -> throw new IllegalArgumentException("Not a catalog change: " + event);
+        }
+    }
+
+    private void checkActorExists(Long actorId) {
+        if (!actorRepository.existsById(actorId)) {
+            throw new ResourceNotFoundException("Actor not found with ID: " + actorId);
+        }
+    }
+
+    // Validates an optional numeric parameter
+    private int checkRange(String name, Integer value, int defaultValue, int max) {
+        if (value == null) {
+            return defaultValue;
+        }
+        if (value < 1 || value > max) {
+            throw new IllegalArgumentException(name + " parameter must be between 1 and " + max);
+        }
+        return value;
+    }
+
+    private static List<Long> ids(long[] values) {
+        return Arrays.stream(values).boxed().toList();
+    }
+}
@@ -0,0 +1,93 @@
+package com.pablo9298.kmdb.service;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.Consumer;
+
+// Hands the catalog change events of committed transactions to an in-memory index in commit order.
+// After-commit callbacks of concurrent transactions run in whatever order their threads get to them, so an index
+// fed straight from them could apply an older change over a newer one. Instead each transaction's events are
+// queued just before it commits: ChangeLogService has written its entries by then, and the transaction holds the
+// database write lock until it commits, so the queue is in change log order. Once a transaction completes, the
+// committed batches at the head of the queue are applied and rolled back ones dropped; a batch behind a
+// transaction that has not completed yet waits for it.
+final class CommitOrderedEvents {
+
+    private final Consumer<Object> apply;
+
+    private final Object pendingKey = new Object();
+
+    // Batches of transactions that reached their commit, oldest first; guarded by this object's monitor
+    private final Deque<Batch> queue = new ArrayDeque<>();
+
+    CommitOrderedEvents(Consumer<Object> apply) {
+        this.apply = apply;
+    }
+
+    // Adds the event to the current transaction's batch, or applies it in turn right away without a transaction
+    void collect(Object event) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            Batch batch = new Batch();
+            batch.events.add(event);
+            enqueue(batch);
+            complete(batch, true);
+            return;
+        }
+        Batch pending = (Batch) TransactionSynchronizationManager.getResource(pendingKey);
+        if (pending == null) {
+            Batch batch = new Batch();
+            TransactionSynchronizationManager.bindResource(pendingKey, batch);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                // Runs after ChangeLogService has written the transaction's entries before the commit; the write
+                // queue runs it for each of its transactions in turn, before the group commits
+                @Override
+                public void beforeCompletion() {
+                    if (TransactionSynchronizationManager.getResource(pendingKey) == batch) {
+                        TransactionSynchronizationManager.unbindResource(pendingKey);
+                    }
+                    enqueue(batch);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    complete(batch, status == STATUS_COMMITTED);
+                }
+            });
+            pending = batch;
+        }
+        pending.events.add(event);
+    }
+
+    private synchronized void enqueue(Batch batch) {
+        batch.queued = true;
+        queue.add(batch);
+    }
+
+    // Records the outcome of a transaction and applies every batch that is no longer waiting for an earlier one
+    private synchronized void complete(Batch batch, boolean committed) {
+        if (!batch.queued) {
+            return;
+        }
+        batch.state = committed ? State.COMMITTED : State.ROLLED_BACK;
+        while (!queue.isEmpty() && queue.peek().state != State.PENDING) {
+            Batch head = queue.poll();
+            if (head.state == State.COMMITTED) {
+                head.events.forEach(apply);
+            }
+        }
+    }
+
+    private enum State { PENDING, COMMITTED, ROLLED_BACK }
+
+    // The events of one transaction
+    private static final class Batch {
+        final List<Object> events = new ArrayList<>();
+        boolean queued;
+        State state = State.PENDING;
+    }
+}
@@ -0,0 +1,162 @@
+package com.pablo9298.kmdb.service;
+
+import com.pablo9298.kmdb.dto.Cursor;
+import com.pablo9298.kmdb.dto.CursorPage;
+import com.pablo9298.kmdb.dto.MovieFacets;
+import com.pablo9298.kmdb.event.ActorChangedEvent;
+import com.pablo9298.kmdb.event.ChangeType;
+import com.pablo9298.kmdb.event.GenreChangedEvent;
+import com.pablo9298.kmdb.event.MovieChangedEvent;
+import com.pablo9298.kmdb.event.MovieSnapshot;
+import com.pablo9298.kmdb.index.MovieFacetIndex;
+import com.pablo9298.kmdb.model.Genre;
+import com.pablo9298.kmdb.model.Movie;
+import com.pablo9298.kmdb.repository.GenreRepository;
+import com.pablo9298.kmdb.repository.MovieRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Faceted movie filtering, answered from in-memory bitmap indexes.
+// The indexes are loaded once at startup and then follow committed changes, in commit order, through the catalog
+// change events; only the movies on the requested page and the genre names are read from the database.
+@Service
+@DependsOn("sqliteSchemaInitializer")
+public class FacetService {
+
+    private static final Logger log = LoggerFactory.getLogger(FacetService.class);
+
+    // Sort key recorded in continuation tokens; facet pages are always in ID order
+    private static final String SORT = "id";
+
+    private final MovieFacetIndex index = new MovieFacetIndex();
+
+    private final CommitOrderedEvents changes = new CommitOrderedEvents(this::apply);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MovieRepository movieRepository;
+
+    @Autowired
+    private GenreRepository genreRepository;
+
+    // Loads the indexes from the database
+    @PostConstruct
+    public void rebuild() {
+        long started = System.nanoTime();
+        MovieFacetIndex.Builder builder = new MovieFacetIndex.Builder();
+        jdbcTemplate.query("SELECT id, release_year, duration FROM movie",
+                (RowCallbackHandler) row -> builder.movie(row.getLong(1), row.getObject(2, Integer.class), row.getObject(3, Integer.class)));
+        jdbcTemplate.query("SELECT movie_id, genre_id FROM movie_genre",
+                (RowCallbackHandler) row -> builder.genre(row.getLong(1), row.getLong(2)));
+        jdbcTemplate.query("SELECT movie_id, actor_id FROM movie_actor",
+                (RowCallbackHandler) row -> builder.actor(row.getLong(1), row.getLong(2)));
+        index.replace(builder);
+        log.info("Facet indexes built in {} ms: {}", (System.nanoTime() - started) / 1_000_000, index.stats());
+    }
+
+    // Filters movies by all of the given genres and actors and by release year and duration ranges,
+    // returning a page of matches in ID order together with the facet counts
+    @Transactional(readOnly = true)
+    public MovieFacets getFacets(Set<Long> genreIds, Set<Long> actorIds, Integer yearFrom, Integer yearTo,
+                                 Integer durationMin, Integer durationMax, String token, int limit) {
+        checkRange("yearFrom", yearFrom, "yearTo", yearTo);
+        checkRange("durationMin", durationMin, "durationMax", durationMax);
+        long afterId = token != null ? Cursor.decode(token, SORT).id() : 0;
+
+        MovieFacetIndex.Result result = index.search(new MovieFacetIndex.Query(genreIds, actorIds, yearFrom, yearTo,
+                durationMin, durationMax), afterId, limit + 1);
+
+        Map<Long, Movie> byId = movieRepository.findAllWithAssociationsByIdIn(ids(result.movieIds())).stream()
+                .collect(Collectors.toMap(Movie::getId, Function.identity()));
+        List<Movie> movies = Arrays.stream(result.movieIds()).mapToObj(byId::get).filter(Objects::nonNull).toList();
+        CursorPage<Movie> page = CursorPage.of(movies, limit, movie -> new Cursor(SORT, null, movie.getId()));
+
+        Map<Long, String> names = genreRepository.findAllById(result.genreCounts().keySet()).stream()
+                .collect(Collectors.toMap(Genre::getId, Genre::getName));
+        List<MovieFacets.GenreFacet> genres = new ArrayList<>();
+        result.genreCounts().forEach((genreId, count) -> genres.add(new MovieFacets.GenreFacet(genreId, names.get(genreId), count)));
+
+        return new MovieFacets(result.total(), page.items(), page.nextCursor(), genres,
+                ranges(result.decadeCounts(), 10), ranges(result.durationCounts(), MovieFacetIndex.DURATION_BUCKET));
+    }
+
+    // Reports the size and estimated memory footprint of the facet indexes
+    public MovieFacetIndex.Stats indexStats() {
+        return index.stats();
+    }
+
+    // Collects the catalog changes of the current transaction, which are applied in commit order once it commits
+    @EventListener
+    public void onMovieChanged(MovieChangedEvent event) {
+        changes.collect(event);
+    }
+
+    @EventListener
+    public void onGenreChanged(GenreChangedEvent event) {
+        changes.collect(event);
+    }
+
+    @EventListener
+    public void onActorChanged(ActorChangedEvent event) {
+        changes.collect(event);
+    }
+
+    // Applies one committed change. A movie leaves the indexes of its old values and joins those of its new ones;
+    // as changes arrive in commit order, its old values are the ones it is indexed under. A forced delete of a
+    // genre or actor removed it from the movies it was linked to.
+    private void apply(Object event) {
+        switch (event) {
+            case MovieChangedEvent movie -> {
+                if (movie.before() != null) {
+                    MovieSnapshot before = movie.before();
+                    index.remove(movie.movieId(), before.releaseYear(), before.duration(), before.genreIds(), before.actorIds());
+                }
+                if (movie.after() != null) {
+                    MovieSnapshot after = movie.after();
+                    index.put(movie.movieId(), after.releaseYear(), after.duration(), after.genreIds(), after.actorIds());
+                }
+            }
+            case GenreChangedEvent genre -> {
+                if (genre.type() == ChangeType.DELETED) {
+                    index.removeGenre(genre.genreId());
+                }
+            }
+            case ActorChangedEvent actor -> {
+                if (actor.type() == ChangeType.DELETED) {
+                    index.removeActor(actor.actorId());
+                }
+            }
+            default -> throw new IllegalArgumentException("Not a catalog change: " + event);
+        }
+    }
+
+    private static void checkRange(String fromName, Integer from, String toName, Integer to) {
+        if (from != null && to != null && from > to) {
+            throw new IllegalArgumentException(fromName + " must not be greater than " + toName);
+        }
+    }
+
+    private static List<MovieFacets.RangeFacet> ranges(SortedMap<Integer, Integer> counts, int width) {
+        List<MovieFacets.RangeFacet> ranges = new ArrayList<>(counts.size());
+        counts.forEach((from, count) -> ranges.add(new MovieFacets.RangeFacet(from, from + width, count)));
+        return ranges;
+    }
+
+    private static List<Long> ids(long[] values) {
+        return Arrays.stream(values).boxed().toList();
+    }
+}
@@ -0,0 +1,59 @@
+package com.pablo9298.kmdb.service;
+
+import com.pablo9298.kmdb.dto.Cursor;
+import com.pablo9298.kmdb.dto.CursorPage;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Helpers shared by the FTS5-backed searches: building MATCH expressions and paging ranked hits
+final class FullTextQuery {
+
+    // Sort key recorded in search continuation tokens
+    static final String SORT = "relevance";
+
+    private FullTextQuery() {
+    }
+
+    // Matches rows containing a word starting with each word of the text:
+    // "god fath" becomes "god"* "fath"*. Quoting each word keeps FTS5 operators in the input from being interpreted.
+    static String prefixMatch(String text) {
+        String query = Arrays.stream(text == null ? new String[0] : text.split("[^\\p{L}\\p{N}]+"))
+                .filter(word -> !word.isEmpty())
+                .map(word -> "\"" + word + "\"*")
+                .collect(Collectors.joining(" "));
+        if (query.isEmpty()) {
+            throw new IllegalArgumentException("Search text must contain at least one letter or digit");
+        }
+        return query;
+    }
+
+    // Reads the rank stored in a search continuation token
+    static double rankOf(Cursor cursor) {
+        try {
+            return Double.parseDouble(cursor.value());
+        } catch (NullPointerException | NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    // Turns [id, rank] hits fetched with limit + 1 into a page of entities in rank order,
+    // loading the entities with a single query
+    static <T> CursorPage<T> toPage(List<Object[]> hits, int limit,
+                                    Function<List<Long>, List<T>> loader, Function<T, Long> idOf) {
+        CursorPage<Object[]> ranked = CursorPage.of(hits, limit,
+                hit -> new Cursor(SORT, hit[1].toString(), ((Number) hit[0]).longValue()));
+        List<Long> ids = ranked.items().stream().map(hit -> ((Number) hit[0]).longValue()).toList();
+        if (ids.isEmpty()) {
+            return new CursorPage<>(List.of(), null);
+        }
+
+        Map<Long, T> byId = loader.apply(ids).stream().collect(Collectors.toMap(idOf, Function.identity()));
+        List<T> items = ids.stream().map(byId::get).filter(Objects::nonNull).toList();
+        return new CursorPage<>(items, ranked.nextCursor());
+    }
+}
@@ -1,14 +1,24 @@
 package com.pablo9298.kmdb.service;
 
+import com.pablo9298.kmdb.dto.Cursor;
+import com.pablo9298.kmdb.dto.CursorPage;
+import com.pablo9298.kmdb.dto.ResourceVersion;
+import com.pablo9298.kmdb.dto.Versioned;
+import com.pablo9298.kmdb.event.GenreChangedEvent;
+import com.pablo9298.kmdb.event.GenreSnapshot;
+import com.pablo9298.kmdb.exception.DuplicateResourceException;
+import com.pablo9298.kmdb.exception.PreconditionFailedException;
 import com.pablo9298.kmdb.exception.ResourceNotFoundException;
 import com.pablo9298.kmdb.model.*;
 import com.pablo9298.kmdb.repository.*;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
-import java.util.Optional;
+import java.util.function.Predicate;
 
 @Service
 public class GenreService {
@@ -18,36 +28,107 @@ public class GenreService {
     @Autowired
     private MovieRepository movieRepository;
 
-    // Creates a new genre
+    @Autowired
+    private CatalogLinkService catalogLinkService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    // Creates a new genre; the unique index on the name rejects duplicates
+    @Transactional
     public Genre createGenre(Genre genre) {
-        Optional<Genre> existingGenre = genreRepository.findByNameIgnoreCase(genre.getName());
-        if(existingGenre.isPresent()) {
-            throw new IllegalStateException("Genre with name '" + genre.getName() + "' already exists");
-        }
-        return genreRepository.save(genre);
+        Genre saved = DuplicateResourceException.guard(() -> genreRepository.saveAndFlush(genre),
+                "Genre with name '" + genre.getName() + "' already exists");
+        eventPublisher.publishEvent(GenreChangedEvent.created(GenreSnapshot.of(saved)));
+        return saved;
     }
 
-    // Retrieves all genres
-    public List<Genre> getAllGenres() {
-        return genreRepository.findAll();
+    // Retrieves a page of genres after the given continuation token, ordered by id or name
+    @Transactional(readOnly = true)
+    public CursorPage<Genre> getGenresPage(String token, int limit, String sort) {
+        Cursor cursor = token != null ? Cursor.decode(token, sort) : null;
+        long afterId = cursor != null ? cursor.id() : 0L;
+        Limit window = Limit.of(limit + 1); // One extra row tells whether a next page exists
+
+        List<Genre> genres = switch (sort) {
+            case "id" -> genreRepository.findPageOrderById(afterId, window);
+            case "name" -> cursor == null
+                    ? genreRepository.findFirstPageOrderByName(window)
+                    : genreRepository.findPageOrderByName(cursor.value(), afterId, window);
+            default -> throw new IllegalArgumentException("Unsupported sort key: " + sort + ". Use id or name.");
+        };
+
+        return CursorPage.of(genres, limit, genre -> new Cursor(sort, "name".equals(sort) ? genre.getName() : null, genre.getId()));
     }
 
     // Retrieves a genre by its ID
+    @Transactional(readOnly = true)
     public Genre getGenreById(Long id) {
         return genreRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Genre not found with id: " + id));
     }
 
+    // Reads the current version of a genre without loading it, for conditional requests
+    @Transactional(readOnly = true)
+    public ResourceVersion getGenreVersion(Long id) {
+        List<Object[]> rows = genreRepository.findVersionById(id);
+        if (rows.isEmpty()) {
+            throw new ResourceNotFoundException("Genre not found with id: " + id);
+        }
+        return ResourceVersion.of(String.valueOf(rows.get(0)[0]), (Long) rows.get(0)[1]);
+    }
+
+    // Reads a version of the genre list that changes whenever any genre is added, renamed or removed
+    @Transactional(readOnly = true)
+    public ResourceVersion getGenresVersion() {
+        Object[] row = genreRepository.findCollectionVersion().get(0);
+        return ResourceVersion.of(row[0] + "." + row[1] + "." + row[2], ((Number) row[3]).longValue());
+    }
+
+    // Reads the version of a genre and, unless the client's copy of that version is current, the genre itself,
+    // both in one read-only transaction
+    @Transactional(readOnly = true)
+    public Genre getGenreUnlessCurrent(Long id, Predicate<ResourceVersion> isCurrent) {
+        if (isCurrent.test(getGenreVersion(id))) {
+            return null;
+        }
+        return getGenreById(id);
+    }
+
+    // Reads the version of the genre list and, unless the client's copy is current, a page of it, in one read-only transaction
+    @Transactional(readOnly = true)
+    public CursorPage<Genre> getGenresPageUnlessCurrent(String token, int limit, String sort, Predicate<ResourceVersion> isCurrent) {
+        if (isCurrent.test(getGenresVersion())) {
+            return null;
+        }
+        return getGenresPage(token, limit, sort);
+    }
+
     // Updates an existing genre (PATCH)
+    @Transactional
     public Genre updateGenre(Long id, Genre updatedFields) {
+        return updateGenre(id, updatedFields, null).body();
+    }
+
+    // Updates an existing genre, provided the If-Match value (when given) names its current version.
+    // Returns the genre with the version it was written at.
+    @Transactional
+    public Versioned<Genre> updateGenre(Long id, Genre updatedFields, String ifMatch) {
         // Check if there is an attempt to modify the ID field
         if (updatedFields.getId() != null && !updatedFields.getId().equals(id)) {
             throw new IllegalArgumentException("ID field cannot be modified.");
         }
+        if (ifMatch != null && !getGenreVersion(id).matches(ifMatch)) {
+            throw new PreconditionFailedException("Genre " + id + " has changed since it was read; fetch it again before updating.");
+        }
 
         return genreRepository.findById(id).map(genre -> {
+            GenreSnapshot before = GenreSnapshot.of(genre);
             genre.setName(updatedFields.getName()); // Update only allowed fields
-            return genreRepository.save(genre);
+            Genre saved = DuplicateResourceException.guard(() -> genreRepository.saveAndFlush(genre),
+                    "Genre with name '" + genre.getName() + "' already exists");
+            eventPublisher.publishEvent(GenreChangedEvent.updated(before, GenreSnapshot.of(saved)));
+            return new Versioned<>(saved, getGenreVersion(id));
         }).orElseThrow(() -> new ResourceNotFoundException("Genre not found with id " + id));
     }
 
@@ -57,15 +138,16 @@ public class GenreService {
         Genre genre = genreRepository.findById(genreId)
                 .orElseThrow(() -> new ResourceNotFoundException("Genre not found with ID: " + genreId));
 
-        // Check if the genre has associated movies
-        if (!force && !genre.getMovies().isEmpty()) {
+        // Check if the genre has associated movies, without loading them
+        if (!force && catalogLinkService.genreHasMovies(genreId)) {
             throw new IllegalStateException("Cannot delete genre with associated movies. Use force=true to override.");
         }
 
-        // If force=true, remove associations and delete the genre
-        if (force || genre.getMovies().isEmpty()) {
-            genre.getMovies().forEach(movie -> movie.getGenres().remove(genre));
-            genreRepository.delete(genre);
+        // If force=true, remove the associations with one statement and delete the genre
+        if (force) {
+            catalogLinkService.unlinkGenre(genreId);
         }
+        genreRepository.delete(genre);
+        eventPublisher.publishEvent(GenreChangedEvent.deleted(GenreSnapshot.of(genre)));
     }
 }
@@ -0,0 +1,24 @@
+package com.pablo9298.kmdb.service;
+
+import com.pablo9298.kmdb.model.Movie;
+import org.hibernate.Hibernate;
+
+// Initializes the genres and casts that a movie response renders, while the transaction that loaded the movies is open.
+// Open-in-view is off, so nothing can load them once the service returns; batch fetching keeps this to one query
+// per collection role for a page of movies.
+final class MovieGraphs {
+
+    private MovieGraphs() {
+    }
+
+    static Movie initialize(Movie movie) {
+        Hibernate.initialize(movie.getGenres());
+        Hibernate.initialize(movie.getActors());
+        return movie;
+    }
+
+    static <T extends Iterable<Movie>> T initialize(T movies) {
+        movies.forEach(MovieGraphs::initialize);
+        return movies;
+    }
+}
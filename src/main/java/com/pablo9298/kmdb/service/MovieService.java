@@ -1,21 +1,40 @@
 package com.pablo9298.kmdb.service;
 
+import com.pablo9298.kmdb.dto.Cursor;
+import com.pablo9298.kmdb.dto.CursorPage;
+import com.pablo9298.kmdb.dto.ResourceVersion;
+import com.pablo9298.kmdb.dto.Versioned;
+import com.pablo9298.kmdb.event.MovieChangedEvent;
+import com.pablo9298.kmdb.event.MovieSnapshot;
+import com.pablo9298.kmdb.exception.DuplicateResourceException;
+import com.pablo9298.kmdb.exception.PreconditionFailedException;
 import com.pablo9298.kmdb.exception.ResourceNotFoundException;
 import com.pablo9298.kmdb.model.*;
 import com.pablo9298.kmdb.repository.*;
+import org.hibernate.Hibernate;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.*;
+import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 @Service
 public class MovieService {
 
+    // Release year bounds accepted by the Movie entity validation
+    private static final int MIN_RELEASE_YEAR = 1888;
+    private static final int MAX_RELEASE_YEAR = 2100;
+
     @Autowired
     private MovieRepository movieRepository;
 
@@ -25,55 +44,110 @@ public class MovieService {
     @Autowired
     private GenreRepository genreRepository;
 
-    // Creates a new movie with associated actors and genres
-    public Movie createMovie(Movie movie) {
-
-        if (movieRepository.findByTitleIgnoreCase(movie.getTitle()).isPresent()) {
-            throw new IllegalStateException("Film with title '" + movie.getTitle() + "' already exists.");
-        }
+    @Autowired
+    private CatalogLinkService catalogLinkService;
 
-        Set<Actor> managedActors = new HashSet<>();
-        for (Actor actor : movie.getActors()) {
-            Actor managedActor = actorRepository.findById(actor.getId())
-                    .orElseThrow(() -> new ResourceNotFoundException("Actor not found with id: " + actor.getId()));
-            managedActors.add(managedActor);
-        }
-        movie.setActors(managedActors);
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
 
-        Set<Genre> managedGenres = new HashSet<>();
-        for (Genre genre : movie.getGenres()) {
-            Genre managedGenre = genreRepository.findById(genre.getId())
-                    .orElseThrow(() -> new ResourceNotFoundException("Genre not found with id: " + genre.getId()));
-            managedGenres.add(managedGenre);
-        }
-        movie.setGenres(managedGenres);
+    // Creates a new movie with associated actors and genres; the unique index on the title rejects duplicates
+    @Transactional
+    public Movie createMovie(Movie movie) {
+        movie.setActors(resolveReferences("Actor", movie.getActors(), Actor::getId, actorRepository));
+        movie.setGenres(resolveReferences("Genre", movie.getGenres(), Genre::getId, genreRepository));
 
-        return movieRepository.save(movie);
+        Movie saved = DuplicateResourceException.guard(() -> movieRepository.saveAndFlush(movie),
+                "Film with title '" + movie.getTitle() + "' already exists.");
+        eventPublisher.publishEvent(MovieChangedEvent.created(MovieSnapshot.of(saved)));
+        return saved;
     }
 
     // Retrieves all movies with pagination support
+    @Transactional(readOnly = true)
     public Page<Movie> getAllMovies(Pageable pageable) {
-        return movieRepository.findAll(pageable);
+        return MovieGraphs.initialize(movieRepository.findAll(pageable));
     }
 
-    // Retrieves all movies without pagination
-    public List<Movie> getAllMovies() {
-        return movieRepository.findAll();
+    // Retrieves a page of movies after the given continuation token, ordered by id, title or releaseYear
+    @Transactional(readOnly = true)
+    public CursorPage<Movie> getMoviesPage(String token, int limit, String sort) {
+        Cursor cursor = token != null ? Cursor.decode(token, sort) : null;
+        long afterId = cursor != null ? cursor.id() : 0L;
+        Limit window = Limit.of(limit + 1); // One extra row tells whether a next page exists
+
+        List<Movie> movies = switch (sort) {
+            case "id" -> movieRepository.findPageOrderById(afterId, window);
+            case "title" -> cursor == null
+                    ? movieRepository.findFirstPageOrderByTitle(window)
+                    : movieRepository.findPageOrderByTitle(cursor.value(), afterId, window);
+            case "releaseYear" -> cursor == null || cursor.value() == null
+                    ? movieRepository.findPageOrderByReleaseYearFromUnknown(afterId, window)
+                    : movieRepository.findPageOrderByReleaseYear(parseYear(cursor.value()), afterId, window);
+            default -> throw new IllegalArgumentException("Unsupported sort key: " + sort + ". Use id, title or releaseYear.");
+        };
+
+        return CursorPage.of(MovieGraphs.initialize(movies), limit, movie -> new Cursor(sort, sortValue(movie, sort), movie.getId()));
     }
 
     // Retrieves a movie by its ID
+    @Transactional(readOnly = true)
     public Optional<Movie> getMovieById(Long id) throws ResourceNotFoundException {
-        return Optional.of(movieRepository.findById(id)
-                .orElseThrow(() -> new ResourceNotFoundException("Movie not found with ID: " + id)));
+        return Optional.of(MovieGraphs.initialize(movieRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Movie not found with ID: " + id))));
+    }
+
+    // Reads the current version of a movie as rendered with its genres and cast, without loading the movie,
+    // so conditional requests can be answered with 304 Not Modified or 412 Precondition Failed cheaply
+    @Transactional(readOnly = true)
+    public ResourceVersion getMovieVersion(Long id) {
+        List<Object[]> rows = movieRepository.findGraphVersion(id);
+        if (rows.isEmpty()) {
+            throw new ResourceNotFoundException("Movie not found with ID: " + id);
+        }
+        Object[] row = rows.get(0);
+        return ResourceVersion.of(row[0] + "." + row[1] + "." + row[2], ((Number) row[3]).longValue());
+    }
+
+    // Reads the version of a movie and, unless the client's copy of that version is current, the movie itself,
+    // both in one read-only transaction so that the body always matches the ETag sent with it
+    @Transactional(readOnly = true)
+    public Movie getMovieUnlessCurrent(Long id, Predicate<ResourceVersion> isCurrent) {
+        if (isCurrent.test(getMovieVersion(id))) {
+            return null;
+        }
+        return getMovieById(id).get();
+    }
+
+    // Reads the cast of a movie unless the client's copy of the movie's version is current, in one read-only transaction
+    @Transactional(readOnly = true)
+    public Set<Actor> getActorsByMovieUnlessCurrent(Long movieId, Predicate<ResourceVersion> isCurrent) {
+        if (isCurrent.test(getMovieVersion(movieId))) {
+            return null;
+        }
+        return getActorsByMovie(movieId);
     }
 
     // Updates an existing movie with specific fields
+    @Transactional
     public Movie updateMovie(Long id, Movie updatedFields) {
+        return updateMovie(id, updatedFields, null).body();
+    }
+
+    // Updates an existing movie with specific fields, provided the If-Match value (when given) names its current version.
+    // The version column also rejects the update at commit if another transaction changed the movie in the meantime.
+    // Returns the movie with the version it was written at.
+    @Transactional
+    public Versioned<Movie> updateMovie(Long id, Movie updatedFields, String ifMatch) {
         if (updatedFields.getId() != null && !updatedFields.getId().equals(id)) {
             throw new IllegalArgumentException("ID field cannot be modified.");
         }
+        if (ifMatch != null && !getMovieVersion(id).matches(ifMatch)) {
+            throw new PreconditionFailedException("Movie " + id + " has changed since it was read; fetch it again before updating.");
+        }
 
         return movieRepository.findById(id).map(movie -> {
+            MovieSnapshot before = MovieSnapshot.of(movie);
+
             // Update only the fields provided in the request
             if (updatedFields.getTitle() != null) {
                 movie.setTitle(updatedFields.getTitle());
@@ -86,79 +160,166 @@ public class MovieService {
             }
 
             // Update genres if provided, otherwise retain current values
-            if (updatedFields.getGenres() != null) {
-                if (!updatedFields.getGenres().isEmpty()) {
-                    movie.setGenres(updatedFields.getGenres());
-                } else {
-                    movie.setGenres(movie.getGenres()); // Retain current genres if empty
-                }
+            if (updatedFields.getGenres() != null && !updatedFields.getGenres().isEmpty()) {
+                movie.setGenres(resolveReferences("Genre", updatedFields.getGenres(), Genre::getId, genreRepository));
             }
 
             // Update actors if provided, otherwise retain current values
-            if (updatedFields.getActors() != null) {
-                if (!updatedFields.getActors().isEmpty()) {
-                    Set<Actor> managedActors = updatedFields.getActors().stream()
-                            .map(actor -> actorRepository.findById(actor.getId())
-                                    .orElseThrow(() -> new ResourceNotFoundException("Actor not found with id: " + actor.getId())))
-                            .collect(Collectors.toSet());
-                    movie.setActors(managedActors);
-                } else {
-                    movie.setActors(movie.getActors()); // Retain current actors if empty
-                }
+            if (updatedFields.getActors() != null && !updatedFields.getActors().isEmpty()) {
+                movie.setActors(resolveReferences("Actor", updatedFields.getActors(), Actor::getId, actorRepository));
             }
 
-            return movieRepository.save(movie);
+            Movie saved = DuplicateResourceException.guard(() -> movieRepository.saveAndFlush(movie),
+                    "Film with title '" + movie.getTitle() + "' already exists.");
+            eventPublisher.publishEvent(MovieChangedEvent.updated(before, MovieSnapshot.of(saved)));
+            return new Versioned<>(saved, getMovieVersion(id));
         }).orElseThrow(() -> new ResourceNotFoundException("Movie not found with id " + id));
     }
 
     // Deletes a movie by its ID, optionally forcing deletion of associations
+    @Transactional
     public void deleteMovie(Long movieId, boolean force) {
         Movie movie = movieRepository.findById(movieId)
                 .orElseThrow(() -> new ResourceNotFoundException("Movie not found with ID: " + movieId));
 
-        // Check if the movie has associations with actors or genres
-        if (!force && (!movie.getActors().isEmpty() || !movie.getGenres().isEmpty())) {
+        // Check if the movie has associations with actors or genres, without loading them
+        if (!force && catalogLinkService.movieHasLinks(movieId)) {
             throw new IllegalStateException("Cannot delete movie with associated actors or genres. Use force=true to override.");
         }
 
-        // If force=true, remove associations and delete the movie
-        if (force || (movie.getActors().isEmpty() && movie.getGenres().isEmpty())) {
-            movie.getActors().forEach(actor -> actor.getMovies().remove(movie));
-            movie.getGenres().forEach(genre -> genre.getMovies().remove(movie));
-            movieRepository.delete(movie);
-        }
+        // Movie owns both join tables, so deleting it removes its rows there with one statement per table;
+        // the actors and genres on the other side are left alone rather than loaded to unlink them
+        MovieSnapshot before = MovieSnapshot.of(movie, catalogLinkService.genreIdsOf(movieId), catalogLinkService.actorIdsOf(movieId));
+        movieRepository.delete(movie);
+        eventPublisher.publishEvent(MovieChangedEvent.deleted(before));
     }
 
-    // Retrieves movies based on a specific genre ID
-    public List<Movie> getMoviesByGenreId(Long genreId) {
+    // Retrieves a page of the movies of a genre, ordered by ID
+    @Transactional(readOnly = true)
+    public CursorPage<Movie> getMoviesByGenreId(Long genreId, String token, int limit) {
         if (!genreRepository.existsById(genreId)) {
             throw new ResourceNotFoundException("Genre not found with ID: " + genreId);
         }
-        return movieRepository.findMoviesByGenreId(genreId);
+        return pageById(movieRepository.findPageByGenreId(genreId, afterId(token), Limit.of(limit + 1)), limit);
     }
 
-    // Retrieves movies by release year
-    public List<Movie> getMoviesByReleaseYear(Integer year) {
-        List<Movie> movies = movieRepository.findAll().stream()
-                .filter(movie -> movie.getReleaseYear() != null && movie.getReleaseYear().equals(year))
-                .toList();
+    // Retrieves a page of the movies released in a year, ordered by ID
+    @Transactional(readOnly = true)
+    public CursorPage<Movie> getMoviesByReleaseYear(Integer year, String token, int limit) {
+        List<Movie> movies = movieRepository.findPageByReleaseYear(year, afterId(token), Limit.of(limit + 1));
 
-        if (movies.isEmpty()) {
+        if (movies.isEmpty() && token == null) {
             throw new ResourceNotFoundException("No movies found for the year: " + year);
         }
 
-        return movies;
+        return pageById(movies, limit);
+    }
+
+    // Retrieves a page of the movies released within an inclusive year range, ordered by release year and ID;
+    // a missing bound leaves that side open
+    @Transactional(readOnly = true)
+    public CursorPage<Movie> getMoviesByReleaseYearRange(Integer yearFrom, Integer yearTo, String token, int limit) {
+        int from = yearFrom != null ? yearFrom : MIN_RELEASE_YEAR;
+        int to = yearTo != null ? yearTo : MAX_RELEASE_YEAR;
+        if (from > to) {
+            throw new IllegalArgumentException("yearFrom must not be greater than yearTo");
+        }
+
+        // The page starts after the cursor, or at the first movie of the range
+        int year = from;
+        long afterId = 0L;
+        if (token != null) {
+            Cursor cursor = Cursor.decode(token, "releaseYear");
+            int cursorYear = parseYear(cursor.value());
+            if (cursorYear >= from) {
+                year = cursorYear;
+                afterId = cursor.id();
+            }
+        }
+        List<Movie> movies = movieRepository.findPageByReleaseYearUntil(year, afterId, to, Limit.of(limit + 1));
+
+        if (movies.isEmpty() && token == null) {
+            throw new ResourceNotFoundException("No movies found between the years " + from + " and " + to);
+        }
+
+        return CursorPage.of(MovieGraphs.initialize(movies), limit, movie -> new Cursor("releaseYear", movie.getReleaseYear().toString(), movie.getId()));
     }
 
     // Retrieves all actors associated with a given movie ID
+    @Transactional(readOnly = true)
     public Set<Actor> getActorsByMovie(Long movieId) {
-        return movieRepository.findById(movieId)
+        Set<Actor> actors = movieRepository.findById(movieId)
                 .orElseThrow(() -> new ResourceNotFoundException("Movie not found with id " + movieId))
                 .getActors();
+        Hibernate.initialize(actors);
+        return actors;
+    }
+
+    // Searches movie titles through the full-text index, best match first, with word-prefix matching
+    @Transactional(readOnly = true)
+    public CursorPage<Movie> searchMoviesByTitle(String title, String token, int limit) {
+        String query = FullTextQuery.prefixMatch(title);
+        Cursor cursor = token != null ? Cursor.decode(token, FullTextQuery.SORT) : null;
+
+        List<Object[]> hits = cursor == null
+                ? movieRepository.searchTitles(query, limit + 1)
+                : movieRepository.searchTitlesAfter(query, FullTextQuery.rankOf(cursor), cursor.id(), limit + 1);
+
+        return FullTextQuery.toPage(hits, limit, movieRepository::findAllWithAssociationsByIdIn, Movie::getId);
+    }
+
+    // ID after which a page ordered by ID starts
+    private long afterId(String token) {
+        return token != null ? Cursor.decode(token, "id").id() : 0L;
     }
 
-    // Searches movies by title (case-insensitive search)
-    public List<Movie> searchMoviesByTitle(String title) {
-        return movieRepository.findByTitleContainingIgnoreCase(title);
+    private CursorPage<Movie> pageById(List<Movie> movies, int limit) {
+        return CursorPage.of(MovieGraphs.initialize(movies), limit, movie -> new Cursor("id", null, movie.getId()));
+    }
+
+    // Extracts the value of the sort key that a continuation token has to remember
+    private String sortValue(Movie movie, String sort) {
+        return switch (sort) {
+            case "title" -> movie.getTitle();
+            case "releaseYear" -> movie.getReleaseYear() != null ? movie.getReleaseYear().toString() : null;
+            default -> null;
+        };
+    }
+
+    // Reads the release year stored in a continuation token
+    private Integer parseYear(String value) {
+        try {
+            return Integer.valueOf(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    // Loads all referenced entities with a single IN query and reports every missing ID in one error
+    private <T> Set<T> resolveReferences(String type, Set<T> references, Function<T, Long> idOf,
+                                         JpaRepository<T, Long> repository) {
+        if (references == null || references.isEmpty()) {
+            return new HashSet<>();
+        }
+
+        Set<Long> ids = new LinkedHashSet<>();
+        for (T reference : references) {
+            Long referenceId = reference != null ? idOf.apply(reference) : null;
+            if (referenceId == null) {
+                throw new IllegalArgumentException(type + " references must include an id");
+            }
+            ids.add(referenceId);
+        }
+
+        Set<T> managed = new HashSet<>(repository.findAllById(ids));
+        if (managed.size() < ids.size()) {
+            Set<Long> found = managed.stream().map(idOf).collect(Collectors.toSet());
+            String missing = ids.stream()
+                    .filter(referenceId -> !found.contains(referenceId))
+                    .map(String::valueOf)
+                    .collect(Collectors.joining(", "));
+            throw new ResourceNotFoundException(type + " not found with id: " + missing);
+        }
+        return managed;
     }
 }
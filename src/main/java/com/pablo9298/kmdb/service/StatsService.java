@@ -0,0 +1,366 @@
+package com.pablo9298.kmdb.service;
+
+import com.pablo9298.kmdb.event.ActorChangedEvent;
+import com.pablo9298.kmdb.event.GenreChangedEvent;
+import com.pablo9298.kmdb.event.MovieChangedEvent;
+import com.pablo9298.kmdb.event.MovieSnapshot;
+import com.pablo9298.kmdb.exception.ResourceNotFoundException;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+
+// Catalog statistics for dashboards, answered from in-memory counters.
+// The counters are loaded once at startup and then follow committed changes through the catalog change
+// events, so a read costs the same however large the catalog is. rebuild() recounts them from the tables
+// and reports whether they had drifted, for writes that bypass the services (such as manual SQL).
+// Each transaction's events are applied together once it commits, tagged with the last change log sequence
+// number it wrote. Sequence numbers follow commit order, so a rebuild replays onto its fresh counters exactly
+// the events committed after its snapshot, which it reads together with the highest sequence number.
+@Service
+@DependsOn("sqliteSchemaInitializer")
+public class StatsService {
+
+    private static final Logger log = LoggerFactory.getLogger(StatsService.class);
+
+    // Totals over the whole catalog
+    public record Overview(long movies, long actors, long genres, Double averageDuration, Double averageMoviesPerActor) {
+    }
+
+    // Number of movies tagged with a genre
+    public record GenreCount(long genreId, String name, long movies) {
+    }
+
+    // Number of movies released in a year
+    public record YearCount(int year, long movies) {
+    }
+
+    // Distribution of filmography sizes: how many actors appear in exactly N movies, keyed by N
+    public record Filmographies(long actors, Double averageMovies, int maxMovies, SortedMap<Integer, Long> actorsByMovieCount) {
+    }
+
+    // Number of movies an actor appears in
+    public record Filmography(long actorId, int movies) {
+    }
+
+    // Outcome of a rebuild; drifted tells whether the incremental counters disagreed with the tables
+    public record Rebuild(boolean drifted, long millis, Overview overview) {
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    // Replaced as a whole by rebuild(), otherwise only changed while holding its monitor
+    private Counters counters = new Counters();
+
+    // Committed changes applied while a rebuild is loading, to be replayed onto its counters; null otherwise
+    private List<Committed> replay;
+
+    // Serializes rebuilds, which otherwise only hold the monitor to start and to swap the counters
+    private final Object rebuildLock = new Object();
+
+    private final Object pendingKey = new Object();
+
+    // Loads the counters at startup
+    @PostConstruct
+    void init() {
+        rebuild();
+    }
+
+    // Recounts everything from the tables and replaces the counters, after replaying the changes that
+    // committed while it was loading and are not in its snapshot
+    public Rebuild rebuild() {
+        synchronized (rebuildLock) {
+            return rebuildCounters();
+        }
+    }
+
+    private Rebuild rebuildCounters() {
+        long started = System.nanoTime();
+        synchronized (this) {
+            replay = new ArrayList<>();
+        }
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(true); // All counts come from one snapshot of the tables
+        Counters loaded;
+        try {
+            loaded = transaction.execute(status -> load());
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                replay = null;
+            }
+            throw e;
+        }
+        boolean drifted;
+        synchronized (this) {
+            for (Committed committed : replay) {
+                if (committed.seq() > loaded.seq) {
+                    committed.events().forEach(event -> apply(loaded, event));
+                }
+            }
+            replay = null;
+            drifted = counters.negative || !loaded.sameAs(counters);
+            counters = loaded;
+        }
+        long millis = (System.nanoTime() - started) / 1_000_000;
+        Overview overview = getOverview();
+        log.info("Catalog statistics rebuilt in {} ms{}: {}", millis, drifted ? " (counters had drifted)" : "", overview);
+        return new Rebuild(drifted, millis, overview);
+    }
+
+    // Reports catalog totals and averages
+    public synchronized Overview getOverview() {
+        Counters c = counters;
+        return new Overview(c.movies, c.filmography.size(), c.genreNames.size(),
+                average(c.durationSum, c.moviesWithDuration), average(c.castEntries, c.filmography.size()));
+    }
+
+    // Reports the number of movies per genre, in genre ID order
+    public synchronized List<GenreCount> getMoviesPerGenre() {
+        List<GenreCount> result = new ArrayList<>(counters.genreNames.size());
+        counters.genreNames.forEach((id, name) -> result.add(new GenreCount(id, name, counters.moviesPerGenre.getOrDefault(id, 0L))));
+        return result;
+    }
+
+    // Reports the number of movies per release year, oldest first
+    public synchronized List<YearCount> getMoviesPerYear() {
+        List<YearCount> result = new ArrayList<>(counters.moviesPerYear.size());
+        counters.moviesPerYear.forEach((year, movies) -> result.add(new YearCount(year, movies)));
+        return result;
+    }
+
+    // Reports how filmography sizes are distributed over actors
+    public synchronized Filmographies getFilmographies() {
+        Counters c = counters;
+        return new Filmographies(c.filmography.size(), average(c.castEntries, c.filmography.size()),
+                c.actorsByMovieCount.isEmpty() ? 0 : c.actorsByMovieCount.lastKey(), new TreeMap<>(c.actorsByMovieCount));
+    }
+
+    // Reports the filmography size of one actor
+    public synchronized Filmography getFilmography(Long actorId) {
+        Integer movies = counters.filmography.get(actorId);
+        if (movies == null) {
+            throw new ResourceNotFoundException("Actor not found with ID: " + actorId);
+        }
+        return new Filmography(actorId, movies);
+    }
+
+    // Collects the catalog changes of the current transaction, which are applied once it commits
+    @EventListener
+    public void onMovieChanged(MovieChangedEvent event) {
+        collect(event);
+    }
+
+    @EventListener
+    public void onActorChanged(ActorChangedEvent event) {
+        collect(event);
+    }
+
+    @EventListener
+    public void onGenreChanged(GenreChangedEvent event) {
+        collect(event);
+    }
+
+    // Adds the event to the current transaction's batch, or applies it right away without a transaction
+    @SuppressWarnings("unchecked")
+    private void collect(Object event) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            applyCommitted(new Committed(lastSeq(), List.of(event)));
+            return;
+        }
+        List<Object> pending = (List<Object>) TransactionSynchronizationManager.getResource(pendingKey);
+        if (pending == null) {
+            List<Object> batch = new ArrayList<>();
+            long[] seq = {0};
+            TransactionSynchronizationManager.bindResource(pendingKey, batch);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                // Runs after ChangeLogService has written the transaction's entries before the commit, and
+                // releases the batch then, as the write queue runs afterCommit only after its group commits
+                @Override
+                public void beforeCompletion() {
+                    if (TransactionSynchronizationManager.getResource(pendingKey) == batch) {
+                        TransactionSynchronizationManager.unbindResource(pendingKey);
+                    }
+                    seq[0] = lastSeq();
+                }
+
+                @Override
+                public void afterCommit() {
+                    applyCommitted(new Committed(seq[0], batch));
+                }
+            });
+            pending = batch;
+        }
+        pending.add(event);
+    }
+
+    // Applies committed changes, keeping them for the rebuild that is loading if there is one
+    private synchronized void applyCommitted(Committed committed) {
+        committed.events().forEach(event -> apply(counters, event));
+        if (replay != null) {
+            replay.add(committed);
+        }
+        if (counters.negative && !counters.reported) {
+            counters.reported = true;
+            log.warn("Catalog statistics went below zero and no longer match the tables; rebuild them");
+        }
+    }
+
+    // Applies one change: a movie's old state is counted out and its new state counted in; a forced delete of an
+    // actor or genre also drops it from the movies it was linked to
+    private static void apply(Counters counters, Object event) {
+        switch (event) {
+            case MovieChangedEvent movie -> {
+                if (movie.before() != null) {
+                    counters.count(movie.before(), -1);
+                }
+                if (movie.after() != null) {
+                    counters.count(movie.after(), 1);
+                }
+            }
+            case ActorChangedEvent actor -> {
+                switch (actor.type()) {
+                    case CREATED -> counters.addActor(actor.actorId(), 0);
+                    case UPDATED -> { }
+                    case DELETED -> counters.removeActor(actor.actorId());
+                }
+            }
+            case GenreChangedEvent genre -> {
+                switch (genre.type()) {
+                    case CREATED, UPDATED -> counters.genreNames.put(genre.genreId(), genre.after().name());
+                    case DELETED -> {
+                        counters.genreNames.remove(genre.genreId());
+                        counters.moviesPerGenre.remove(genre.genreId());
+                    }
+                }
+            }
+            default -> throw new IllegalArgumentException("Not a catalog change: " + event);
+        }
+    }
+
+    // Highest change log sequence number visible to the current transaction
+    private long lastSeq() {
+        Long seq = jdbcTemplate.queryForObject("SELECT coalesce(max(seq), 0) FROM change_log", Long.class);
+        return seq != null ? seq : 0L;
+    }
+
+    // Counts everything with one aggregate query per counter
+    private Counters load() {
+        Counters loaded = new Counters();
+        loaded.seq = lastSeq();
+        jdbcTemplate.query("SELECT count(*), coalesce(sum(duration), 0), count(duration) FROM movie", (RowCallbackHandler) row -> {
+            loaded.movies = row.getLong(1);
+            loaded.durationSum = row.getLong(2);
+            loaded.moviesWithDuration = row.getLong(3);
+        });
+        jdbcTemplate.query("SELECT release_year, count(*) FROM movie WHERE release_year IS NOT NULL GROUP BY release_year",
+                (RowCallbackHandler) row -> loaded.moviesPerYear.put(row.getInt(1), row.getLong(2)));
+        jdbcTemplate.query("SELECT id, name FROM genre",
+                (RowCallbackHandler) row -> loaded.genreNames.put(row.getLong(1), row.getString(2)));
+        jdbcTemplate.query("SELECT genre_id, count(*) FROM movie_genre GROUP BY genre_id",
+                (RowCallbackHandler) row -> loaded.moviesPerGenre.put(row.getLong(1), row.getLong(2)));
+        jdbcTemplate.query("SELECT a.id, count(ma.movie_id) FROM actor a LEFT JOIN movie_actor ma ON ma.actor_id = a.id GROUP BY a.id",
+                (RowCallbackHandler) row -> loaded.addActor(row.getLong(1), row.getInt(2)));
+        return loaded;
+    }
+
+    private static Double average(long sum, long count) {
+        return count == 0 ? null : (double) sum / count;
+    }
+
+    // The events of one committed transaction and the last change log sequence number it wrote
+    private record Committed(long seq, List<Object> events) {
+    }
+
+    // The counters themselves; not thread-safe, guarded by the service's monitor
+    private static class Counters {
+        // Change log sequence number of the snapshot the counters were loaded from
+        long seq;
+        // Set once a count would have gone below zero, which only happens when they no longer match the tables
+        boolean negative;
+        boolean reported;
+        long movies;
+        long durationSum;
+        long moviesWithDuration;
+        final SortedMap<Integer, Long> moviesPerYear = new TreeMap<>();
+        final SortedMap<Long, String> genreNames = new TreeMap<>();
+        final Map<Long, Long> moviesPerGenre = new HashMap<>();
+        // Movies per actor, plus the number of actors per filmography size and the sum of all sizes
+        final Map<Long, Integer> filmography = new HashMap<>();
+        final SortedMap<Integer, Long> actorsByMovieCount = new TreeMap<>();
+        long castEntries;
+
+        // Adds (sign 1) or removes (sign -1) one movie
+        void count(MovieSnapshot movie, int sign) {
+            movies += sign;
+            if (movie.duration() != null) {
+                durationSum += (long) sign * movie.duration();
+                moviesWithDuration += sign;
+            }
+            if (movie.releaseYear() != null) {
+                adjust(moviesPerYear, movie.releaseYear(), sign);
+            }
+            for (Long genreId : movie.genreIds()) {
+                if (genreNames.containsKey(genreId)) {
+                    adjust(moviesPerGenre, genreId, sign);
+                }
+            }
+            for (Long actorId : movie.actorIds()) {
+                Integer size = filmography.get(actorId);
+                if (size != null) {
+                    removeActor(actorId);
+                    addActor(actorId, Math.max(0, size + sign));
+                }
+            }
+        }
+
+        void addActor(Long actorId, int movies) {
+            filmography.put(actorId, movies);
+            adjust(actorsByMovieCount, movies, 1);
+            castEntries += movies;
+        }
+
+        void removeActor(Long actorId) {
+            Integer movies = filmography.remove(actorId);
+            if (movies != null) {
+                adjust(actorsByMovieCount, movies, -1);
+                castEntries -= movies;
+            }
+        }
+
+        boolean sameAs(Counters other) {
+            return movies == other.movies && durationSum == other.durationSum
+                    && moviesWithDuration == other.moviesWithDuration && castEntries == other.castEntries
+                    && moviesPerYear.equals(other.moviesPerYear) && genreNames.equals(other.genreNames)
+                    && moviesPerGenre.equals(other.moviesPerGenre) && filmography.equals(other.filmography);
+        }
+
+        // Adds delta to a count and drops the key once it reaches zero, so empty buckets are not reported.
+        // A count that would go below zero is dropped as well and marks the counters as out of step.
+        private <K> void adjust(Map<K, Long> counts, K key, long delta) {
+            long updated = counts.getOrDefault(key, 0L) + delta;
+            if (updated < 0) {
+                negative = true;
+            }
+            if (updated <= 0) {
+                counts.remove(key);
+            } else {
+                counts.put(key, updated);
+            }
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.pablo9298.kmdb.service;
+
+import com.pablo9298.kmdb.event.ActorChangedEvent;
+import com.pablo9298.kmdb.event.MovieChangedEvent;
+import com.pablo9298.kmdb.index.PrefixIndex;
+import com.pablo9298.kmdb.index.PrefixIndex.Stats;
+import com.pablo9298.kmdb.index.PrefixIndex.Suggestion;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+// Typeahead over movie titles and actor names, answered from in-memory prefix indexes.
+// The indexes are loaded once at startup and then follow committed changes, in commit order, through the
+// catalog change events, so a suggestion never needs a database round trip.
+@Service
+@DependsOn("sqliteSchemaInitializer")
+public class SuggestService {
+
+    private static final Logger log = LoggerFactory.getLogger(SuggestService.class);
+
+    // Number of suggestions returned when the client does not ask for a specific limit
+    public static final int DEFAULT_LIMIT = 10;
+
+    // Upper bound on the number of suggestions per request
+    public static final int MAX_LIMIT = 50;
+
+    private final PrefixIndex movieTitles = new PrefixIndex();
+    private final PrefixIndex actorNames = new PrefixIndex();
+
+    private final CommitOrderedEvents changes = new CommitOrderedEvents(this::apply);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // Loads both indexes from the database
+    @PostConstruct
+    public void rebuild() {
+        long started = System.nanoTime();
+        movieTitles.replace(load("SELECT id, title FROM movie"));
+        actorNames.replace(load("SELECT id, name FROM actor"));
+        log.info("Suggestion indexes built in {} ms: movies {}, actors {}",
+                (System.nanoTime() - started) / 1_000_000, movieTitles.stats(), actorNames.stats());
+    }
+
+    // Suggests movies whose title has a word starting with the given text
+    public List<Suggestion> suggestMovies(String prefix, Integer limit) {
+        return movieTitles.suggest(checkPrefix(prefix), checkLimit(limit));
+    }
+
+    // Suggests actors whose name has a word starting with the given text
+    public List<Suggestion> suggestActors(String prefix, Integer limit) {
+        return actorNames.suggest(checkPrefix(prefix), checkLimit(limit));
+    }
+
+    // Reports the size and estimated memory use of the movie title index
+    public Stats movieIndexStats() {
+        return movieTitles.stats();
+    }
+
+    // Reports the size and estimated memory use of the actor name index
+    public Stats actorIndexStats() {
+        return actorNames.stats();
+    }
+
+    // Collects the catalog changes of the current transaction, which are applied in commit order once it commits
+    @EventListener
+    public void onMovieChanged(MovieChangedEvent event) {
+        changes.collect(event);
+    }
+
+    @EventListener
+    public void onActorChanged(ActorChangedEvent event) {
+        changes.collect(event);
+    }
+
+    // Applies one committed change to the title or name index
+    private void apply(Object event) {
+        switch (event) {
+            case MovieChangedEvent movie -> {
+                switch (movie.type()) {
+                    case CREATED, UPDATED -> movieTitles.put(movie.movieId(), movie.after().title());
+                    case DELETED -> movieTitles.remove(movie.movieId());
+                }
+            }
+            case ActorChangedEvent actor -> {
+                switch (actor.type()) {
+                    case CREATED, UPDATED -> actorNames.put(actor.actorId(), actor.after().name());
+                    case DELETED -> actorNames.remove(actor.actorId());
+                }
+            }
+            default -> throw new IllegalArgumentException("Not a catalog change: " + event);
+        }
+    }
+
+    // Streams (id, label) rows into a fresh index builder
+    private PrefixIndex.Builder load(String sql) {
+        PrefixIndex.Builder builder = new PrefixIndex.Builder();
+        jdbcTemplate.query(sql, (RowCallbackHandler) row -> builder.add(row.getLong(1), row.getString(2)));
+        return builder;
+    }
+
+    // Validates the typed text
+    private String checkPrefix(String prefix) {
+        if (prefix == null || prefix.isBlank()) {
+            throw new IllegalArgumentException("Prefix parameter must not be empty");
+        }
+        return prefix;
+    }
+
+    // Validates a requested number of suggestions
+    private int checkLimit(Integer limit) {
+        if (limit == null) {
+            return DEFAULT_LIMIT;
+        }
+        if (limit < 1 || limit > MAX_LIMIT) {
+            throw new IllegalArgumentException("Limit parameter must be between 1 and " + MAX_LIMIT);
+        }
+        return limit;
+    }
+}
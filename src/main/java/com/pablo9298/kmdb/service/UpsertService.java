@@ -0,0 +1,152 @@
+package com.pablo9298.kmdb.service;
+
+import com.pablo9298.kmdb.dto.UpsertResult;
+import com.pablo9298.kmdb.event.*;
+import com.pablo9298.kmdb.exception.ResourceNotFoundException;
+import com.pablo9298.kmdb.model.*;
+import com.pablo9298.kmdb.repository.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+// Idempotent creates keyed on the catalog's unique keys: movie title, genre name, and actor name with birth date.
+// Each upsert is one INSERT ... ON CONFLICT DO NOTHING RETURNING id, so the unique index decides atomically whether
+// the row is new; a retried or concurrent request finds the existing row instead of failing or duplicating it.
+// New rows are inserted over JDBC like bulk imports, so cached queries are dropped once they commit and the usual
+// created events are published. An existing movie is updated like a PATCH; existing actors and genres are returned as they are.
+@Service
+public class UpsertService {
+
+    @Autowired
+    private MovieRepository movieRepository;
+
+    @Autowired
+    private ActorRepository actorRepository;
+
+    @Autowired
+    private GenreRepository genreRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private CatalogCacheService catalogCacheService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    // Creates a movie unless one with the same title exists, in which case the given fields, genres and actors are merged into it
+    @Transactional
+    public UpsertResult<Movie> upsertMovie(Movie movie) {
+        Map<Long, Genre> genres = references("Genre", movie.getGenres(), Genre::getId, genreRepository::findAllById);
+        Map<Long, Actor> actors = references("Actor", movie.getActors(), Actor::getId, actorRepository::findAllById);
+
+        Long createdId = insertIfAbsent("INSERT INTO movie (title, release_year, duration, last_modified) VALUES (?, ?, ?, ?)",
+                movie.getTitle(), movie.getReleaseYear(), movie.getDuration(), System.currentTimeMillis());
+        if (createdId != null) {
+            jdbcTemplate.batchUpdate("INSERT INTO movie_genre (movie_id, genre_id) VALUES (?, ?)",
+                    genres.keySet().stream().map(genreId -> new Object[]{createdId, genreId}).toList());
+            jdbcTemplate.batchUpdate("INSERT INTO movie_actor (actor_id, movie_id) VALUES (?, ?)",
+                    actors.keySet().stream().map(actorId -> new Object[]{actorId, createdId}).toList());
+            catalogCacheService.evictQueriesAfterCommit();
+            Movie created = withAssociations(createdId);
+            eventPublisher.publishEvent(MovieChangedEvent.created(MovieSnapshot.of(created)));
+            return new UpsertResult<>(created, true);
+        }
+
+        Movie existing = withAssociations(movieRepository.findIdByTitle(movie.getTitle())
+                .orElseThrow(() -> new ResourceNotFoundException("Movie with title '" + movie.getTitle() + "' was deleted concurrently")));
+        MovieSnapshot before = MovieSnapshot.of(existing);
+        if (movie.getReleaseYear() != null) {
+            existing.setReleaseYear(movie.getReleaseYear());
+        }
+        if (movie.getDuration() != null) {
+            existing.setDuration(movie.getDuration());
+        }
+        // Collections are replaced only when their contents change, so a repeated upsert writes nothing
+        if (!genres.isEmpty() && !genres.keySet().equals(before.genreIds())) {
+            existing.setGenres(new HashSet<>(genres.values()));
+        }
+        if (!actors.isEmpty() && !actors.keySet().equals(before.actorIds())) {
+            existing.setActors(new HashSet<>(actors.values()));
+        }
+
+        MovieSnapshot after = MovieSnapshot.of(existing);
+        if (!after.equals(before)) {
+            movieRepository.flush();
+            eventPublisher.publishEvent(MovieChangedEvent.updated(before, after));
+        }
+        return new UpsertResult<>(existing, false);
+    }
+
+    // Creates an actor unless one with the same name and birth date exists
+    @Transactional
+    public UpsertResult<Actor> upsertActor(Actor actor) {
+        Long createdId = insertIfAbsent("INSERT INTO actor (name, birth_date, last_modified) VALUES (?, ?, ?)",
+                actor.getName(), actor.getBirthDate(), System.currentTimeMillis());
+        if (createdId != null) {
+            catalogCacheService.evictQueriesAfterCommit();
+            eventPublisher.publishEvent(ActorChangedEvent.created(new ActorSnapshot(createdId, actor.getName(), actor.getBirthDate())));
+            return new UpsertResult<>(actorRepository.findById(createdId).orElseThrow(), true);
+        }
+
+        Long id = actorRepository.findIdByNameAndBirthDate(actor.getName(), actor.getBirthDate())
+                .orElseThrow(() -> new ResourceNotFoundException("Actor '" + actor.getName() + "' was deleted concurrently"));
+        return new UpsertResult<>(actorRepository.findById(id).orElseThrow(), false);
+    }
+
+    // Creates a genre unless one with the same name exists
+    @Transactional
+    public UpsertResult<Genre> upsertGenre(Genre genre) {
+        Long createdId = insertIfAbsent("INSERT INTO genre (name, last_modified) VALUES (?, ?)",
+                genre.getName(), System.currentTimeMillis());
+        if (createdId != null) {
+            catalogCacheService.evictQueriesAfterCommit();
+            eventPublisher.publishEvent(GenreChangedEvent.created(new GenreSnapshot(createdId, genre.getName())));
+            return new UpsertResult<>(genreRepository.findById(createdId).orElseThrow(), true);
+        }
+
+        Long id = genreRepository.findIdByName(genre.getName())
+                .orElseThrow(() -> new ResourceNotFoundException("Genre '" + genre.getName() + "' was deleted concurrently"));
+        return new UpsertResult<>(genreRepository.findById(id).orElseThrow(), false);
+    }
+
+    // Runs the insert unless a unique index already holds its key; returns the new ID, or null when the row exists
+    private Long insertIfAbsent(String insert, Object... args) {
+        List<Long> ids = jdbcTemplate.queryForList(insert + " ON CONFLICT DO NOTHING RETURNING id", Long.class, args);
+        return ids.isEmpty() ? null : ids.get(0);
+    }
+
+    // Loads a movie with its genres and actors in one query
+    private Movie withAssociations(Long movieId) {
+        return movieRepository.findAllWithAssociationsByIdIn(List.of(movieId)).get(0);
+    }
+
+    // Loads the referenced rows by ID in one query, failing like a single create when any of them is missing
+    private <T> Map<Long, T> references(String type, Set<T> references, Function<T, Long> idOf,
+                                        Function<Set<Long>, List<T>> lookup) {
+        if (references == null || references.isEmpty()) {
+            return Map.of();
+        }
+        Set<Long> ids = new LinkedHashSet<>();
+        for (T reference : references) {
+            Long id = reference != null ? idOf.apply(reference) : null;
+            if (id == null) {
+                throw new IllegalArgumentException(type + " references must include an id");
+            }
+            ids.add(id);
+        }
+        Map<Long, T> found = lookup.apply(ids).stream().collect(Collectors.toMap(idOf, Function.identity()));
+        if (found.size() < ids.size()) {
+            String missing = ids.stream().filter(id -> !found.containsKey(id)).map(String::valueOf).collect(Collectors.joining(", "));
+            throw new ResourceNotFoundException(type + " not found with id: " + missing);
+        }
+        return found;
+    }
+}
@@ -0,0 +1,358 @@
+package com.pablo9298.kmdb.service;
+
+import com.pablo9298.kmdb.config.GroupCommitDataSource;
+import com.pablo9298.kmdb.config.GroupCommitTransactionManager;
+import com.pablo9298.kmdb.event.ActorChangedEvent;
+import com.pablo9298.kmdb.event.GenreChangedEvent;
+import com.pablo9298.kmdb.event.MovieChangedEvent;
+import com.pablo9298.kmdb.model.Actor;
+import com.pablo9298.kmdb.model.Genre;
+import com.pablo9298.kmdb.model.Movie;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.jdbc.datasource.ConnectionProxy;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+// Write-behind path for single-row mutations, enabled with kmdb.write-queue.enabled=true.
+// Callers hand their mutation to one writer thread and wait for its outcome. The writer takes everything that
+// has queued up as one group and runs each mutation with its own transaction, which GroupCommitDataSource maps
+// onto a savepoint of a single physical transaction, so SQLite pays one commit for the whole group:
+// - a mutation that fails is rolled back to its savepoint and its caller gets the error at once; the group goes on
+// - a mutation that succeeds returns to its caller only after the group has committed, and fails if that commit does
+// - after-commit work of a mutation (transactional event listeners, cache evictions) is held by
+//   GroupCommitTransactionManager and runs once the group has committed, or is dropped if the commit fails
+// - the second-level cache is not written by queued mutations; entities they change are evicted after the commit
+// - mutations run, and become durable, in the order they were queued
+// - a caller that finds the queue full waits up to offer-wait-ms for room and is then turned away with a 503,
+//   as is a caller whose mutation has not committed within result-wait-ms
+// When disabled, mutations run on the caller's thread in their own transaction.
+@Service
+public class WriteQueueService implements MeterBinder {
+
+    private static final Logger log = LoggerFactory.getLogger(WriteQueueService.class);
+
+    // How long the idle writer waits for a mutation before checking whether it should stop
+    private static final long POLL_MILLIS = 100;
+
+    @Value("${kmdb.write-queue.enabled:false}")
+    private boolean enabled;
+
+    // Mutations allowed to wait for the writer
+    @Value("${kmdb.write-queue.capacity:1024}")
+    private int capacity;
+
+    // Most mutations committed in one transaction
+    @Value("${kmdb.write-queue.max-group-size:128}")
+    private int maxGroupSize;
+
+    // How long a caller waits for room in a full queue before it is rejected
+    @Value("${kmdb.write-queue.offer-wait-ms:1000}")
+    private long offerWaitMs;
+
+    // How long a caller waits for its mutation to commit before it is turned away
+    @Value("${kmdb.write-queue.result-wait-ms:30000}")
+    private long resultWaitMs;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private CatalogCacheService catalogCacheService;
+
+    // Entities changed by the group being written, by type; only touched by the writer thread
+    private final Map<Class<?>, Set<Long>> changed = new HashMap<>();
+
+    private BlockingQueue<Mutation<?>> queue;
+    private GroupCommitDataSource groupDataSource;
+    private GroupCommitTransactionManager groupTransactionManager;
+    private TransactionTemplate groupTransaction;
+    private Thread writer;
+    private volatile boolean running;
+    private volatile DistributionSummary groupSizes;
+
+    @PostConstruct
+    public void start() throws SQLException {
+        if (!enabled) {
+            return;
+        }
+        groupDataSource = dataSource.unwrap(GroupCommitDataSource.class);
+        if (!(transactionManager instanceof GroupCommitTransactionManager manager)) {
+            throw new IllegalStateException("Write queue needs GroupCommitTransactionManager, found " + transactionManager.getClass().getName());
+        }
+        groupTransactionManager = manager;
+        groupTransaction = new TransactionTemplate(new DataSourceTransactionManager(groupDataSource.getTargetDataSource()));
+        queue = new ArrayBlockingQueue<>(capacity);
+        running = true;
+        writer = Thread.ofPlatform().name("kmdb-writer").daemon().start(this::drain);
+        log.info("Write queue started: capacity={} maxGroupSize={} offerWaitMs={} resultWaitMs={}",
+                capacity, maxGroupSize, offerWaitMs, resultWaitMs);
+    }
+
+    // Lets the writer commit what is already queued, then stops it and turns away anything it left behind
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (writer != null) {
+            running = false;
+            writer.join(Duration.ofSeconds(30));
+            List<Mutation<?>> left = new ArrayList<>();
+            queue.drainTo(left);
+            left.forEach(mutation -> mutation.abandon(stopped()));
+        }
+    }
+
+    // Runs a mutation through the queue and returns its result once it is committed; rethrows its exception otherwise
+    public <T> T submit(Supplier<T> mutation) {
+        if (!enabled || Thread.currentThread() == writer) {
+            return mutation.get();
+        }
+        Mutation<T> queued = new Mutation<>(mutation);
+        enqueue(queued);
+        try {
+            return queued.result.get(resultWaitMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (TimeoutException e) {
+            throw giveUp(queued, null);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw giveUp(queued, e);
+        }
+    }
+
+    // Runs a mutation without a result through the queue
+    public void execute(Runnable mutation) {
+        submit(() -> {
+            mutation.run();
+            return null;
+        });
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        if (!enabled) {
+            return;
+        }
+        Gauge.builder("kmdb.write-queue.waiting", this, service -> service.queue == null ? 0 : service.queue.size())
+                .description("Mutations waiting for the writer")
+                .register(registry);
+        groupSizes = DistributionSummary.builder("kmdb.write-queue.group.size")
+                .description("Mutations committed together in one transaction")
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    // Records the entities each queued mutation changes, so that their cache entries are dropped after the commit
+    @EventListener
+    public void onMovieChanged(MovieChangedEvent event) {
+        recordChange(Movie.class, event.movieId());
+    }
+
+    @EventListener
+    public void onActorChanged(ActorChangedEvent event) {
+        recordChange(Actor.class, event.actorId());
+    }
+
+    @EventListener
+    public void onGenreChanged(GenreChangedEvent event) {
+        recordChange(Genre.class, event.genreId());
+    }
+
+    private void recordChange(Class<?> type, Long id) {
+        if (writer != null && Thread.currentThread() == writer) {
+            changed.computeIfAbsent(type, t -> new HashSet<>()).add(id);
+        }
+    }
+
+    private void enqueue(Mutation<?> mutation) {
+        if (!running) {
+            throw stopped();
+        }
+        try {
+            if (!queue.offer(mutation, offerWaitMs, TimeUnit.MILLISECONDS)) {
+                throw new TransientDataAccessResourceException("Write queue is full, try again later");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TransientDataAccessResourceException("Interrupted while waiting for the write queue", e);
+        }
+        // stop() may have emptied the queue between the check and the offer; the mutation is taken back
+        // unless stop() got to it first and turned it away itself
+        if (!running && queue.remove(mutation)) {
+            throw stopped();
+        }
+    }
+
+    // Gives up waiting for a mutation. One the writer has not taken yet never runs; one it has taken may
+    // still commit, so the caller is told the outcome is unknown.
+    private TransientDataAccessResourceException giveUp(Mutation<?> mutation, InterruptedException cause) {
+        String message = mutation.claim()
+                ? "Write was not started within " + resultWaitMs + " ms and was dropped, try again later"
+                : "Write did not commit within " + resultWaitMs + " ms and may still be applied";
+        return new TransientDataAccessResourceException(message, cause);
+    }
+
+    private static TransientDataAccessResourceException stopped() {
+        return new TransientDataAccessResourceException("Write queue has stopped, try again later");
+    }
+
+    // Writer loop: blocks for the first mutation, then takes whatever else has queued up meanwhile
+    private void drain() {
+        List<Mutation<?>> group = new ArrayList<>(maxGroupSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                Mutation<?> first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                group.add(first);
+            } catch (InterruptedException e) {
+                break;
+            }
+            queue.drainTo(group, maxGroupSize - 1);
+            commitGroup(group);
+            group.clear();
+        }
+    }
+
+    private void commitGroup(List<Mutation<?>> group) {
+        try {
+            groupTransaction.executeWithoutResult(status -> groupDataSource.runInGroup(groupConnection(), () -> {
+                for (Mutation<?> mutation : group) {
+                    mutation.apply(groupTransactionManager);
+                }
+            }));
+        } catch (RuntimeException e) {
+            log.error("Group of {} mutations failed to commit", group.size(), e);
+            changed.clear();
+            group.forEach(mutation -> mutation.rolledBack(e));
+            return;
+        }
+        evictChanged();
+        group.forEach(Mutation::committed);
+        DistributionSummary summary = groupSizes;
+        if (summary != null) {
+            summary.record(group.size());
+        }
+    }
+
+    // Queued mutations bypass the second-level cache, so what they changed may still be cached from before
+    private void evictChanged() {
+        if (changed.isEmpty()) {
+            return;
+        }
+        try {
+            catalogCacheService.evictEntities(changed);
+        } catch (RuntimeException e) {
+            log.error("Cannot evict cache entries after a group commit", e);
+        } finally {
+            changed.clear();
+        }
+    }
+
+    // The physical connection of the group transaction. Resolved here, while the read-write group transaction is
+    // active, so that a lazy proxy in front of the read/write routing picks the writer.
+    private Connection groupConnection() {
+        Connection connection = DataSourceUtils.getConnection(groupDataSource.getTargetDataSource());
+        return connection instanceof ConnectionProxy proxy ? proxy.getTargetConnection() : connection;
+    }
+
+    // A queued mutation; its result and after-commit work are held back until the group it ran in has committed
+    private static final class Mutation<T> {
+
+        private final Supplier<T> work;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        private final AtomicBoolean claimed = new AtomicBoolean();
+        private final List<TransactionSynchronization> callbacks = new ArrayList<>();
+        private T value;
+
+        private Mutation(Supplier<T> work) {
+            this.work = work;
+        }
+
+        // Claims the mutation for either the writer or a caller giving up on it; only the first one succeeds
+        private boolean claim() {
+            return claimed.compareAndSet(false, true);
+        }
+
+        // Runs the mutation unless its caller has given up on it. A failure is reported to the caller right away,
+        // as it only rolled back its own savepoint.
+        private void apply(GroupCommitTransactionManager transactionManager) {
+            if (!claim()) {
+                return;
+            }
+            try {
+                value = transactionManager.holdingCallbacks(callbacks, work);
+            } catch (RuntimeException | Error e) {
+                result.completeExceptionally(e);
+            }
+        }
+
+        // The group has committed: runs the held after-commit work, then hands the result to the caller.
+        // An after-commit failure reaches the caller, as it would from a commit of its own.
+        private void committed() {
+            try {
+                TransactionSynchronizationUtils.invokeAfterCommit(callbacks);
+            } catch (RuntimeException e) {
+                result.completeExceptionally(e);
+            } finally {
+                TransactionSynchronizationUtils.invokeAfterCompletion(callbacks, TransactionSynchronization.STATUS_COMMITTED);
+            }
+            result.complete(value);
+        }
+
+        private void rolledBack(Throwable e) {
+            TransactionSynchronizationUtils.invokeAfterCompletion(callbacks, TransactionSynchronization.STATUS_ROLLED_BACK);
+            result.completeExceptionally(e);
+        }
+
+        private void abandon(Throwable e) {
+            if (claim()) {
+                result.completeExceptionally(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.pablo9298.kmdb.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Savepoint semantics of GroupCommitDataSource against a real SQLite file, without the application context:
+// each transaction run inside a group commits or rolls back on its own, and nothing is visible to other
+// connections, or durable, until the group transaction commits.
+class GroupCommitDataSourceTests {
+
+    private static final File DATABASE = new File("target/kmdb-group-commit-test.db");
+
+    private DriverManagerDataSource physical;
+
+    private GroupCommitDataSource dataSource;
+
+    private JdbcTemplate jdbcTemplate;
+
+    // Transactions of single writes, as the services run them
+    private TransactionTemplate transaction;
+
+    // The physical transaction a group runs in, as the write queue runs it
+    private TransactionTemplate groupTransaction;
+
+    @BeforeEach
+    void createDatabase() {
+        DATABASE.getParentFile().mkdirs();
+        DATABASE.delete();
+        physical = new DriverManagerDataSource("jdbc:sqlite:" + DATABASE.getPath());
+        dataSource = new GroupCommitDataSource(physical);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        transaction = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        groupTransaction = new TransactionTemplate(new DataSourceTransactionManager(physical));
+        jdbcTemplate.execute("CREATE TABLE genre (id INTEGER PRIMARY KEY, name TEXT NOT NULL)");
+        jdbcTemplate.execute("CREATE UNIQUE INDEX ux_genre_name ON genre (name COLLATE NOCASE)");
+    }
+
+    @Test
+    void failedTransactionRollsBackOnlyItsOwnWork() {
+        List<String> outcomes = new ArrayList<>();
+        inGroup(() -> {
+            for (String name : List.of("Drama", "drama", "Noir", "Western")) {
+                try {
+                    transaction.executeWithoutResult(status -> {
+                        insert(name);
+                        if (name.equals("Western")) {
+                            throw new IllegalStateException("Rejected after the insert");
+                        }
+                    });
+                    outcomes.add(name + " committed");
+                } catch (RuntimeException e) {
+                    outcomes.add(name + " rolled back");
+                }
+            }
+        });
+
+        assertThat(outcomes).containsExactly("Drama committed", "drama rolled back", "Noir committed", "Western rolled back");
+        assertThat(names()).containsExactly("Drama", "Noir");
+    }
+
+    @Test
+    void laterTransactionsSeeEarlierOnesOfTheGroup() {
+        List<String> seen = new ArrayList<>();
+        inGroup(() -> {
+            transaction.executeWithoutResult(status -> insert("Drama"));
+            transaction.executeWithoutResult(status -> seen.addAll(names()));
+        });
+
+        assertThat(seen).containsExactly("Drama");
+    }
+
+    @Test
+    void groupIsInvisibleToOtherConnectionsUntilItCommits() {
+        List<Integer> counts = new ArrayList<>();
+        inGroup(() -> {
+            transaction.executeWithoutResult(status -> insert("Drama"));
+            transaction.executeWithoutResult(status -> insert("Noir"));
+            counts.add(countFromOtherConnection());
+        });
+
+        assertThat(counts).containsExactly(0);
+        assertThat(names()).containsExactly("Drama", "Noir");
+    }
+
+    @Test
+    void failedGroupCommitUndoesCommittedTransactions() {
+        assertThatThrownBy(() -> inGroup(() -> {
+            transaction.executeWithoutResult(status -> insert("Drama"));
+            throw new IllegalStateException("Group commit failed");
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(names()).isEmpty();
+    }
+
+    @Test
+    void connectionsOutsideGroupPassThrough() throws Exception {
+        try (Connection connection = dataSource.getConnection()) {
+            assertThat(connection.getAutoCommit()).isTrue();
+        }
+        insert("Drama");
+
+        assertThat(new JdbcTemplate(physical).queryForList("SELECT name FROM genre", String.class)).containsExactly("Drama");
+    }
+
+    // Runs the work as the write queue runs a group: inside one physical transaction whose connection every
+    // transaction of the work shares through its own savepoint
+    private void inGroup(Runnable work) {
+        groupTransaction.executeWithoutResult(status ->
+                dataSource.runInGroup(DataSourceUtils.getConnection(physical), work));
+    }
+
+    // Counts genres over a connection of its own, which the group transaction bound to this thread does not share
+    private int countFromOtherConnection() {
+        try (Connection connection = physical.getConnection();
+             ResultSet rows = connection.createStatement().executeQuery("SELECT count(*) FROM genre")) {
+            rows.next();
+            return rows.getInt(1);
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void insert(String name) {
+        jdbcTemplate.update("INSERT INTO genre (name) VALUES (?)", name);
+    }
+
+    private List<String> names() {
+        return jdbcTemplate.queryForList("SELECT name FROM genre ORDER BY id", String.class);
+    }
+}
@@ -0,0 +1,254 @@
+package com.pablo9298.kmdb.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.pablo9298.kmdb.metrics.SqlProfile;
+import com.pablo9298.kmdb.model.Actor;
+import com.pablo9298.kmdb.model.Genre;
+import com.pablo9298.kmdb.model.Movie;
+import com.pablo9298.kmdb.repository.ActorRepository;
+import com.pablo9298.kmdb.repository.GenreRepository;
+import com.pablo9298.kmdb.repository.MovieRepository;
+import com.pablo9298.kmdb.service.MovieService;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Statement budgets for the movie endpoints and MovieService, over one seeded catalog.
+// Endpoints are counted through Hibernate statistics, including response rendering, and must not grow with the
+// page size. Service calls are profiled at the JDBC level with their results rendered to JSON inside the profile,
+// so lazy loading during serialization counts too. A budget that fails usually means an association went back
+// to being loaded one row at a time.
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class MovieQueryCountTests {
+
+    private static final int MOVIE_COUNT = 60;
+
+    // Any statement run this often within one service call is treated as N+1
+    private static final int REPEAT_LIMIT = 3;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private MovieService movieService;
+
+    @Autowired
+    private MovieRepository movieRepository;
+
+    @Autowired
+    private ActorRepository actorRepository;
+
+    @Autowired
+    private GenreRepository genreRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private Genre drama;
+
+    private Actor lead;
+
+    private List<Actor> cast;
+
+    private Movie firstMovie;
+
+    @BeforeEach
+    void seedCatalog() {
+        entityManagerFactory.getCache().evictAll(); // Counts must not depend on what earlier tests cached
+
+        if (movieRepository.count() > 0) {
+            drama = genreRepository.findByNameIgnoreCase("Drama").orElseThrow();
+            lead = actorRepository.findByNameIgnoreCase("Lead Actor").get(0);
+            cast = actorRepository.findByNameIgnoreCase("Supporting Actor");
+            firstMovie = movieRepository.findByTitleIgnoreCase("Saga Part 0").orElseThrow();
+            return;
+        }
+        drama = genreRepository.save(new Genre("Drama"));
+        Genre crime = genreRepository.save(new Genre("Crime"));
+        lead = actorRepository.save(new Actor("Lead Actor", "1970-01-01"));
+        cast = actorRepository.saveAll(List.of(
+                new Actor("Supporting Actor", "1980-02-02"),
+                new Actor("Supporting Actor", "1985-03-03"),
+                new Actor("Supporting Actor", "1990-04-04")));
+
+        for (int i = 0; i < MOVIE_COUNT; i++) {
+            Movie movie = new Movie("Saga Part " + i, 1990 + i % 20, 90 + i);
+            movie.setGenres(new HashSet<>(Set.of(drama, crime)));
+            movie.setActors(new HashSet<>(Set.of(lead, cast.get(i % cast.size()))));
+            Movie saved = movieRepository.save(movie);
+            if (i == 0) {
+                firstMovie = saved;
+            }
+        }
+    }
+
+    @Test
+    void moviePagesRunTheSameStatementsForAnyPageSize() throws Exception {
+        long small = statementsFor("/api/movies?limit=5");
+        long large = statementsFor("/api/movies?limit=50");
+
+        assertThat(large).isEqualTo(small);
+        assertThat(large).isLessThanOrEqualTo(3); // Page, genres batch, actors batch
+    }
+
+    @Test
+    void moviesByGenreLoadTheirAssociationsInBatches() throws Exception {
+        assertThat(statementsFor("/api/movies?genre=" + drama.getId())).isLessThanOrEqualTo(4); // Existence check, page, genres, actors
+    }
+
+    @Test
+    void moviesByActorLoadTheirAssociationsInBatches() throws Exception {
+        assertThat(statementsFor("/api/movies?actor=" + lead.getId())).isLessThanOrEqualTo(4); // Existence check, page, genres, actors
+    }
+
+    @Test
+    void titleSearchIsFetchedWithItsAssociations() throws Exception {
+        assertThat(statementsFor("/api/movies/search?title=saga&limit=50")).isLessThanOrEqualTo(2); // Index lookup, fetch
+    }
+
+    @Test
+    void pageOfMovies() {
+        profile(() -> movieService.getMoviesPage(null, 50, "title"))
+                .assertStatementCountAtMost(3) // Page, genres batch, actors batch
+                .assertNoRepeatedStatements(REPEAT_LIMIT);
+    }
+
+    @Test
+    void moviesByGenre() {
+        profile(() -> movieService.getMoviesByGenreId(drama.getId(), null, 50))
+                .assertStatementCountAtMost(4) // Existence check, page, genres batch, actors batch
+                .assertNoRepeatedStatements(REPEAT_LIMIT);
+    }
+
+    @Test
+    void moviesByReleaseYear() {
+        profile(() -> movieService.getMoviesByReleaseYear(1990, null, 50))
+                .assertStatementCountAtMost(3) // Movies, genres batch, actors batch
+                .assertNoRepeatedStatements(REPEAT_LIMIT);
+    }
+
+    @Test
+    void moviesByReleaseYearRange() {
+        profile(() -> movieService.getMoviesByReleaseYearRange(1990, 1994, null, 50))
+                .assertStatementCountAtMost(3) // Movies, genres batch, actors batch
+                .assertNoRepeatedStatements(REPEAT_LIMIT);
+    }
+
+    @Test
+    void titleSearch() {
+        profile(() -> movieService.searchMoviesByTitle("saga", null, 50))
+                .assertStatementCountAtMost(2) // Index lookup, fetch with associations
+                .assertNoRepeatedStatements(REPEAT_LIMIT);
+    }
+
+    @Test
+    void movieById() {
+        profile(() -> movieService.getMovieById(firstMovie.getId()))
+                .assertStatementCountAtMost(3) // Movie, genres, actors
+                .assertNoRepeatedStatements(REPEAT_LIMIT);
+    }
+
+    @Test
+    void actorsOfMovie() {
+        profile(() -> movieService.getActorsByMovie(firstMovie.getId()))
+                .assertStatementCountAtMost(2) // Movie, actors
+                .assertNoRepeatedStatements(REPEAT_LIMIT);
+    }
+
+    @Test
+    void createMovieWithCast() {
+        Movie movie = new Movie("Saga Extra " + System.nanoTime(), 1970, 95);
+        movie.setGenres(new HashSet<>(Set.of(drama)));
+        movie.setActors(new HashSet<>(Set.of(lead, cast.get(0), cast.get(1))));
+
+        try (SqlProfile profile = SqlProfile.start()) {
+            movieService.createMovie(movie);
+            // Actors and genres by ID, movie insert, one batch per join table, the change log entry; the unique
+            // index checks the title
+            profile.assertStatementCountAtMost(8).assertNoRepeatedStatements(REPEAT_LIMIT);
+        }
+    }
+
+    @Test
+    void updateMovieReplacingCast() {
+        Movie movie = movieService.createMovie(new Movie("Saga Extra " + System.nanoTime(), 1971, 96));
+        Movie changes = new Movie();
+        changes.setGenres(new HashSet<>(Set.of(drama)));
+        changes.setActors(new HashSet<>(Set.of(lead, cast.get(2))));
+        entityManagerFactory.getCache().evictAll();
+
+        try (SqlProfile profile = SqlProfile.start()) {
+            movieService.updateMovie(movie.getId(), changes);
+            // Movie with its associations, references by ID, row update, the join table rewrites and the change log entry
+            profile.assertStatementCountAtMost(13).assertNoRepeatedStatements(REPEAT_LIMIT);
+        }
+    }
+
+    @Test
+    void forceDeleteMovieWithCast() {
+        Movie movie = new Movie("Saga Extra " + System.nanoTime(), 1972, 97);
+        movie.setGenres(new HashSet<>(Set.of(drama)));
+        movie.setActors(new HashSet<>(Set.of(lead, cast.get(0), cast.get(1))));
+        Movie created = movieService.createMovie(movie);
+        entityManagerFactory.getCache().evictAll();
+
+        try (SqlProfile profile = SqlProfile.start()) {
+            movieService.deleteMovie(created.getId(), true);
+            // Movie, genre and actor IDs, one delete per join table, the row delete and the change log entry;
+            // the lead's other movies are never loaded
+            profile.assertStatementCountAtMost(7).assertNoRepeatedStatements(REPEAT_LIMIT);
+        }
+    }
+
+    // Performs a GET request, including response rendering, and returns the number of JDBC statements it prepared
+    private long statementsFor(String url) throws Exception {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+        mockMvc.perform(get(url)).andExpect(status().isOk());
+        return statistics.getPrepareStatementCount();
+    }
+
+    // Runs a service read in a transaction, renders its result as the controllers would, and returns the profile
+    private SqlProfile profile(Supplier<Object> read) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(true);
+        try (SqlProfile profile = SqlProfile.start()) {
+            transaction.executeWithoutResult(status -> render(read.get()));
+            return profile;
+        }
+    }
+
+    private void render(Object result) {
+        try {
+            objectMapper.writeValueAsString(result);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
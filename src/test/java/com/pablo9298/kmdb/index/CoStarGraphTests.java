@@ -0,0 +1,185 @@
+package com.pablo9298.kmdb.index;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// CoStarGraph checked against a plain map of casts: shortest paths against a breadth-first search over the map,
+// co-star rankings against counting shared movies, both before and after writes. Enough distinct movies are
+// rewritten to fold the delta into a new base, so answers are compared across the fold as well.
+class CoStarGraphTests {
+
+    private static final int ACTORS = 3000;
+    private static final int MOVIES = 2000;
+
+    private final Random random = new Random(31);
+
+    private final Map<Long, Set<Long>> casts = new HashMap<>();
+
+    private CoStarGraph graph;
+
+    @BeforeEach
+    void buildGraph() {
+        CoStarGraph.Builder builder = new CoStarGraph.Builder();
+        for (long movieId = 1; movieId <= MOVIES; movieId++) {
+            Set<Long> cast = randomCast();
+            casts.put(movieId, cast);
+            for (long actorId : cast) {
+                builder.add(movieId, actorId);
+            }
+        }
+        graph = new CoStarGraph();
+        graph.replace(builder);
+    }
+
+    @Test
+    void shortestPathsMatchBreadthFirstSearch() {
+        for (int round = 0; round < 300; round++) {
+            assertSamePath();
+        }
+    }
+
+    @Test
+    void coStarsMatchCountedSharedMovies() {
+        for (int round = 0; round < 300; round++) {
+            assertSameCoStars(1L + random.nextInt(ACTORS));
+        }
+    }
+
+    @Test
+    void answersMatchAcrossWritesAndFolds() {
+        boolean folded = false;
+        for (int round = 0; round < 12_000; round++) {
+            int operation = random.nextInt(20);
+            if (operation == 0) {
+                long actorId = 1L + random.nextInt(ACTORS);
+                graph.removeActor(actorId);
+                casts.values().forEach(cast -> cast.remove(actorId));
+                casts.values().removeIf(Set::isEmpty);
+            } else if (operation < 4) {
+                long movieId = 1L + random.nextInt(MOVIES + 3000);
+                graph.removeMovie(movieId);
+                casts.remove(movieId);
+            } else {
+                long movieId = 1L + random.nextInt(MOVIES + 3000);
+                Set<Long> cast = randomCast();
+                graph.putMovie(movieId, cast.stream().mapToLong(Long::longValue).toArray());
+                casts.put(movieId, cast);
+            }
+
+            CoStarGraph.Stats stats = graph.stats();
+            if (stats.pendingWrites() == 0) {
+                // Just folded: the base holds exactly the current casts
+                folded = true;
+                assertThat(stats.movies()).isEqualTo(casts.size());
+                assertThat(stats.castEntries()).isEqualTo(casts.values().stream().mapToLong(Set::size).sum());
+            }
+            if (round % 100 == 0) {
+                assertSamePath();
+                assertSameCoStars(1L + random.nextInt(ACTORS));
+                long actorId = 1L + random.nextInt(ACTORS);
+                assertThat(graph.contains(actorId)).isEqualTo(casts.values().stream().anyMatch(cast -> cast.contains(actorId)));
+            }
+        }
+        assertThat(folded).isTrue();
+    }
+
+    @Test
+    void duplicateCastEntriesCountOnce() {
+        graph.putMovie(10_000, new long[]{1, 2, 2, 1});
+        casts.put(10_000L, new TreeSet<>(List.of(1L, 2L)));
+
+        assertSameCoStars(1);
+        assertSameCoStars(2);
+    }
+
+    // Compares the length of the path between two random actors with a breadth-first search, and checks that
+    // each consecutive pair of its actors appears in the movie given between them
+    private void assertSamePath() {
+        long from = 1L + random.nextInt(ACTORS);
+        long to = 1L + random.nextInt(ACTORS);
+        if (from == to) {
+            return;
+        }
+        int maxDegrees = 1 + random.nextInt(6);
+        int expected = distance(from, to);
+        CoStarGraph.Path path = graph.shortestPath(from, to, maxDegrees);
+
+        if (expected < 0 || expected > maxDegrees) {
+            assertThat(path).isNull();
+            return;
+        }
+        assertThat(path).isNotNull();
+        assertThat(path.degrees()).isEqualTo(expected);
+        assertThat(path.actorIds()[0]).isEqualTo(from);
+        assertThat(path.actorIds()[expected]).isEqualTo(to);
+        for (int i = 0; i < expected; i++) {
+            Set<Long> cast = casts.getOrDefault(path.movieIds()[i], Set.of());
+            assertThat(cast.contains(path.actorIds()[i]) && cast.contains(path.actorIds()[i + 1])).isTrue();
+        }
+    }
+
+    // Compares every co-star of an actor, its shared movies and weight, and the order they are ranked in
+    private void assertSameCoStars(long actorId) {
+        Map<Long, Integer> shared = new HashMap<>();
+        Map<Long, Double> weights = new HashMap<>();
+        casts.values().stream().filter(cast -> cast.contains(actorId)).forEach(cast -> cast.forEach(member -> {
+            if (member != actorId) {
+                shared.merge(member, 1, Integer::sum);
+                weights.merge(member, 1.0 / (cast.size() - 1), Double::sum);
+            }
+        }));
+
+        List<CoStarGraph.CoStar> coStars = graph.topCoStars(actorId, Integer.MAX_VALUE);
+        assertThat(coStars).hasSize(shared.size());
+        for (int i = 0; i < coStars.size(); i++) {
+            CoStarGraph.CoStar coStar = coStars.get(i);
+            assertThat(coStar.sharedMovies()).isEqualTo(shared.get(coStar.actorId()));
+            assertThat(Math.abs(coStar.weight() - weights.get(coStar.actorId())) < 1e-9).isTrue();
+            if (i > 0) {
+                assertThat(coStars.get(i - 1).weight() >= coStar.weight()).isTrue();
+            }
+        }
+        int limit = 1 + random.nextInt(10);
+        assertThat(graph.topCoStars(actorId, limit)).containsExactlyElementsOf(coStars.subList(0, Math.min(limit, coStars.size())));
+    }
+
+    // Number of movies on a shortest chain of co-stars between two actors, or -1 when they are not connected
+    private int distance(long from, long to) {
+        Map<Long, List<Long>> moviesOf = new HashMap<>();
+        casts.forEach((movieId, cast) -> cast.forEach(actorId -> moviesOf.computeIfAbsent(actorId, key -> new ArrayList<>()).add(movieId)));
+        if (!moviesOf.containsKey(from) || !moviesOf.containsKey(to)) {
+            return -1;
+        }
+        Map<Long, Integer> depth = new HashMap<>(Map.of(from, 0));
+        Deque<Long> queue = new ArrayDeque<>(List.of(from));
+        while (!queue.isEmpty()) {
+            long actorId = queue.poll();
+            for (long movieId : moviesOf.get(actorId)) {
+                for (long member : casts.get(movieId)) {
+                    if (!depth.containsKey(member)) {
+                        depth.put(member, depth.get(actorId) + 1);
+                        if (member == to) {
+                            return depth.get(member);
+                        }
+                        queue.add(member);
+                    }
+                }
+            }
+        }
+        return -1;
+    }
+
+    // One to eight actors, drawn with a bias towards the lower IDs so some actors have long filmographies
+    private Set<Long> randomCast() {
+        Set<Long> cast = new TreeSet<>();
+        for (int i = 1 + random.nextInt(8); i > 0; i--) {
+            int bound = random.nextInt(4) == 0 ? 100 : ACTORS;
+            cast.add(1L + random.nextInt(bound));
+        }
+        return cast;
+    }
+}
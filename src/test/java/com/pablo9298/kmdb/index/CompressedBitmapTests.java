@@ -0,0 +1,125 @@
+package com.pablo9298.kmdb.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Random operations on CompressedBitmap checked against a TreeSet holding the same values.
+// Values are drawn over a few chunks at very different densities, so array and bitmap containers both occur,
+// chunks cross ARRAY_LIMIT in both directions, and set operations meet every pairing of container forms.
+class CompressedBitmapTests {
+
+    private static final int CHUNK = 65536;
+
+    // Draws a value from one of four chunks: a sparse one, one near ARRAY_LIMIT, a dense one and a full range
+    private static int randomValue(Random random) {
+        return switch (random.nextInt(4)) {
+            case 0 -> random.nextInt(CHUNK);
+            case 1 -> CHUNK + random.nextInt(5000);
+            case 2 -> 3 * CHUNK + random.nextInt(8000);
+            default -> random.nextInt(5 * CHUNK);
+        };
+    }
+
+    @Test
+    void addRemoveAndPagingMatchTreeSet() {
+        Random random = new Random(20240611);
+        CompressedBitmap bitmap = new CompressedBitmap();
+        TreeSet<Integer> expected = new TreeSet<>();
+        for (int round = 0; round < 60_000; round++) {
+            int value = randomValue(random);
+            // Adds outnumber removes early on and removes win later, so chunks grow past and shrink below the limit
+            if (random.nextInt(100) < (round < 30_000 ? 70 : 35)) {
+                assertThat(bitmap.add(value)).isEqualTo(expected.add(value));
+            } else {
+                assertThat(bitmap.remove(value)).isEqualTo(expected.remove(value));
+            }
+            if (round % 5000 == 0) {
+                assertSameValues(bitmap, expected, random);
+            }
+        }
+        assertSameValues(bitmap, expected, random);
+    }
+
+    @Test
+    void setOperationsMatchNaiveOnes() {
+        Random random = new Random(42);
+        for (int round = 0; round < 200; round++) {
+            TreeSet<Integer> left = randomSet(random);
+            TreeSet<Integer> right = randomSet(random);
+            CompressedBitmap leftBitmap = bitmapOf(left, random.nextBoolean());
+            CompressedBitmap rightBitmap = bitmapOf(right, random.nextBoolean());
+
+            TreeSet<Integer> both = new TreeSet<>(left);
+            both.retainAll(right);
+            TreeSet<Integer> either = new TreeSet<>(left);
+            either.addAll(right);
+
+            assertThat(valuesOf(CompressedBitmap.and(leftBitmap, rightBitmap))).containsExactlyElementsOf(both);
+            assertThat(CompressedBitmap.andCardinality(leftBitmap, rightBitmap)).isEqualTo(both.size());
+            assertThat(valuesOf(CompressedBitmap.or(List.of(leftBitmap, rightBitmap)))).containsExactlyElementsOf(either);
+        }
+    }
+
+    @Test
+    void unionOfManyMatchesNaiveUnion() {
+        Random random = new Random(7);
+        List<CompressedBitmap> bitmaps = new ArrayList<>();
+        TreeSet<Integer> expected = new TreeSet<>();
+        for (int i = 0; i < 50; i++) {
+            TreeSet<Integer> values = randomSet(random);
+            bitmaps.add(bitmapOf(values, false));
+            expected.addAll(values);
+        }
+
+        assertThat(valuesOf(CompressedBitmap.or(bitmaps))).containsExactlyElementsOf(expected);
+        assertThat(valuesOf(CompressedBitmap.or(List.of()))).isEmpty();
+    }
+
+    // Checks membership of random values, the cardinality, and pages of values after random points
+    private static void assertSameValues(CompressedBitmap bitmap, TreeSet<Integer> expected, Random random) {
+        assertThat(bitmap.cardinality()).isEqualTo(expected.size());
+        assertThat(bitmap.isEmpty()).isEqualTo(expected.isEmpty());
+        for (int i = 0; i < 1000; i++) {
+            int value = randomValue(random);
+            assertThat(bitmap.contains(value)).isEqualTo(expected.contains(value));
+        }
+        for (int i = 0; i < 20; i++) {
+            int after = random.nextInt(5 * CHUNK + 1) - 1;
+            int limit = 1 + random.nextInt(3000);
+            List<Integer> page = expected.tailSet(after, false).stream().limit(limit).toList();
+            assertThat(IntStream.of(bitmap.values(after, limit)).boxed().toList()).containsExactlyElementsOf(page);
+        }
+        assertThat(valuesOf(bitmap)).containsExactlyElementsOf(expected);
+    }
+
+    // A set whose density in each chunk is picked at random, from empty to nearly full
+    private static TreeSet<Integer> randomSet(Random random) {
+        TreeSet<Integer> values = new TreeSet<>();
+        for (int chunk = 0; chunk < 3; chunk++) {
+            int size = switch (random.nextInt(4)) {
+                case 0 -> 0;
+                case 1 -> random.nextInt(100);
+                case 2 -> 3000 + random.nextInt(2000);
+                default -> random.nextInt(CHUNK);
+            };
+            for (int i = 0; i < size; i++) {
+                values.add(chunk * CHUNK + random.nextInt(CHUNK));
+            }
+        }
+        return values;
+    }
+
+    private static CompressedBitmap bitmapOf(Collection<Integer> values, boolean bitmapContainers) {
+        CompressedBitmap bitmap = new CompressedBitmap();
+        values.forEach(bitmap::add);
+        return bitmapContainers ? bitmap.toBitmapContainers() : bitmap;
+    }
+
+    private static List<Integer> valuesOf(CompressedBitmap bitmap) {
+        return IntStream.of(bitmap.values(-1, Integer.MAX_VALUE)).boxed().toList();
+    }
+}
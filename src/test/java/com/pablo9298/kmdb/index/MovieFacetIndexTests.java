@@ -0,0 +1,165 @@
+package com.pablo9298.kmdb.index;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.function.Predicate;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Random queries against MovieFacetIndex checked against a scan over a plain list of the same movies.
+// The catalog is built, then changed through put and remove as the services do, so both the builder's
+// bitmaps and incrementally maintained ones are queried.
+class MovieFacetIndexTests {
+
+    private static final int GENRES = 8;
+    private static final int ACTORS = 60;
+
+    private final Random random = new Random(1995);
+
+    private final Map<Long, Movie> movies = new TreeMap<>();
+
+    private MovieFacetIndex index;
+
+    // What the index is told about a movie
+    private record Movie(long id, Integer year, Integer duration, Set<Long> genreIds, Set<Long> actorIds) {
+    }
+
+    @BeforeEach
+    void buildCatalog() {
+        MovieFacetIndex.Builder builder = new MovieFacetIndex.Builder();
+        for (long id = 1; id <= 3000; id++) {
+            Movie movie = randomMovie(id);
+            movies.put(id, movie);
+            builder.movie(id, movie.year(), movie.duration());
+            movie.genreIds().forEach(genreId -> builder.genre(movie.id(), genreId));
+            movie.actorIds().forEach(actorId -> builder.actor(movie.id(), actorId));
+        }
+        index = new MovieFacetIndex();
+        index.replace(builder);
+    }
+
+    @Test
+    void randomQueriesMatchScan() {
+        for (int round = 0; round < 500; round++) {
+            assertSameResult(randomQuery());
+        }
+    }
+
+    @Test
+    void randomQueriesMatchScanAfterUpdates() {
+        for (int round = 0; round < 2000; round++) {
+            long id = 1 + random.nextInt(3500);
+            Movie old = movies.remove(id);
+            if (old != null) {
+                index.remove(id, old.year(), old.duration(), old.genreIds(), old.actorIds());
+            }
+            if (old == null || random.nextInt(3) > 0) {
+                Movie movie = randomMovie(id);
+                movies.put(id, movie);
+                index.put(id, movie.year(), movie.duration(), movie.genreIds(), movie.actorIds());
+            }
+            if (round % 10 == 0) {
+                assertSameResult(randomQuery());
+            }
+        }
+    }
+
+    @Test
+    void deletedGenresAndActorsMatchNothing() {
+        index.removeGenre(1);
+        index.removeActor(1);
+
+        MovieFacetIndex.Result byGenre = index.search(new MovieFacetIndex.Query(Set.of(1L), Set.of(), null, null, null, null), 0, 10);
+        MovieFacetIndex.Result byActor = index.search(new MovieFacetIndex.Query(Set.of(), Set.of(1L), null, null, null, null), 0, 10);
+
+        assertThat(byGenre.total()).isZero();
+        assertThat(byActor.total()).isZero();
+        assertThat(index.search(new MovieFacetIndex.Query(Set.of(), Set.of(), null, null, null, null), 0, 10)
+                .genreCounts().containsKey(1L)).isFalse();
+    }
+
+    // Compares the total, a page of IDs after a random point and every facet count with a scan over the movies
+    private void assertSameResult(MovieFacetIndex.Query query) {
+        long afterId = random.nextInt(4) == 0 ? 0 : random.nextInt(3500);
+        int limit = 1 + random.nextInt(100);
+        MovieFacetIndex.Result result = index.search(query, afterId, limit);
+
+        List<Movie> matches = movies.values().stream()
+                .filter(byLinks(query)).filter(byYear(query)).filter(byDuration(query)).toList();
+        assertThat(result.total()).isEqualTo(matches.size());
+        assertThat(LongStream.of(result.movieIds()).boxed().toList()).containsExactlyElementsOf(
+                matches.stream().map(Movie::id).filter(id -> id > afterId).limit(limit).toList());
+
+        Map<Long, Integer> genreCounts = new TreeMap<>();
+        matches.forEach(movie -> movie.genreIds().forEach(genreId -> genreCounts.merge(genreId, 1, Integer::sum)));
+        assertThat(result.genreCounts()).isEqualTo(genreCounts);
+
+        SortedMap<Integer, Integer> decadeCounts = new TreeMap<>();
+        movies.values().stream().filter(byLinks(query)).filter(byDuration(query)).filter(movie -> movie.year() != null)
+                .forEach(movie -> decadeCounts.merge(Math.floorDiv(movie.year(), 10) * 10, 1, Integer::sum));
+        assertThat(result.decadeCounts()).isEqualTo(decadeCounts);
+
+        SortedMap<Integer, Integer> durationCounts = new TreeMap<>();
+        int width = MovieFacetIndex.DURATION_BUCKET;
+        movies.values().stream().filter(byLinks(query)).filter(byYear(query)).filter(movie -> movie.duration() != null)
+                .forEach(movie -> durationCounts.merge(Math.floorDiv(movie.duration(), width) * width, 1, Integer::sum));
+        assertThat(result.durationCounts()).isEqualTo(durationCounts);
+    }
+
+    private static Predicate<Movie> byLinks(MovieFacetIndex.Query query) {
+        return movie -> movie.genreIds().containsAll(query.genreIds()) && movie.actorIds().containsAll(query.actorIds());
+    }
+
+    private static Predicate<Movie> byYear(MovieFacetIndex.Query query) {
+        return movie -> within(movie.year(), query.yearFrom(), query.yearTo());
+    }
+
+    private static Predicate<Movie> byDuration(MovieFacetIndex.Query query) {
+        return movie -> within(movie.duration(), query.durationMin(), query.durationMax());
+    }
+
+    // Whether a value lies in an inclusive range; without bounds every movie matches, with any a missing value does not
+    private static boolean within(Integer value, Integer from, Integer to) {
+        if (from == null && to == null) {
+            return true;
+        }
+        return value != null && (from == null || value >= from) && (to == null || value <= to);
+    }
+
+    // Up to two genres and one actor, and open, closed or missing year and duration ranges
+    private MovieFacetIndex.Query randomQuery() {
+        Set<Long> genreIds = new HashSet<>();
+        for (int i = random.nextInt(3); i > 0; i--) {
+            genreIds.add(1L + random.nextInt(GENRES));
+        }
+        Set<Long> actorIds = random.nextInt(3) == 0 ? Set.of(1L + random.nextInt(ACTORS)) : Set.of();
+        Integer[] years = randomRange(1940, 90);
+        Integer[] durations = randomRange(50, 150);
+        return new MovieFacetIndex.Query(genreIds, actorIds, years[0], years[1], durations[0], durations[1]);
+    }
+
+    // Bounds of which either may be missing; FacetService rejects a lower bound above the upper one
+    private Integer[] randomRange(int origin, int span) {
+        int low = origin + random.nextInt(span);
+        int high = origin + random.nextInt(span);
+        return new Integer[]{random.nextBoolean() ? Math.min(low, high) : null, random.nextBoolean() ? Math.max(low, high) : null};
+    }
+
+    // A movie with a few genres and a cast, and now and then no year or duration
+    private Movie randomMovie(long id) {
+        Integer year = random.nextInt(10) == 0 ? null : 1950 + random.nextInt(75);
+        Integer duration = random.nextInt(10) == 0 ? null : 60 + random.nextInt(130);
+        Set<Long> genreIds = new HashSet<>();
+        for (int i = random.nextInt(4); i > 0; i--) {
+            genreIds.add(1L + random.nextInt(GENRES));
+        }
+        Set<Long> actorIds = new HashSet<>();
+        for (int i = random.nextInt(6); i > 0; i--) {
+            actorIds.add(1L + random.nextInt(ACTORS));
+        }
+        return new Movie(id, year, duration, genreIds, actorIds);
+    }
+}
@@ -0,0 +1,151 @@
+package com.pablo9298.kmdb.index;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// PrefixIndex checked against a scan over a plain map of labels, for the built base, with writes pending in the
+// delta, and after enough writes to fold the delta into a new base. Labels share words and prefixes, so most
+// queries match documents in both the base and the delta.
+class PrefixIndexTests {
+
+    private static final String[] WORDS = {"the", "then", "there", "star", "stark", "start", "war", "wars", "night",
+            "nightmare", "Über", "Éclair", "amélie", "a", "2001", "R2-D2", "don't", "THE"};
+
+    private static final String[] SEPARATORS = {" ", "  ", ": ", " - ", ", ", "!", "/"};
+
+    private final Random random = new Random(4096);
+
+    private final Map<Long, String> labels = new HashMap<>();
+
+    private PrefixIndex index;
+
+    @BeforeEach
+    void buildIndex() {
+        PrefixIndex.Builder builder = new PrefixIndex.Builder();
+        for (long id = 1; id <= 3000; id++) {
+            String label = randomLabel();
+            labels.put(id, label);
+            builder.add(id, label);
+        }
+        index = new PrefixIndex();
+        index.replace(builder);
+    }
+
+    @Test
+    void normalizesCaseDiacriticsAndPunctuation() {
+        assertThat(PrefixIndex.normalize("Amélie: The Fabulous—Destiny!")).isEqualTo("amelie the fabulous destiny");
+        assertThat(PrefixIndex.normalize("  R2-D2 & C-3PO ")).isEqualTo("r2 d2 c 3po");
+        assertThat(PrefixIndex.normalize("ÜBER")).isEqualTo("uber");
+        assertThat(PrefixIndex.normalize(null)).isEqualTo("");
+    }
+
+    @Test
+    void suggestionsMatchScanOfBase() {
+        for (int round = 0; round < 300; round++) {
+            assertSameSuggestions(randomPrefix());
+        }
+    }
+
+    @Test
+    void suggestionsMatchScanWithPendingAndFoldedWrites() {
+        boolean folded = false;
+        for (int round = 0; round < 12_000; round++) {
+            long id = 1L + random.nextInt(6000);
+            if (random.nextInt(4) == 0) {
+                index.remove(id);
+                labels.remove(id);
+            } else {
+                String label = randomLabel();
+                index.put(id, label);
+                labels.put(id, label);
+            }
+
+            PrefixIndex.Stats stats = index.stats();
+            assertThat(stats.documents()).isEqualTo(labels.size());
+            folded |= stats.pendingWrites() == 0;
+            if (round % 50 == 0) {
+                assertSameSuggestions(randomPrefix());
+            }
+        }
+        assertThat(folded).isTrue();
+    }
+
+    @Test
+    void replacedAndRemovedDocumentsAreNotSuggested() {
+        index.put(1, "Zebra Crossing");
+        index.put(2, "Zebra");
+        index.put(2, "Yak");
+        index.remove(1);
+        labels.remove(1L);
+        labels.put(2L, "Yak");
+
+        assertThat(index.suggest("zebra", 10)).isEmpty();
+        assertThat(index.suggest("ya", 10)).containsExactly(new PrefixIndex.Suggestion(2, "Yak"));
+        assertSameSuggestions("the");
+    }
+
+    // Compares a query with a scan: each document is ranked by the text from its first matching word on, and
+    // the suggestions must be the lowest ranked documents, in order. Documents whose texts tie may come in any
+    // order, so the ranks are compared, and the IDs too when every match fits within the limit.
+    private void assertSameSuggestions(String text) {
+        String prefix = PrefixIndex.normalize(text);
+        Map<Long, String> ranks = new HashMap<>();
+        labels.forEach((id, label) -> {
+            String rank = rank(PrefixIndex.normalize(label), prefix);
+            if (rank != null) {
+                ranks.put(id, rank);
+            }
+        });
+        List<String> expected = ranks.values().stream().sorted().toList();
+        int limit = 1 + random.nextInt(40);
+
+        List<PrefixIndex.Suggestion> suggestions = index.suggest(text, limit);
+        assertThat(suggestions).hasSize(Math.min(limit, expected.size()));
+        List<String> actual = new ArrayList<>();
+        for (PrefixIndex.Suggestion suggestion : suggestions) {
+            assertThat(suggestion.label()).isEqualTo(labels.get(suggestion.id()));
+            actual.add(ranks.get(suggestion.id()));
+        }
+        assertThat(actual).containsExactlyElementsOf(expected.subList(0, actual.size()));
+        if (expected.size() <= limit) {
+            assertThat(suggestions.stream().map(PrefixIndex.Suggestion::id).toList())
+                    .containsExactlyInAnyOrder(ranks.keySet().toArray());
+        }
+    }
+
+    // Smallest text from a word start that begins with the prefix, or null when no word does
+    private static String rank(String text, String prefix) {
+        String best = null;
+        for (int offset = 0; offset < text.length(); offset++) {
+            if ((offset == 0 || text.charAt(offset - 1) == ' ') && text.startsWith(prefix, offset)) {
+                String suffix = text.substring(offset);
+                best = best == null || suffix.compareTo(best) < 0 ? suffix : best;
+            }
+        }
+        return best;
+    }
+
+    // One to four words joined by spaces or punctuation
+    private String randomLabel() {
+        StringBuilder label = new StringBuilder(WORDS[random.nextInt(WORDS.length)]);
+        for (int i = random.nextInt(4); i > 0; i--) {
+            label.append(SEPARATORS[random.nextInt(SEPARATORS.length)]).append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return label.toString();
+    }
+
+    // The start of a word, sometimes followed by the start of the next one, in the case and accents a user types
+    private String randomPrefix() {
+        String word = WORDS[random.nextInt(WORDS.length)];
+        String prefix = word.substring(0, 1 + random.nextInt(word.length()));
+        if (random.nextInt(4) == 0) {
+            String next = WORDS[random.nextInt(WORDS.length)];
+            prefix = word + " " + next.substring(0, 1 + random.nextInt(next.length()));
+        }
+        return random.nextBoolean() ? prefix.toUpperCase(Locale.ROOT) : prefix;
+    }
+}
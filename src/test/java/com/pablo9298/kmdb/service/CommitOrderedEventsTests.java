@@ -0,0 +1,82 @@
+package com.pablo9298.kmdb.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// CommitOrderedEvents driven through the transaction synchronization phases by hand, without a database:
+// transactions that reach their commit in one order and complete in another are applied in the first.
+class CommitOrderedEventsTests {
+
+    private final List<Object> applied = new ArrayList<>();
+
+    private final CommitOrderedEvents events = new CommitOrderedEvents(applied::add);
+
+    @AfterEach
+    void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void batchesApplyInCommitOrderWhateverOrderTheyComplete() {
+        List<TransactionSynchronization> first = transaction("A1", "A2");
+        List<TransactionSynchronization> second = transaction("B1");
+        List<TransactionSynchronization> third = transaction("C1");
+
+        first.forEach(TransactionSynchronization::beforeCompletion);
+        second.forEach(TransactionSynchronization::beforeCompletion);
+        third.forEach(TransactionSynchronization::beforeCompletion);
+
+        third.forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        second.forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        assertThat(applied).isEmpty();
+
+        first.forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        assertThat(applied).containsExactly("A1", "A2", "B1", "C1");
+    }
+
+    @Test
+    void rolledBackBatchesAreDroppedWithoutHoldingUpLaterOnes() {
+        List<TransactionSynchronization> first = transaction("A1");
+        List<TransactionSynchronization> second = transaction("B1");
+
+        first.forEach(TransactionSynchronization::beforeCompletion);
+        second.forEach(TransactionSynchronization::beforeCompletion);
+        second.forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        first.forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        assertThat(applied).containsExactly("B1");
+    }
+
+    @Test
+    void eventsOutsideATransactionApplyAfterEarlierCommits() {
+        List<TransactionSynchronization> first = transaction("A1");
+        first.forEach(TransactionSynchronization::beforeCompletion);
+
+        events.collect("X1");
+        assertThat(applied).isEmpty();
+
+        first.forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        assertThat(applied).containsExactly("A1", "X1");
+    }
+
+    // Collects events in a transaction of their own and returns its synchronizations, leaving the thread free for the next one
+    private List<TransactionSynchronization> transaction(Object... changes) {
+        TransactionSynchronizationManager.initSynchronization();
+        for (Object change : changes) {
+            events.collect(change);
+        }
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        List.copyOf(TransactionSynchronizationManager.getResourceMap().keySet()).forEach(TransactionSynchronizationManager::unbindResource);
+        return synchronizations;
+    }
+}